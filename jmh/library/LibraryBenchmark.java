@@ -0,0 +1,179 @@
+package library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LibraryBenchmark class measures the core operations of the library with JMH over catalogs of increasing size, so that a change to a data structure can be judged by numbers rather than by feel.
+ * For each size (the parameter 'size') a data file of that many books and users is written by LibraryDataGenerator and imported into a Library of 'shards' shards (see Library(int)), then the following benchmarks are run:
+ * add - adding every book of the catalog, in the order of the file, to an empty SortedArrayList (one operation adds every book).
+ * importFile - importing the data file into an empty Library (see Library.importDataFromFile, one operation per import).
+ * searchBooks - searching the books for a word of a title or author of three or more characters, which uses the TrigramIndex (see LibraryBookshelf.searchBooks).
+ * searchBooksShort - searching the books for two characters, which is too short for the TrigramIndex and scans every book.
+ * searchUsers - searching the users for a forename or surname (see LibraryUserdata.searchUsers).
+ * issueReturn - issuing a random book to a random user then returning it (see Library.issueBookToUser and Library.returnBookFromUser, one operation per pair).
+ * <p>
+ * The searches and loans are timed per operation, each operation taking the next of QUERIES queries (or PAIRS pairs) chosen at random from the catalog.
+ * Adding and importing the whole catalog are timed as single shots, since one of them at the largest size takes seconds.
+ * <p>
+ * Usage: mvn -Pjmh package, then java -jar target/benchmarks.jar LibraryBenchmark [JMH options], i.e. -p size=100000,1000000 -p shards=1,4 to choose the sizes and numbers of shards.
+ * The default sizes are 1000 to 10000000 books (and as many users). The largest needs a heap of several gigabytes, so each fork is given -Xmx8g.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LibraryBenchmark {
+    private static final int QUERIES = 256;
+    private static final int PAIRS = 10000;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"1"})
+    public int shards;
+
+    private File file;
+    private Library library;
+    private Book[] unsortedBooks;
+    private String[] bookQueries;
+    private String[] shortBookQueries;
+    private String[] userQueries;
+    private int[] bookIds;
+    private int[] userIds;
+    private int next;
+
+    /**
+     * The setUp method writes the data file, imports it and chooses the queries and pairs of each benchmark.
+     *
+     * @throws IOException if the data file cannot be written or imported.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("library-benchmark", ".txt");
+        file.deleteOnExit();
+        LibraryDataGenerator.generate(file.getPath(), size, size, size);
+        library = new Library(shards);
+        if (library.importDataFromFile(file.getPath()) != 1) {
+            throw new IOException("The generated data file " + file + " could not be imported.");
+        }
+        LibraryBookshelf bookshelf = library.getBookshelf();
+        LibraryUserdata userdata = library.getUserdata();
+        //The books are added in the order of the data file (their ids), which is not sorted.
+        unsortedBooks = new Book[bookshelf.getNumberOfBooks()];
+        for (int id = 0; id < unsortedBooks.length; id++) {
+            Book book = bookshelf.getBookById(id);
+            unsortedBooks[id] = new Book(book.getTitle(), book.getAuthorForename(), book.getAuthorSurname());
+        }
+        Random random = new Random(size);
+        bookQueries = new String[QUERIES];
+        shortBookQueries = new String[QUERIES];
+        userQueries = new String[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            Book book = bookshelf.getBookById(random.nextInt(bookshelf.getNumberOfBooks()));
+            bookQueries[q] = randomWord(random, book.getTitle(), book.getAuthorSurname(), book.getAuthorForename());
+            shortBookQueries[q] = bookQueries[q].substring(0, Math.min(2, bookQueries[q].length()));
+            User user = userdata.getUserById(random.nextInt(userdata.getNumberOfUsers()));
+            userQueries[q] = randomWord(random, user.getSurname(), user.getForename());
+        }
+        bookIds = new int[PAIRS];
+        userIds = new int[PAIRS];
+        for (int p = 0; p < PAIRS; p++) {
+            bookIds[p] = random.nextInt(bookshelf.getNumberOfBooks());
+            userIds[p] = random.nextInt(userdata.getNumberOfUsers());
+        }
+    }
+
+    /**
+     * The tearDown method deletes the data file.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int add() {
+        SortedArrayList<Book> list = new SortedArrayList<>();
+        for (Book book : unsortedBooks) {
+            list.add(book);
+        }
+        return list.size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int importFile() throws IOException {
+        Library imported = new Library(shards);
+        return imported.importDataFromFile(file.getPath()) + imported.getBookshelf().getNumberOfBooks();
+    }
+
+    @Benchmark
+    public int searchBooks() {
+        return library.getBookshelf().searchBooks(bookQueries[nextQuery()]).size();
+    }
+
+    @Benchmark
+    public int searchBooksShort() {
+        return library.getBookshelf().searchBooks(shortBookQueries[nextQuery()]).size();
+    }
+
+    @Benchmark
+    public int searchUsers() {
+        return library.getUserdata().searchUsers(userQueries[nextQuery()]).size();
+    }
+
+    @Benchmark
+    public boolean issueReturn() {
+        int p = next++ % PAIRS;
+        return library.issueBookToUser(bookIds[p], userIds[p]) == 1 && library.returnBookFromUser(bookIds[p], userIds[p]);
+    }
+
+    /**
+     * The nextQuery method returns the index of the query of the next operation, taking the queries in turn.
+     */
+    private int nextQuery() {
+        return next++ % QUERIES;
+    }
+
+    /**
+     * The randomWord method returns a random word of three or more characters from the specified texts (i.e. the title and author of a book), or the first text if none of its words are that long.
+     */
+    private static String randomWord(Random random, String... texts) {
+        ArrayList<String> words = new ArrayList<>();
+        for (String text : texts) {
+            for (String word : text.split(" ")) {
+                if (word.length() >= 3) {
+                    words.add(word);
+                }
+            }
+        }
+        return words.isEmpty() ? texts[0] : words.get(random.nextInt(words.size()));
+    }
+}
@@ -1,7 +1,12 @@
+package library;
+
 /**
  * Instances of the Book class are book objects held within the LibraryBookshelf and used throughout the application.
  * An object of the book class will thus hold information pertaining to the books. This includes the title of the book, and name of the author (forename and surname).
- * The onLoanto field represents the index of the SortedArrayList (integer) the book is loaned out to. This is -1 only if the book is not on loan; so should not be accessed without reference to the LibraryBookshelf object (responsible for managing books).
+ * The id field is the permanent id of the book, assigned by the LibraryBookshelf when the book is added to it. Unlike the index of the book in the SortedArrayList it does not change when other books are added.
+ * The loan state of the book (the id of the user, see User.getId, the book is loaned out to, or -1 if the book is not on loan) is not a field of the book but is kept by the LibraryBookshelf in the IdColumn 'loanColumn', indexed by the id of the book, so that the loans of every book can be swept without visiting every book.
+ * isOnLoan, getOnLoanTo and setOnLoanTo read and write that column; a book which has not been added to a bookshelf is never on loan.
+ * Each value of the column is volatile so a loan made by one thread is seen by every other thread, it is only changed while the Library holds the lock of the book (see Library.issueBookToUser).
  * Methods of the Book class have been made package-private where they are only intended to be accessible from instances of the LibraryBookshelf class within the application.
  * The Book class implements a comparator such that case-sensitive information is ignored when evaluated by the compareTo method.
  * Methods of the Book class have been made package-private as they are only intended to be used by instances of the LibraryBookshelf class (the LibraryBookshelf holds the Books in the Library).
@@ -10,7 +15,8 @@ class Book implements Comparable<Book> {
     private final String title;
     private final String authorForename;
     private final String authorSurname;
-    private int onLoanTo;
+    private int id;
+    private IdColumn loanColumn;
 
 
     /**
@@ -20,23 +26,30 @@ class Book implements Comparable<Book> {
      * @param authorForename a String which represents the new author forename of the book.
      * @param authorSurname  a String which represents the new author surname of the book.
      *                       By default the  book is initialized as not on loan.
+     *                       The names of the author are pooled (see StringPool.NAMES), so the books of an author share the same Strings.
      */
     Book(String title, String authorForename, String authorSurname) {
         this.title = title;
-        this.authorForename = authorForename;
-        this.authorSurname = authorSurname;
-        onLoanTo = -1;
+        this.authorForename = StringPool.NAMES.intern(authorForename);
+        this.authorSurname = StringPool.NAMES.intern(authorSurname);
+        id = -1;
+        loanColumn = null;
     }
 
     /**
      * The method compareTo overrides a method of the Comparable interface implemented.
      * By returning "compareToIgnoreCase", this method declares if the author surname of this object is less than the surname of the object specified by the parameter is equal to a value less the 0, then the author surname of this object is lexicographically sorted before the object specified in the parameter.
      *
+     * Since the names of authors are pooled, books by the same author hold the same String and are found equal without comparing characters.
+     *
      * @param o refers to the object to compare to.
      * @return returns negative if the value of the author surname of this object is lexicographically sorted before the author surname of the object 'o'.
      */
     @Override
     public int compareTo(Book o) {
+        if (authorSurname == o.authorSurname) {
+            return 0;
+        }
         return getAuthorSurname().compareToIgnoreCase(o.getAuthorSurname());
     }
 
@@ -58,6 +71,29 @@ class Book implements Comparable<Book> {
         return authorSurname;
     }
 
+    /**
+     * The method getId returns the permanent id of the book.
+     *
+     * @return returns the id of the book, or -1 if the book has not been added to a bookshelf.
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * The method setId sets the permanent id of the book. This operation should only be performed by instances of the LibraryBookshelf class.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * The method setLoanColumn sets the column holding the loan state of the book (see the class description). This operation should only be performed by instances of the LibraryBookshelf class, once the book has its id.
+     */
+    void setLoanColumn(IdColumn loanColumn) {
+        this.loanColumn = loanColumn;
+    }
+
     /**
      * The method getBookByAuthorSurname returns the authorSurname, authorForename, and title of the book in a standard format.
      *
@@ -73,23 +109,23 @@ class Book implements Comparable<Book> {
      * @return returns true if the book is on loan.".
      */
     boolean isOnLoan() {
-        return onLoanTo != -1;
+        return getOnLoanTo() != -1;
     }
 
     /**
-     * The method isOnLoanTo returns the index of the SortedArrayList the book is on loan to in the LibraryUserdata object.
+     * The method isOnLoanTo returns the id of the user the book is on loan to in the LibraryUserdata object.
      *
-     * @return returns the index of the User object of the library's userdata that the book is on loan to.".
+     * @return returns the id of the User object of the library's userdata that the book is on loan to.".
      */
     int getOnLoanTo() {
-        return onLoanTo;
+        return loanColumn == null ? -1 : loanColumn.get(id);
     }
 
     /**
-     * The method setOnLoanTo sets the value of onLoanTo.  This operation should only be performed by instances of the LibraryBookshelf class.
+     * The method setOnLoanTo sets the id of the user the book is on loan to.  This operation should only be performed by instances of the LibraryBookshelf class.
      */
     void setOnLoanTo(int userId) {
-        onLoanTo = userId;
+        loanColumn.set(id, userId);
     }
 
     /**
@@ -0,0 +1,158 @@
+package library;
+
+/**
+ * The HoldQueues class holds the users waiting for books which are on loan (their holds), as a first-in first-out queue of user ids for each book.
+ * Each queue is a ring of ints which grows by doubling, so taking the next user waiting for a book (see poll) or joining the end of a queue (see add) costs O(1) and never moves the rest of the queue.
+ * Only books which have users waiting for them have a queue (held in an IntObjectHashMap by book id), and a queue is discarded once it is empty, so the many books nobody is waiting for cost nothing.
+ * <p>
+ * A HoldQueues is not safe to use from many threads at once: the Library keeps one for each of its lock stripes, and each is only used under the lock of that stripe (see Library.placeHold).
+ * <p>
+ * The HoldQueues class is made package private as it is intended for use only by instances of the Library class.
+ */
+class HoldQueues {
+    private final IntObjectHashMap<Ring> queues;
+
+    /**
+     * HoldQueues is the constructor method for instances of the HoldQueues class, which begins with no users waiting for any book.
+     */
+    HoldQueues() {
+        queues = new IntObjectHashMap<>();
+    }
+
+    /**
+     * The add method adds a user to the end of the queue of a book.
+     *
+     * @param bookId specifies the id of the book.
+     * @param userId specifies the id of the user.
+     * @return returns the position of the user in the queue (1 for the next user to be given the book), or -1 if the user is already waiting for the book.
+     */
+    int add(int bookId, int userId) {
+        Ring ring = queues.get(bookId);
+        if (ring == null) {
+            ring = new Ring();
+            queues.put(bookId, ring);
+        } else if (ring.indexOf(userId) != -1) {
+            return -1;
+        }
+        ring.offer(userId);
+        return ring.size;
+    }
+
+    /**
+     * The poll method takes the user at the front of the queue of a book, discarding the queue if it is then empty.
+     *
+     * @param bookId specifies the id of the book.
+     * @return returns the id of the user, or -1 if nobody is waiting for the book.
+     */
+    int poll(int bookId) {
+        Ring ring = queues.get(bookId);
+        if (ring == null) {
+            return -1;
+        }
+        int userId = ring.poll();
+        if (ring.size == 0) {
+            queues.remove(bookId);
+        }
+        return userId;
+    }
+
+    /**
+     * The remove method removes a user from the queue of a book, wherever they are in it (i.e. when they no longer want the book).
+     *
+     * @param bookId specifies the id of the book.
+     * @param userId specifies the id of the user.
+     * @return returns true if the user was waiting for the book.
+     */
+    boolean remove(int bookId, int userId) {
+        Ring ring = queues.get(bookId);
+        if (ring == null) {
+            return false;
+        }
+        int index = ring.indexOf(userId);
+        if (index == -1) {
+            return false;
+        }
+        ring.removeAt(index);
+        if (ring.size == 0) {
+            queues.remove(bookId);
+        }
+        return true;
+    }
+
+    /**
+     * The toArray method returns the users waiting for a book, in the order they will be given it.
+     *
+     * @param bookId specifies the id of the book.
+     * @return returns the ids of the users waiting, which is empty if nobody is waiting.
+     */
+    int[] toArray(int bookId) {
+        Ring ring = queues.get(bookId);
+        if (ring == null) {
+            return new int[0];
+        }
+        int[] userIds = new int[ring.size];
+        for (int i = 0; i < ring.size; i++) {
+            userIds[i] = ring.get(i);
+        }
+        return userIds;
+    }
+
+    /**
+     * The clear method removes every queue.
+     */
+    void clear() {
+        queues.clear();
+    }
+
+    /**
+     * The Ring class is the queue of a single book: 'size' user ids held in 'ids' starting at 'head' and wrapping around to the start of the array.
+     * The length of 'ids' is always a power of two, so a position is wrapped with a mask.
+     */
+    private static class Ring {
+        private int[] ids = new int[4];
+        private int head = 0;
+        private int size = 0;
+
+        private void offer(int userId) {
+            if (size == ids.length) {
+                //Unwrap the ring into an array of twice the length, so the queue starts at 0 again.
+                int[] grown = new int[2 * ids.length];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = get(i);
+                }
+                ids = grown;
+                head = 0;
+            }
+            ids[(head + size) & (ids.length - 1)] = userId;
+            size++;
+        }
+
+        private int poll() {
+            int userId = ids[head];
+            head = (head + 1) & (ids.length - 1);
+            size--;
+            return userId;
+        }
+
+        private int get(int index) {
+            return ids[(head + index) & (ids.length - 1)];
+        }
+
+        private int indexOf(int userId) {
+            for (int i = 0; i < size; i++) {
+                if (get(i) == userId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void removeAt(int index) {
+            //Move the users behind the one removed forward by one place.
+            for (int i = index; i < size - 1; i++) {
+                ids[(head + i) & (ids.length - 1)] = get(i + 1);
+            }
+            size--;
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package library;
+
+import java.util.Arrays;
+
+/**
+ * The IdBitmap class is a compressed set of ids (i.e. the ids of the books on loan) in the style of a Roaring bitmap, so that sets of ids can be counted, combined and filtered with bitwise operations.
+ * Ids are split by their high 16 bits into containers of 65536 ids. A container holding few ids keeps them as a sorted array of their low 16 bits (two bytes per id); once it holds more than ARRAY_MAX ids it becomes a bitmap of 1024 longs (one bit per id), which is smaller from then on.
+ * A container which falls back to ARRAY_MIN ids becomes an array again (the gap between ARRAY_MIN and ARRAY_MAX stops a container which is added to and removed from at the limit converting on every change).
+ * <p>
+ * Ids may be added and removed by many threads at once (i.e. books loaned and returned at many circulation desks): each container is changed only while holding its own lock, so threads changing ids of different containers never wait for each other.
+ * The results of and, andNot and of are new IdBitmaps which belong to the caller.
+ * <p>
+ * The IdBitmap class is made package private as it is intended for use only by the classes of the library (see LibraryBookshelf).
+ */
+class IdBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int ARRAY_MIN = 2048;
+    private volatile Container[] containers;
+
+    /**
+     * The IdBitmap method is a constructor which creates an empty set of ids.
+     */
+    IdBitmap() {
+        containers = new Container[0];
+    }
+
+    /**
+     * The of method creates a set holding the specified ids (i.e. the ids of the books removed by a re-import, see LibraryBookshelf.removeBooks).
+     * Since the ids are sorted, the ids of each container are a run of the array, and each container is built from its run in one pass (as an array, or straight away as a bitmap if the run is longer than ARRAY_MAX) without taking any lock, as no other thread can see the set yet.
+     *
+     * @param sortedIds specifies the ids, which must be at least 0 and in ascending order (an id repeated is held once).
+     * @return returns the set of those ids.
+     */
+    static IdBitmap of(int[] sortedIds) {
+        IdBitmap bitmap = new IdBitmap();
+        if (sortedIds.length == 0) {
+            return bitmap;
+        }
+        Container[] built = new Container[(sortedIds[sortedIds.length - 1] >>> 16) + 1];
+        int start = 0;
+        while (start < sortedIds.length) {
+            int high = sortedIds[start] >>> 16;
+            int end = start + 1;
+            while (end < sortedIds.length && sortedIds[end] >>> 16 == high) {
+                end++;
+            }
+            built[high] = Container.of(sortedIds, start, end);
+            start = end;
+        }
+        bitmap.containers = built;
+        return bitmap;
+    }
+
+    /**
+     * The add method adds an id to the set.
+     *
+     * @param id specifies the id, which must be at least 0.
+     * @return returns true if the id was added, returns false if it was already in the set.
+     */
+    boolean add(int id) {
+        return containerOf(id >>> 16, true).add((char) id);
+    }
+
+    /**
+     * The remove method removes an id from the set.
+     *
+     * @param id specifies the id.
+     * @return returns true if the id was removed, returns false if it was not in the set.
+     */
+    boolean remove(int id) {
+        Container container = containerOf(id >>> 16, false);
+        return container != null && container.remove((char) id);
+    }
+
+    /**
+     * The contains method evaluates whether an id is in the set.
+     *
+     * @param id specifies the id.
+     * @return returns true if the id is in the set.
+     */
+    boolean contains(int id) {
+        Container container = containerOf(id >>> 16, false);
+        return container != null && container.contains((char) id);
+    }
+
+    /**
+     * The cardinality method returns the number of ids in the set, in time proportional to the number of containers (not the number of ids).
+     *
+     * @return returns the number of ids in the set.
+     */
+    int cardinality() {
+        int cardinality = 0;
+        for (Container container : containers) {
+            if (container != null) {
+                cardinality += container.cardinality();
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * The clear method removes every id from the set.
+     */
+    synchronized void clear() {
+        containers = new Container[0];
+    }
+
+    /**
+     * The and method returns the ids which are in both this set and another, found container by container with bitwise AND (or by probing one container with the ids of the other when either is an array).
+     *
+     * @param other specifies the other set.
+     * @return returns a new set of the ids in both sets.
+     */
+    IdBitmap and(IdBitmap other) {
+        return combine(other, false);
+    }
+
+    /**
+     * The andNot method returns the ids which are in this set but not in another (i.e. the candidates of a search which are not on loan), found container by container with bitwise AND NOT.
+     *
+     * @param other specifies the other set.
+     * @return returns a new set of the ids in this set but not the other.
+     */
+    IdBitmap andNot(IdBitmap other) {
+        return combine(other, true);
+    }
+
+    /**
+     * The filter method returns the ids of a sorted array which are ('inSet' true) or are not ('inSet' false) in this set (i.e. the candidates of a search which are on loan, or available, see LibraryBookshelf.searchBooks), without building a set of the ids first.
+     * The container of each run of ids with the same high 16 bits is copied once (under its own lock) and probed with every id of the run.
+     *
+     * @param sortedIds specifies the ids, in ascending order.
+     * @param inSet     specifies whether to keep the ids which are in the set, rather than those which are not.
+     * @return returns the ids kept, in ascending order.
+     */
+    int[] filter(int[] sortedIds, boolean inSet) {
+        Container[] snapshot = containers;
+        int[] kept = new int[sortedIds.length];
+        int size = 0;
+        int high = -1;
+        Container container = null;
+        for (int id : sortedIds) {
+            if (id >>> 16 != high) {
+                high = id >>> 16;
+                container = high < snapshot.length && snapshot[high] != null ? snapshot[high].copy() : null;
+            }
+            if ((container != null && container.has((char) id)) == inSet) {
+                kept[size++] = id;
+            }
+        }
+        return size == kept.length ? kept : Arrays.copyOf(kept, size);
+    }
+
+    /**
+     * The toArray method returns every id of the set in ascending order.
+     *
+     * @return returns the ids of the set.
+     */
+    int[] toArray() {
+        Container[] snapshot = containers;
+        int[] ids = new int[16];
+        int size = 0;
+        for (int high = 0; high < snapshot.length; high++) {
+            if (snapshot[high] != null) {
+                Container copy = snapshot[high].copy();
+                if (ids.length - size < copy.size) {
+                    ids = Arrays.copyOf(ids, Math.max(2 * ids.length, size + copy.size));
+                }
+                size = copy.toArray(high << 16, ids, size);
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * The combine method is the body of and and andNot. Each container of both sets is copied (under its own lock, one at a time) before they are combined, so no two locks are ever held at once.
+     */
+    private IdBitmap combine(IdBitmap other, boolean not) {
+        Container[] mine = containers;
+        Container[] theirs = other.containers;
+        IdBitmap result = new IdBitmap();
+        Container[] combined = new Container[mine.length];
+        for (int high = 0; high < mine.length; high++) {
+            if (mine[high] == null) {
+                continue;
+            }
+            Container a = mine[high].copy();
+            Container b = high < theirs.length && theirs[high] != null ? theirs[high].copy() : null;
+            Container c;
+            if (b == null) {
+                c = not ? a : null;
+            } else {
+                c = not ? a.andNot(b) : a.and(b);
+            }
+            if (c != null && c.size > 0) {
+                combined[high] = c;
+            }
+        }
+        result.containers = combined;
+        return result;
+    }
+
+    /**
+     * The containerOf method returns the container of the ids with the specified high 16 bits, creating it (and growing 'containers') if asked to.
+     */
+    private Container containerOf(int high, boolean create) {
+        Container[] current = containers;
+        if (high < current.length && current[high] != null) {
+            return current[high];
+        }
+        if (!create) {
+            return null;
+        }
+        synchronized (this) {
+            current = containers;
+            if (high >= current.length) {
+                current = Arrays.copyOf(current, high + 1);
+            } else if (current[high] != null) {
+                return current[high];
+            } else {
+                current = current.clone();
+            }
+            current[high] = new Container();
+            containers = current;
+            return current[high];
+        }
+    }
+
+    /**
+     * The Container class holds the ids of an IdBitmap which share their high 16 bits, as a sorted array of their low 16 bits ('values') or as a bitmap ('words'), whichever is smaller.
+     */
+    private static class Container {
+        private char[] values;
+        private long[] words;
+        private int size;
+
+        private Container() {
+            values = new char[4];
+        }
+
+        /**
+         * The of method builds a container (which no other thread can see) from a run of sorted ids which share their high 16 bits.
+         */
+        private static Container of(int[] sortedIds, int start, int end) {
+            Container container = new Container();
+            if (end - start > ARRAY_MAX) {
+                container.words = new long[1024];
+                container.values = null;
+                for (int i = start; i < end; i++) {
+                    char low = (char) sortedIds[i];
+                    long bit = 1L << low;
+                    if ((container.words[low >>> 6] & bit) == 0) {
+                        container.words[low >>> 6] |= bit;
+                        container.size++;
+                    }
+                }
+                if (container.size <= ARRAY_MIN) {
+                    container.convertToArray();
+                }
+                return container;
+            }
+            container.values = new char[Math.max(end - start, 4)];
+            for (int i = start; i < end; i++) {
+                char low = (char) sortedIds[i];
+                if (container.size == 0 || container.values[container.size - 1] != low) {
+                    container.values[container.size++] = low;
+                }
+            }
+            return container;
+        }
+
+        private synchronized boolean add(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) != 0) {
+                    return false;
+                }
+                words[low >>> 6] |= bit;
+                size++;
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (size == ARRAY_MAX) {
+                convertToBitmap();
+                return add(low);
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(2 * size, ARRAY_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = low;
+            size++;
+            return true;
+        }
+
+        private synchronized boolean remove(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) == 0) {
+                    return false;
+                }
+                words[low >>> 6] &= ~bit;
+                size--;
+                if (size == ARRAY_MIN) {
+                    convertToArray();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        private synchronized boolean contains(char low) {
+            return has(low);
+        }
+
+        /**
+         * The has method is the body of contains, without the lock (for copies, which no other thread can see).
+         */
+        private boolean has(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & 1L << low) != 0;
+            }
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        private synchronized int cardinality() {
+            return size;
+        }
+
+        private synchronized Container copy() {
+            Container copy = new Container();
+            copy.size = size;
+            if (words != null) {
+                copy.words = words.clone();
+                copy.values = null;
+            } else {
+                copy.values = Arrays.copyOf(values, size);
+            }
+            return copy;
+        }
+
+        /**
+         * The toArray method writes the ids of the container (with the specified high bits) into 'ids' from 'position', returning the position after them.
+         */
+        private int toArray(int high, int[] ids, int position) {
+            if (words == null) {
+                for (int i = 0; i < size; i++) {
+                    ids[position++] = high | values[i];
+                }
+                return position;
+            }
+            for (int w = 0; w < words.length; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    ids[position++] = high | w << 6 | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return position;
+        }
+
+        /**
+         * The and method combines two copies (which no other thread can see) with bitwise AND.
+         */
+        private Container and(Container other) {
+            if (words != null && other.words != null) {
+                Container result = new Container();
+                result.words = new long[1024];
+                result.values = null;
+                for (int w = 0; w < 1024; w++) {
+                    result.words[w] = words[w] & other.words[w];
+                    result.size += Long.bitCount(result.words[w]);
+                }
+                if (result.size <= ARRAY_MIN) {
+                    result.convertToArray();
+                }
+                return result;
+            }
+            //At least one side is an array: keep the ids of the smaller array which the other side contains.
+            Container array = words == null ? this : other;
+            Container probe = array == this ? other : this;
+            if (probe.words == null && probe.size < array.size) {
+                Container swap = array;
+                array = probe;
+                probe = swap;
+            }
+            return array.filter(probe, true);
+        }
+
+        /**
+         * The andNot method combines two copies (which no other thread can see) with bitwise AND NOT.
+         */
+        private Container andNot(Container other) {
+            if (words != null && other.words != null) {
+                Container result = new Container();
+                result.words = new long[1024];
+                result.values = null;
+                for (int w = 0; w < 1024; w++) {
+                    result.words[w] = words[w] & ~other.words[w];
+                    result.size += Long.bitCount(result.words[w]);
+                }
+                if (result.size <= ARRAY_MIN) {
+                    result.convertToArray();
+                }
+                return result;
+            }
+            if (words == null) {
+                return filter(other, false);
+            }
+            //This side is a bitmap and the other an array: clear the bits of the other's ids.
+            Container result = new Container();
+            result.words = words.clone();
+            result.values = null;
+            result.size = size;
+            for (int i = 0; i < other.size; i++) {
+                char low = other.values[i];
+                long bit = 1L << low;
+                if ((result.words[low >>> 6] & bit) != 0) {
+                    result.words[low >>> 6] &= ~bit;
+                    result.size--;
+                }
+            }
+            if (result.size <= ARRAY_MIN) {
+                result.convertToArray();
+            }
+            return result;
+        }
+
+        /**
+         * The filter method returns the ids of this array container which are ('keep' true) or are not ('keep' false) contained in another container.
+         */
+        private Container filter(Container other, boolean keep) {
+            Container result = new Container();
+            result.values = new char[Math.max(size, 4)];
+            for (int i = 0; i < size; i++) {
+                if (other.has(values[i]) == keep) {
+                    result.values[result.size++] = values[i];
+                }
+            }
+            return result;
+        }
+
+        private void convertToBitmap() {
+            words = new long[1024];
+            for (int i = 0; i < size; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void convertToArray() {
+            values = new char[Math.max(size, 4)];
+            int i = 0;
+            for (int w = 0; w < words.length; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    values[i++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            words = null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package library;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The IdColumn class holds one int for each id (i.e. the user each book is on loan to, or the number of books each user has loaned), stored densely by id rather than as a field of each Book or User object.
+ * A question asked of every book or user (i.e. how many books are on loan) then sweeps a few contiguous arrays in order, instead of following a reference to each object in turn across the heap.
+ * <p>
+ * Ids are split by their high 16 bits into pages of 65536 ints, created the first time an id of the page is set (an id which has never been set has the default value of the column).
+ * Pages are never moved or copied once created, so the column grows as ids are added without a value ever being lost by a thread setting it at the same time.
+ * Each int is read and written atomically with volatile semantics (see AtomicIntegerArray), so a value set by one thread is seen by every other thread without a lock; changes which must be made together with other state are made under the lock of that state (see Library and User).
+ * <p>
+ * The IdColumn class is made package private as it is intended for use only by the classes of the library (see LibraryBookshelf and LibraryUserdata).
+ */
+class IdColumn {
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private final int defaultValue;
+    private volatile AtomicIntegerArray[] pages;
+
+    /**
+     * The IdColumn method is a constructor which creates an empty column.
+     *
+     * @param defaultValue specifies the value of every id which has not been set (i.e. -1, not on loan).
+     */
+    IdColumn(int defaultValue) {
+        this.defaultValue = defaultValue;
+        pages = new AtomicIntegerArray[0];
+    }
+
+    /**
+     * The get method returns the value of an id.
+     *
+     * @param id specifies the id, which must be at least 0.
+     * @return returns the value of the id, or the default value if it has never been set.
+     */
+    int get(int id) {
+        AtomicIntegerArray[] current = pages;
+        int page = id >>> PAGE_BITS;
+        if (page >= current.length || current[page] == null) {
+            return defaultValue;
+        }
+        return current[page].get(id & (PAGE_SIZE - 1));
+    }
+
+    /**
+     * The set method sets the value of an id.
+     *
+     * @param id    specifies the id, which must be at least 0.
+     * @param value specifies the value.
+     */
+    void set(int id, int value) {
+        pageOf(id >>> PAGE_BITS).set(id & (PAGE_SIZE - 1), value);
+    }
+
+    /**
+     * The count method counts the ids below a limit whose value is not the default value (i.e. the books on loan), with a single sweep of the pages in order.
+     *
+     * @param limit specifies the id after the last id counted (i.e. the next id to be given).
+     * @return returns the number of ids whose value is not the default.
+     */
+    int count(int limit) {
+        AtomicIntegerArray[] current = pages;
+        int count = 0;
+        for (int page = 0; page < current.length && (long) page * PAGE_SIZE < limit; page++) {
+            if (current[page] == null) {
+                continue;
+            }
+            int end = (int) Math.min(PAGE_SIZE, limit - (long) page * PAGE_SIZE);
+            for (int i = 0; i < end; i++) {
+                if (current[page].get(i) != defaultValue) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The sum method adds up the values of the ids below a limit (i.e. the numbers of books loaned by every user), with a single sweep of the pages in order.
+     *
+     * @param limit specifies the id after the last id added.
+     * @return returns the sum of the values.
+     */
+    long sum(int limit) {
+        AtomicIntegerArray[] current = pages;
+        long sum = 0;
+        for (int page = 0; page * (long) PAGE_SIZE < limit; page++) {
+            int end = (int) Math.min(PAGE_SIZE, limit - (long) page * PAGE_SIZE);
+            if (page >= current.length || current[page] == null) {
+                sum += (long) defaultValue * end;
+                continue;
+            }
+            for (int i = 0; i < end; i++) {
+                sum += current[page].get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * The nextSet method finds the first id at or after 'from' and below a limit whose value is not the default value, so that the ids with values (i.e. the books on loan) can be swept in order.
+     *
+     * @param from  specifies the first id to inspect.
+     * @param limit specifies the id after the last id to inspect.
+     * @return returns the id found, or -1 if there is none.
+     */
+    int nextSet(int from, int limit) {
+        AtomicIntegerArray[] current = pages;
+        for (int id = from; id < limit; ) {
+            int page = id >>> PAGE_BITS;
+            if (page >= current.length) {
+                return -1;
+            }
+            if (current[page] == null) {
+                id = (page + 1) << PAGE_BITS;
+                continue;
+            }
+            int end = (int) Math.min(PAGE_SIZE, limit - (long) page * PAGE_SIZE);
+            for (int i = id & (PAGE_SIZE - 1); i < end; i++) {
+                if (current[page].get(i) != defaultValue) {
+                    return page << PAGE_BITS | i;
+                }
+            }
+            id = (page + 1) << PAGE_BITS;
+        }
+        return -1;
+    }
+
+    /**
+     * The clear method sets every id back to the default value.
+     */
+    synchronized void clear() {
+        pages = new AtomicIntegerArray[0];
+    }
+
+    /**
+     * The pageOf method returns the page of the ids with the specified high bits, creating it (and growing 'pages') if it does not exist.
+     */
+    private AtomicIntegerArray pageOf(int page) {
+        AtomicIntegerArray[] current = pages;
+        if (page < current.length && current[page] != null) {
+            return current[page];
+        }
+        synchronized (this) {
+            current = pages;
+            if (page >= current.length) {
+                current = Arrays.copyOf(current, page + 1);
+            } else if (current[page] != null) {
+                return current[page];
+            } else {
+                current = current.clone();
+            }
+            AtomicIntegerArray created = new AtomicIntegerArray(PAGE_SIZE);
+            if (defaultValue != 0) {
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    created.lazySet(i, defaultValue);
+                }
+            }
+            current[page] = created;
+            pages = current;
+            return created;
+        }
+    }
+}
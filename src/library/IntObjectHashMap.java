@@ -0,0 +1,194 @@
+package library;
+
+import java.util.Arrays;
+
+/**
+ * The IntObjectHashMap class maps primitive int keys to objects without boxing the keys as Integer objects.
+ * Keys and values are held in two parallel arrays using open addressing with linear probing, so a lookup is a hash of the key followed by a short scan of adjacent array slots (O(1) on average).
+ * A null value marks an empty slot, as a result null values cannot be stored.
+ * The table is doubled whenever it becomes more than half full, and removal shifts later entries of the same probe sequence back so that no deleted markers are required.
+ * <p>
+ * The IntObjectHashMap class is made package private as it is intended for use only by the classes of the library (i.e. to look up books and users by their id).
+ *
+ * @param <V> Param V refers to the kind of object held as the values of the map.
+ */
+class IntObjectHashMap<V> {
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * IntObjectHashMap is the constructor method for instances of the IntObjectHashMap class, which begins as an empty map.
+     */
+    IntObjectHashMap() {
+        allocate(16);
+    }
+
+    /**
+     * The get method returns the value mapped to the specified key.
+     *
+     * @param key specifies the key to look up.
+     * @return returns the value mapped to the key, or null if the key is not mapped.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        for (int slot = slotOf(key); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The containsKey method evaluates whether the specified key is mapped to a value.
+     *
+     * @param key specifies the key to look up.
+     * @return returns true if the key is mapped to a value.
+     */
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * The put method maps the specified key to the specified value, replacing any value previously mapped to that key.
+     *
+     * @param key   specifies the key.
+     * @param value specifies the value to map the key to.
+     * @return returns the value previously mapped to the key, or null if the key was not mapped.
+     * @throws NullPointerException if the value is null.
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        int slot = slotOf(key);
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (2 * size > keys.length) {
+            resize(2 * keys.length);
+        }
+        return null;
+    }
+
+    /**
+     * The remove method removes the mapping of the specified key.
+     *
+     * @param key specifies the key to remove.
+     * @return returns the value which was mapped to the key, or null if the key was not mapped.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int slot = slotOf(key);
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V removed = (V) values[slot];
+                closeGap(slot);
+                size--;
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The size method returns the number of keys mapped in the IntObjectHashMap.
+     *
+     * @return returns the number of mappings.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * The keys method returns every key mapped in the IntObjectHashMap, in no particular order.
+     *
+     * @return returns a new array of the mapped keys.
+     */
+    int[] keys() {
+        int[] mapped = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                mapped[count++] = keys[slot];
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * The clear method removes all mappings from the IntObjectHashMap.
+     */
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * The closeGap method empties a slot and moves back any later entries of the same probe sequence which would otherwise no longer be reachable.
+     *
+     * @param gap specifies the slot to empty.
+     */
+    private void closeGap(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            int home = slotOf(keys[slot]);
+            //Move the entry back only if the gap lies between its home slot and its current slot (cyclically).
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    /**
+     * The resize method rehashes every mapping into new arrays of the specified capacity.
+     *
+     * @param capacity specifies the new capacity (a power of two).
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * The slotOf method returns the home slot of a key, scrambling the key so sequential ids are spread across the table.
+     */
+    private int slotOf(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,798 @@
+package library;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An instance of the Library class imagines there exists two loosely coupled classes, LibraryBookshelf (representative of the bookshelf of the library), and LibraryUserdata (representative of the userdata of the library).
+ * <p>
+ * The Library class is responsible for management of the bookshelf of the library and the userdata of the library.
+ * The Library class should handle only the permanent ids of books and users (see Book.getId and User.getId), *not* their sorted positions or the userId and bookId displayed to the front end of the user (which are derived from those positions for display only).
+ * The Library class is thus responsible for managing operations between these two classes.
+ * The Library class also owns a FileWriter (for writing documents) and a FileReader (for reading documents).
+ * <p>
+ * Books may be issued and returned by many threads at once (i.e. many circulation desks). There is no lock over the whole library; instead each book belongs to one of LOCK_STRIPES locks (by its id), and an issue or return holds only the lock of its book.
+ * Holding the lock of the book makes checking and changing the loan of that book a single step, and keeps the events of each book in the journal in the order they were made.
+ * The loans of a user (the loan index and number of books loaned) are changed atomically under the lock of the user alone (see User.addLoan), so the limit of books per user holds even when different books are issued to the same user at once.
+ * The loan index of each user answers which books a user holds without searching the bookshelf (see getBooksLoanedToUser), and is checked against the loans of the books by checkLoans.
+ * Batches of issues or returns (see issueBooksToUsers and returnBooksFromUsers) take the locks of all of their books at once, always in ascending order so that batches cannot deadlock with each other.
+ * Operations which change the books or users held (importing, adding or clearing) must not be performed at the same time as any other operation.
+ * <p>
+ * Users may wait for a book which is on loan by placing a hold on it (see placeHold). The users waiting for each book are held in order in the HoldQueues of the lock stripe of the book, and are only used under that lock.
+ * When the book is returned it is issued straight away to the first user waiting who can take it, and a hold ready notice is written to them (see returnBookFromUser).
+ * Return notices are written in the background by the LibraryNoticeWriter 'noticeWriter' (see openNoticeWriter), so asking for a notice never waits for the disk.
+ * Once a journal has been opened (see openJournal) every loan and return is also recorded in the LibraryJournal 'journal', so that the loans of the library can be recovered if the application closes unexpectedly.
+ * All objects prefixed with Library are imagined as objects which belong to the library: the bookshelf belongs to the library which specifies all books owned by the library (but the library doesn't own all things books, sometimes they are in the hands of users).
+ * The books and users may be partitioned across shards by surname (see Library(int)). Issues and returns need no shard: they only use the state of a book or user held by its id, and each book is already routed by its id to its lock stripe.
+ * Every import, issue and return is counted and timed in LibraryMetrics, which publishes the counts through JMX.
+ * The Library evaluates what ought to be the case between operations, so makes a judgement whether to throw back an error.
+ * Methods of the Library class are package private as they ought to only receive input or output from methods of the LibraryIO class (for Library input or output).
+ */
+class Library {
+    private static final int LOCK_STRIPES = 256;
+    private final ReentrantLock[] bookLocks;
+    private final HoldQueues[] holds;
+    private LibraryBookshelf bookshelf;
+    private LibraryUserdata userdata;
+    private LibraryJournal journal;
+    private LibraryNoticeWriter noticeWriter;
+    private BiConsumer<String, IOException> onHoldNoticeWritten;
+
+
+    /**
+     * The Library method is a constructor which instantiates an instance of the bookshelf and an instance of userdata (which are persistent objects used throughout the operation of the application), each holding every book or user in a single shard.
+     */
+    Library() {
+        this(1);
+    }
+
+    /**
+     * The Library method is a constructor which instantiates an instance of the bookshelf and an instance of userdata whose books and users are partitioned across a number of shards (see ShardedSortedList), so that searches are shared between the shards and run on many threads at once.
+     * The number of shards changes nothing else: positions, ids and the results of every operation are the same as those of a library of a single shard.
+     *
+     * @param shards specifies the number of shards to partition the books and users across.
+     */
+    Library(int shards) {
+        bookshelf = new LibraryBookshelf(shards);
+        userdata = new LibraryUserdata(shards);
+        journal = null;
+        noticeWriter = null;
+        onHoldNoticeWritten = (file, failure) -> {
+        };
+        bookLocks = new ReentrantLock[LOCK_STRIPES];
+        holds = new HoldQueues[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            bookLocks[i] = new ReentrantLock();
+            holds[i] = new HoldQueues();
+        }
+    }
+
+
+    /**
+     * The clearBookshelf method clears the library's bookshelf of all data.
+     */
+    void clearBookshelf() {
+        bookshelf.clearBooks();
+        for (HoldQueues queues : holds) {
+            queues.clear();
+        }
+    }
+
+    /**
+     * The clearUserdata method clears the library's userdata of all data.
+     */
+    void clearUserdata() {
+        userdata.clearUsers();
+    }
+
+
+    /**
+     * The getBookshelf method returns the bookshelf object currently in use.
+     *
+     * @return returns the library's bookshelf.
+     */
+    LibraryBookshelf getBookshelf() {
+        return bookshelf;
+    }
+
+    /**
+     * The getUserdata method returns the userdata object currently in use.
+     *
+     * @return returns the library's userdata.
+     */
+    LibraryUserdata getUserdata() {
+        return userdata;
+    }
+
+    /**
+     * The importDataFromFile method is responsible for passing the required information to return book and user data for the Library from a file.
+     * This method is primarily responsible for creating a temporary instance of the LibraryFileReader class and passing the location data to it.
+     *
+     * @param filepath specifies the filepath of the file to import.
+     * @return returns status code of the method fileReader.importDataFromFile (which performs the import operation and is more thorough than we can be here since it can identify different permutations of a syntax error as opposed to lumping them into one exception).
+     * The exception to this is a general IOException which only has one permutation (must be indicative of a read error) and must be handled, so does not come with a status code.
+     */
+    byte importDataFromFile(String filepath) throws IOException {
+        byte operationStatusCode;
+        LibraryFileReader fileReader = new LibraryFileReader();
+        long start = System.nanoTime();
+        try {
+            operationStatusCode = fileReader.importDataFromFile(filepath, userdata, bookshelf);
+        } catch (IOException e) {
+            LibraryMetrics.METRICS.recordImportFailure();
+            throw e;
+        }
+        LibraryMetrics.METRICS.recordImport(operationStatusCode, (long) bookshelf.getNumberOfBooks() + userdata.getNumberOfUsers(), System.nanoTime() - start);
+        if (operationStatusCode != 1) {
+            clearBookshelf();
+            clearUserdata();
+        }
+        return operationStatusCode;
+    }
+
+    /**
+     * The reimportDataFromFile method is responsible for bringing the library up to date with a new version of the file it was imported from, applying only the books and users which have been added to or removed from the file (see LibraryFileReader.reimportDataFromFile).
+     * Unchanged books and users keep their ids and loans, and books on loan (or users with books on loan) which are no longer in the file are kept until they are returned.
+     * Unlike importDataFromFile nothing is cleared if the file cannot be imported, the library is left as it was.
+     * <p>
+     * The ids of the books and users no longer agree with those of a fresh import of the file, so a journal opened for the file (see openJournal) could not be replayed on it once the library is restarted from the file.
+     * If a journal is open the library is therefore saved as a snapshot to the specified path as part of the re-import, and the journal is moved beside it (see saveSnapshot), so the library must from then on be restarted from that snapshot.
+     * A re-import while a journal is open is refused if no snapshot path is specified.
+     * If the snapshot cannot be saved the journal is closed, so no loan made under the new ids is journaled where it would be replayed on the old ones.
+     * This operation changes the books and users held, so must not be performed at the same time as any other operation.
+     *
+     * @param filepath     specifies the filepath of the file to re-import.
+     * @param snapshotPath specifies the filepath to save the snapshot to if a journal is open (may be null if no journal is open).
+     * @param changes      an array of 6 elements which receives the number of books added, removed and kept on loan, then the number of users added, removed and kept with loans.
+     * @return returns status code of the method fileReader.reimportDataFromFile, or returns -3 if a journal is open and no snapshot path is specified (in which case the library is unchanged).
+     * @throws IOException if the file cannot be read, or the snapshot or journal cannot be written.
+     */
+    byte reimportDataFromFile(String filepath, String snapshotPath, int[] changes) throws IOException {
+        if (journal != null && snapshotPath == null) {
+            return -3;
+        }
+        byte operationStatusCode;
+        LibraryFileReader fileReader = new LibraryFileReader();
+        long start = System.nanoTime();
+        try {
+            operationStatusCode = fileReader.reimportDataFromFile(filepath, userdata, bookshelf, changes);
+        } catch (IOException e) {
+            LibraryMetrics.METRICS.recordImportFailure();
+            throw e;
+        }
+        LibraryMetrics.METRICS.recordImport(operationStatusCode, (long) bookshelf.getNumberOfBooks() + userdata.getNumberOfUsers(), System.nanoTime() - start);
+        if (operationStatusCode == 1 && journal != null) {
+            try {
+                saveSnapshot(snapshotPath);
+            } catch (IOException e) {
+                LibraryJournal stale = journal;
+                journal = null;
+                try {
+                    stale.close();
+                } catch (IOException closing) {
+                    e.addSuppressed(closing);
+                }
+                throw e;
+            }
+        }
+        return operationStatusCode;
+    }
+
+    /**
+     * The saveSnapshot method is responsible for writing a snapshot of the library to a file, which can later be imported with importDataFromFile far faster than the text file it was imported from.
+     * This method is primarily responsible for creating a temporary instance of the LibraryFileWriter class and passing required parameters.
+     * <p>
+     * If a journal is open it is moved beside the snapshot, to the path of the snapshot followed by LibraryJournal.JOURNAL_SUFFIX (see LibraryJournal.moveTo), and every loan and return from then on is journaled there.
+     * The library should from then on be restarted from the snapshot, whose journal holds the loans made after it was saved.
+     * This operation must not be performed at the same time as any issue or return.
+     *
+     * @param snapshotPath specifies the filepath to write the snapshot to.
+     * @return returns the result of the operation performed by the instance of the FileWriter class.
+     * @throws IOException if an IOException occurs when writing to the file or moving the journal.
+     */
+    boolean saveSnapshot(String snapshotPath) throws IOException {
+        LibraryFileWriter fileWriter = new LibraryFileWriter();
+        boolean written = fileWriter.writeSnapshot(bookshelf, userdata, snapshotPath);
+        if (written && journal != null) {
+            journal.moveTo(snapshotPath + LibraryJournal.JOURNAL_SUFFIX, bookshelf, userdata);
+        }
+        return written;
+    }
+
+    /**
+     * The openJournal method opens the journal of loans and returns for the data which has been imported, creating it if it does not exist.
+     * Every loan and return already in the journal is replayed on the library, the journal is then compacted (see LibraryJournal.compact), and from then on every loan and return is journaled.
+     * This method should be called once, after data has been imported and before any book is issued or returned.
+     *
+     * @param journalPath specifies the filepath of the journal.
+     * @return returns 1 if the journal was opened, returns -2 if the journal does not belong to the imported data (its fingerprint does not match, or an event of it could not be replayed), in which case the journal is not opened.
+     * @throws IOException if the journal cannot be read or written.
+     */
+    byte openJournal(String journalPath) throws IOException {
+        LibraryJournal opened = new LibraryJournal(journalPath, bookshelf, userdata);
+        byte operationStatusCode = opened.replay(this);
+        if (operationStatusCode != 1) {
+            opened.close();
+            return operationStatusCode;
+        }
+        opened.compact(bookshelf, userdata);
+        journal = opened;
+        return 1;
+    }
+
+    /**
+     * The closeJournal method writes any loans and returns waiting to be journaled to the journal and closes it.
+     *
+     * @throws IOException if the journal cannot be written.
+     */
+    void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * The issueBookToUser method is responsible for attempting to loan the book from the bookshelf, and issue that book to the user.
+     * Returns a different operation status based on the possible outcomes.
+     * This operation is safe to perform from many threads at once (see the class description): the lock of the book is held throughout, and a place is taken from the user's limit before the book is loaned so the book is never on loan to a user who is over the limit.
+     *
+     * @param bookId specifies the id of the book.
+     * @param userId specifies the id of the user.
+     * @return returns 1 if the operation was a success, returns -1 if the book was already on loan, returns -2 if the user has already loaned out three books, returns -3 if there is no such book or user.
+     */
+    byte issueBookToUser(int bookId, int userId) {
+        long start = System.nanoTime();
+        byte status = issueBook(bookId, userId);
+        LibraryMetrics.METRICS.recordIssue(status, System.nanoTime() - start);
+        return status;
+    }
+
+    /**
+     * The issueBook method is the body of issueBookToUser, which also records the issue in LibraryMetrics.
+     */
+    private byte issueBook(int bookId, int userId) {
+        Book book = bookshelf.getBookById(bookId);
+        User user = userdata.getUserById(userId);
+        if (book == null || user == null) {
+            return -3;
+        }
+        ReentrantLock lock = lockOf(bookId);
+        lock.lock();
+        try {
+            if (book.isOnLoan()) {
+                return -1;
+            }
+            if (!userdata.issueBookToUser(user, bookId)) {
+                return -2;
+            }
+            if (!bookshelf.loanBook(book, userId)) {
+                throw new IllegalArgumentException();
+            }
+            journalEvent(LibraryJournal.ISSUE, bookId, userId);
+            return 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The returnBookFromUser method is responsible for attempting safely to return a book from a user..
+     * The method makes requisite checks on whether the book is loaned to that user, and if true attempts to return the book from that user.
+     * If that operation is unsuccessful, it shouldn't be, then the system will throw an IllegalArgumentException which are interpreted as fatal.
+     * If users are waiting for the book (see placeHold) it is then issued to the first of them who can take it (see handOver) before the lock of the book is released, so no other user can take the book first, and a hold ready notice is written to them if a notice writer has been opened.
+     *
+     * @param bookId specifies the id of the book.
+     * @param userId specifies the id of the user.
+     * @return returns true if the operation was success, else returns false (including if there is no such book or user), or throws exception.
+     */
+    boolean returnBookFromUser(int bookId, int userId) {
+        long start = System.nanoTime();
+        boolean returned = returnBook(bookId, userId);
+        LibraryMetrics.METRICS.recordReturn(returned, System.nanoTime() - start);
+        return returned;
+    }
+
+    /**
+     * The returnBook method is the body of returnBookFromUser, which also records the return in LibraryMetrics.
+     */
+    private boolean returnBook(int bookId, int userId) {
+        int handedTo;
+        ReentrantLock lock = lockOf(bookId);
+        lock.lock();
+        try {
+            if (bookshelf.isBookLoanedToUser(bookId, userId)) {
+                if (!bookshelf.returnBook(bookId)) {
+                    throw new IllegalArgumentException();
+                }
+                if (userdata.returnBookFromUser(userId, bookId)) {
+                    journalEvent(LibraryJournal.RETURN, bookId, userId);
+                    handedTo = handOver(bookId);
+                } else throw new IllegalArgumentException();
+            } else {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (handedTo != -1) {
+            writeHoldReadyNotice(bookId, handedTo);
+        }
+        return true;
+    }
+
+    /**
+     * The issueBooksToUsers method issues a batch of books to users (i.e. a loan to a whole class) in a single step, where item i of the batch issues the book bookIds[i] to the user userIds[i].
+     * The locks of every book of the batch are taken once and held while the whole batch is validated and applied, and the loans of the batch are journaled together, so a batch is far cheaper than issuing each book with issueBookToUser.
+     * Items are applied in order, so each item sees the items before it (i.e. if the same book is issued twice, the second item finds the book on loan).
+     * If 'allOrNothing' is true and any item fails, every item which succeeded is undone so the batch has no effect.
+     *
+     * @param bookIds      specifies the id of the book of each item.
+     * @param userIds      specifies the id of the user of each item.
+     * @param allOrNothing specifies whether the batch should have no effect if any item fails.
+     * @return returns the status of each item: 1 if the book was issued, -1 if the book was already on loan, -2 if the user has already loaned out three books, -3 if there is no such book or user, 0 if the item did not fail but was undone because another item failed.
+     * @throws IllegalArgumentException if the arrays are not the same length.
+     */
+    byte[] issueBooksToUsers(int[] bookIds, int[] userIds, boolean allOrNothing) {
+        if (bookIds.length != userIds.length) {
+            throw new IllegalArgumentException();
+        }
+        byte[] statuses = new byte[bookIds.length];
+        boolean failed = false;
+        Book[] books = new Book[bookIds.length];
+        User[] users = new User[userIds.length];
+        ReentrantLock[] locks = lockAll(bookIds);
+        try {
+            for (int i = 0; i < bookIds.length; i++) {
+                books[i] = bookshelf.getBookById(bookIds[i]);
+                users[i] = userdata.getUserById(userIds[i]);
+                if (books[i] == null || users[i] == null) {
+                    statuses[i] = -3;
+                } else if (books[i].isOnLoan()) {
+                    statuses[i] = -1;
+                } else if (!userdata.issueBookToUser(users[i], bookIds[i])) {
+                    statuses[i] = -2;
+                } else {
+                    bookshelf.loanBook(books[i], userIds[i]);
+                    statuses[i] = 1;
+                }
+                failed |= statuses[i] != 1;
+            }
+            if (failed && allOrNothing) {
+                //Undo the items which succeeded, giving back their places in the users' limits.
+                for (int i = bookIds.length - 1; i >= 0; i--) {
+                    if (statuses[i] == 1) {
+                        bookshelf.returnBook(books[i]);
+                        userdata.returnBookFromUser(users[i], bookIds[i]);
+                        statuses[i] = 0;
+                    }
+                }
+            } else {
+                journalEvents(LibraryJournal.ISSUE, bookIds, userIds, statuses);
+            }
+            LibraryMetrics.METRICS.recordIssues(statuses);
+            return statuses;
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    /**
+     * The returnBooksFromUsers method returns a batch of books from users (i.e. the returns at the end of the day) in a single step, where item i of the batch returns the book bookIds[i] from the user userIds[i].
+     * The locks of every book of the batch are taken once and held while the whole batch is validated and applied, and the returns of the batch are journaled together, so a batch is far cheaper than returning each book with returnBookFromUser.
+     * Items are applied in order, so each item sees the items before it (i.e. if the same book is returned twice, the second item finds the book is not on loan).
+     * The books are returned as the batch is validated but the users' numbers of books loaned are only changed once the whole batch has been validated, so if 'allOrNothing' is true and any item fails the books are simply put back on loan and the batch has no effect.
+     * Once the returns of the batch have been journaled, each book returned which users are waiting for is handed over as by returnBookFromUser.
+     *
+     * @param bookIds      specifies the id of the book of each item.
+     * @param userIds      specifies the id of the user of each item.
+     * @param allOrNothing specifies whether the batch should have no effect if any item fails.
+     * @return returns the status of each item: 1 if the book was returned, -1 if the book is not on loan to that user, -3 if there is no such book or user, 0 if the item did not fail but was undone because another item failed.
+     * @throws IllegalArgumentException if the arrays are not the same length.
+     */
+    byte[] returnBooksFromUsers(int[] bookIds, int[] userIds, boolean allOrNothing) {
+        if (bookIds.length != userIds.length) {
+            throw new IllegalArgumentException();
+        }
+        byte[] statuses = new byte[bookIds.length];
+        int[] handedTo = new int[bookIds.length];
+        Arrays.fill(handedTo, -1);
+        boolean failed = false;
+        Book[] books = new Book[bookIds.length];
+        User[] users = new User[userIds.length];
+        ReentrantLock[] locks = lockAll(bookIds);
+        try {
+            for (int i = 0; i < bookIds.length; i++) {
+                books[i] = bookshelf.getBookById(bookIds[i]);
+                users[i] = userdata.getUserById(userIds[i]);
+                if (books[i] == null || users[i] == null) {
+                    statuses[i] = -3;
+                } else if (books[i].getOnLoanTo() != userIds[i]) {
+                    statuses[i] = -1;
+                } else {
+                    bookshelf.returnBook(books[i]);
+                    statuses[i] = 1;
+                }
+                failed |= statuses[i] != 1;
+            }
+            for (int i = 0; i < bookIds.length; i++) {
+                if (statuses[i] == 1) {
+                    if (failed && allOrNothing) {
+                        bookshelf.loanBook(books[i], userIds[i]);
+                        statuses[i] = 0;
+                    } else if (!userdata.returnBookFromUser(users[i], bookIds[i])) {
+                        throw new IllegalArgumentException();
+                    }
+                }
+            }
+            journalEvents(LibraryJournal.RETURN, bookIds, userIds, statuses);
+            for (int i = 0; i < bookIds.length; i++) {
+                if (statuses[i] == 1) {
+                    handedTo[i] = handOver(bookIds[i]);
+                }
+            }
+            LibraryMetrics.METRICS.recordReturns(statuses);
+        } finally {
+            unlockAll(locks);
+        }
+        for (int i = 0; i < bookIds.length; i++) {
+            if (handedTo[i] != -1) {
+                writeHoldReadyNotice(bookIds[i], handedTo[i]);
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * The placeHold method adds a user to the end of the queue of users waiting for a book which is on loan, so that the book is issued to them when it is returned and they reach the front of the queue (see returnBookFromUser).
+     * Holds are kept in memory only: they are not journaled or saved in a snapshot of the library.
+     *
+     * @param bookId specifies the id of the book.
+     * @param userId specifies the id of the user.
+     * @return returns the position of the user in the queue (1 if they will be given the book next), returns -1 if the book is not on loan (so can be issued to the user instead), returns -2 if the book is on loan to the user or the user is already waiting for it, returns -3 if there is no such book or user.
+     */
+    int placeHold(int bookId, int userId) {
+        Book book = bookshelf.getBookById(bookId);
+        if (book == null || userdata.getUserById(userId) == null) {
+            return -3;
+        }
+        ReentrantLock lock = lockOf(bookId);
+        lock.lock();
+        try {
+            if (!book.isOnLoan()) {
+                return -1;
+            }
+            if (book.getOnLoanTo() == userId) {
+                return -2;
+            }
+            int position = holdsOf(bookId).add(bookId, userId);
+            if (position == -1) {
+                return -2;
+            }
+            LibraryMetrics.METRICS.recordHoldPlaced();
+            return position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The cancelHold method removes a user from the queue of users waiting for a book.
+     *
+     * @param bookId specifies the id of the book.
+     * @param userId specifies the id of the user.
+     * @return returns true if the user was waiting for the book, returns false if they were not.
+     */
+    boolean cancelHold(int bookId, int userId) {
+        ReentrantLock lock = lockOf(bookId);
+        lock.lock();
+        try {
+            return holdsOf(bookId).remove(bookId, userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The getHolds method returns the users waiting for a book, in the order the book will be offered to them.
+     *
+     * @param bookId specifies the id of the book.
+     * @return returns the ids of the users waiting, which is empty if nobody is waiting.
+     */
+    int[] getHolds(int bookId) {
+        ReentrantLock lock = lockOf(bookId);
+        lock.lock();
+        try {
+            return holdsOf(bookId).toArray(bookId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The getBooksLoanedToUser method returns the books a user holds, found from the loan index of the user (so in time proportional to the number of books the user holds, not the number of books in the library).
+     *
+     * @param userId specifies the id of the user.
+     * @return returns the books on loan to the user, or null if there is no such user.
+     */
+    ArrayList<Book> getBooksLoanedToUser(int userId) {
+        User user = userdata.getUserById(userId);
+        if (user == null) {
+            return null;
+        }
+        int[] loans = user.getLoans();
+        ArrayList<Book> books = new ArrayList<>(loans.length);
+        for (int bookId : loans) {
+            books.add(bookshelf.getBookById(bookId));
+        }
+        return books;
+    }
+
+    /**
+     * The checkLoans method checks that the loans recorded by the users agree with the loans recorded by the books: every book on loan is in the loan index of the user it is on loan to, and every book in the loan index of a user is on loan to that user.
+     * Since booksLoaned is the length of the loan index this also checks the number of books loaned by every user. This operation should not be performed at the same time as any issue or return.
+     *
+     * @return returns true if the loans agree, returns false if they do not.
+     */
+    boolean checkLoans() {
+        //Both sides are swept from the loan columns of the bookshelf and userdata, only the users of books on loan are visited.
+        IdColumn loanColumn = bookshelf.getLoanColumn();
+        int limit = bookshelf.getNextBookId();
+        long booksOnLoan = 0;
+        for (int bookId = loanColumn.nextSet(0, limit); bookId != -1; bookId = loanColumn.nextSet(bookId + 1, limit)) {
+            booksOnLoan++;
+            User user = userdata.getUserById(loanColumn.get(bookId));
+            if (user == null || !user.holdsLoan(bookId)) {
+                return false;
+            }
+        }
+        long loansHeld = userdata.getTotalBooksLoaned();
+        //Each book on loan is held by its user, so if the counts agree no user holds a book which is not on loan to them.
+        return booksOnLoan == loansHeld;
+    }
+
+    /**
+     * The replayEvent method reapplies a loan or return read from the journal (see LibraryJournal.replay), or returns every book on loan for the CLEAR event which begins a compacted journal (see clearLoans).
+     * Unlike issueBookToUser the limit of books per user is not checked, as events of different books are journaled by different threads and may not be in the order they were made; events of the same book are always in order.
+     *
+     * @param kind   specifies the kind of event (LibraryJournal.ISSUE or LibraryJournal.RETURN).
+     * @param bookId specifies the id of the book.
+     * @param userId specifies the id of the user.
+     * @return returns true if the event was replayed, returns false if it does not apply to the library (i.e. the book or user does not exist, or the book is not in the state the event expects).
+     */
+    boolean replayEvent(byte kind, int bookId, int userId) {
+        if (kind == LibraryJournal.CLEAR) {
+            clearLoans();
+            return true;
+        }
+        if (bookshelf.getBookById(bookId) == null || userdata.getUserById(userId) == null) {
+            return false;
+        }
+        ReentrantLock lock = lockOf(bookId);
+        lock.lock();
+        try {
+            if (kind == LibraryJournal.ISSUE && bookshelf.loanBook(bookId, userId)) {
+                userdata.restoreBookToUser(userId, bookId);
+                return true;
+            }
+            if (kind == LibraryJournal.RETURN && bookshelf.isBookLoanedToUser(bookId, userId)) {
+                bookshelf.returnBook(bookId);
+                return userdata.returnBookFromUser(userId, bookId);
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The clearLoans method returns every book on loan, found by sweeping the loan column of the bookshelf, so that the loans of a compacted journal can be replayed on data which already holds loans (i.e. a snapshot).
+     * Like replayEvent this must not be performed at the same time as any other operation.
+     */
+    private void clearLoans() {
+        IdColumn loanColumn = bookshelf.getLoanColumn();
+        int limit = bookshelf.getNextBookId();
+        for (int bookId = loanColumn.nextSet(0, limit); bookId != -1; bookId = loanColumn.nextSet(bookId + 1, limit)) {
+            int userId = loanColumn.get(bookId);
+            bookshelf.returnBook(bookId);
+            userdata.returnBookFromUser(userId, bookId);
+        }
+    }
+
+    /**
+     * The handOver method issues a book which has just been returned to the first user waiting for it who can take it, and must be called with the lock of the book held.
+     * Each user is taken from the front of the queue of the book in O(1) (see HoldQueues.poll), so no book or user is searched for. A user who cannot take the book (they have reached their limit of books, or are no longer a user of the library) is passed over and leaves the queue.
+     *
+     * @param bookId specifies the id of the book, which must not be on loan.
+     * @return returns the id of the user the book was issued to, or -1 if nobody waiting could take it.
+     */
+    private int handOver(int bookId) {
+        HoldQueues queues = holdsOf(bookId);
+        int skipped = 0;
+        int userId;
+        while ((userId = queues.poll(bookId)) != -1) {
+            User user = userdata.getUserById(userId);
+            if (user != null && userdata.issueBookToUser(user, bookId)) {
+                bookshelf.loanBook(bookId, userId);
+                journalEvent(LibraryJournal.ISSUE, bookId, userId);
+                break;
+            }
+            skipped++;
+        }
+        if (userId != -1 || skipped > 0) {
+            LibraryMetrics.METRICS.recordHoldHandover(userId != -1, skipped);
+        }
+        return userId;
+    }
+
+    /**
+     * The holdsOf method returns the queues of users waiting for the books of the lock stripe of a book, which must only be used with the lock of that stripe held (see lockOf).
+     */
+    private HoldQueues holdsOf(int bookId) {
+        return holds[bookId & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * The lockOf method returns the lock which guards the loan of a book.
+     */
+    private ReentrantLock lockOf(int bookId) {
+        return bookLocks[bookId & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * The lockAll method takes the locks which guard the loans of every book of a batch, each lock once and in ascending order.
+     *
+     * @param bookIds specifies the ids of the books of the batch.
+     * @return returns the locks taken, which must be released with unlockAll.
+     */
+    private ReentrantLock[] lockAll(int[] bookIds) {
+        long[] needed = new long[LOCK_STRIPES / 64];
+        for (int bookId : bookIds) {
+            int stripe = bookId & (LOCK_STRIPES - 1);
+            needed[stripe >>> 6] |= 1L << stripe;
+        }
+        int count = 0;
+        for (long word : needed) {
+            count += Long.bitCount(word);
+        }
+        ReentrantLock[] locks = new ReentrantLock[count];
+        count = 0;
+        for (int word = 0; word < needed.length; word++) {
+            for (long bits = needed[word]; bits != 0; bits &= bits - 1) {
+                ReentrantLock lock = bookLocks[word << 6 | Long.numberOfTrailingZeros(bits)];
+                lock.lock();
+                locks[count++] = lock;
+            }
+        }
+        return locks;
+    }
+
+    private static void unlockAll(ReentrantLock[] locks) {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+
+    /**
+     * The journalEvent method records a loan or return in the journal, if a journal has been opened.
+     * A failure to write the journal is interpreted as fatal, as loans would otherwise be silently lost.
+     *
+     * @param kind   specifies the kind of event (LibraryJournal.ISSUE or LibraryJournal.RETURN).
+     * @param bookId specifies the id of the book.
+     * @param userId specifies the id of the user.
+     */
+    private void journalEvent(byte kind, int bookId, int userId) {
+        if (journal != null) {
+            try {
+                journal.append(kind, bookId, userId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+
+    /**
+     * The journalEvents method records the items of a batch which were applied in the journal, if a journal has been opened.
+     *
+     * @param kind     specifies the kind of every event (LibraryJournal.ISSUE or LibraryJournal.RETURN).
+     * @param bookIds  specifies the id of the book of each item.
+     * @param userIds  specifies the id of the user of each item.
+     * @param statuses specifies the status of each item.
+     */
+    private void journalEvents(byte kind, int[] bookIds, int[] userIds, byte[] statuses) {
+        if (journal != null) {
+            try {
+                journal.appendAll(kind, bookIds, userIds, statuses);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * The openNoticeWriter method starts writing return notices to the specified path, replacing (and closing) any notice writer already open.
+     *
+     * @param path  specifies the directory to write a file of notices per user to, or the spool file to write every notice to.
+     * @param spool specifies whether notices are written to a single spool file rather than a file per user.
+     */
+    void openNoticeWriter(String path, boolean spool) {
+        closeNoticeWriter();
+        noticeWriter = new LibraryNoticeWriter(path, spool);
+    }
+
+    /**
+     * The getNoticePath method returns the directory or spool file return notices are written to.
+     *
+     * @return returns the path of the notices, or null if no notice writer has been opened.
+     */
+    String getNoticePath() {
+        return noticeWriter == null ? null : noticeWriter.getPath();
+    }
+
+    /**
+     * The closeNoticeWriter method waits for every return notice already asked for to be written and closes the notice writer.
+     */
+    void closeNoticeWriter() {
+        if (noticeWriter != null) {
+            noticeWriter.close();
+            noticeWriter = null;
+        }
+    }
+
+    /**
+     * The setHoldNoticeCallback method sets the callback to run (on the writer thread) once each hold ready notice has been written, with the file written to and null, or with the file and the IOException which prevented it being written.
+     *
+     * @param onWritten specifies the callback.
+     */
+    void setHoldNoticeCallback(BiConsumer<String, IOException> onWritten) {
+        onHoldNoticeWritten = onWritten;
+    }
+
+    /**
+     * The writeHoldReadyNotice method asks the notice writer, if one has been opened, to write a hold ready notice to a user a book waited for has been issued to (see handOver).
+     * If the notice writer is busy the notice is not written, the book is still issued to the user.
+     *
+     * @param bookId specifies the id of the book.
+     * @param userId specifies the id of the user.
+     */
+    private void writeHoldReadyNotice(int bookId, int userId) {
+        LibraryNoticeWriter writer = noticeWriter;
+        if (writer != null) {
+            writer.submit(LibraryFileWriter.HOLD_READY_NOTICE, userdata.getUserById(userId), bookshelf.getBookById(bookId), onHoldNoticeWritten);
+        }
+    }
+
+    /**
+     * The writeReturnNotice method asks the notice writer to write a return notice to the user a book is on loan to.
+     * Since interactions between objects of the two classes LibraryUserdata and LibraryBookshelf are managed by instances of this class, this method is also responsible for identifying who to write the return notice to given a specified bookId.
+     * The user is found from a single read of who the book is on loan to, so a book returned at the same time (by another thread) is either reported as not on loan or given a notice addressed to the user it was on loan to, never a notice without a user.
+     * The notice is written in the background, this method does not wait for it (see LibraryNoticeWriter).
+     *
+     * @param bookId    specifies the id of the book.
+     * @param onWritten specifies the callback to run (on the writer thread) once the notice has been written, with the file written to and null, or with the file and the IOException which prevented it being written.
+     * @return returns 1 if the notice will be written, returns 0 if the notice writer is busy (its queue is full) and the notice should be asked for again later, returns -1 if the book is not on loan, returns -3 if there is no such book.
+     * @throws IllegalStateException if no notice writer has been opened.
+     */
+    byte writeReturnNotice(int bookId, BiConsumer<String, IOException> onWritten) {
+        LibraryNoticeWriter writer = noticeWriter;
+        if (writer == null) {
+            throw new IllegalStateException();
+        }
+        Book book = bookshelf.getBookById(bookId);
+        if (book == null) {
+            return -3;
+        }
+        int onLoanTo = book.getOnLoanTo();
+        User userOnLoanTo = onLoanTo == -1 ? null : userdata.getUserById(onLoanTo);
+        if (userOnLoanTo == null) {
+            return -1;
+        }
+        return (byte) (writer.submit(LibraryFileWriter.RETURN_NOTICE, userOnLoanTo, book, onWritten) ? 1 : 0);
+    }
+}
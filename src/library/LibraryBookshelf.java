@@ -0,0 +1,470 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The LibraryBookshelf class is responsible for management of all the books at the library.
+ * Those books are inserted in order into a SortedArrayList which keeps them sorted in O(log n) per insertion (see SortedArrayList class for further details).
+ * The index of each book in that Sorted Array List 'books' +1 is equal to the bookId interpreted by the user interface; this position is only used for display as it changes whenever a book is added.
+ * Each book is also given a permanent id (see Book.getId) when it is added, and books are held in the IntObjectHashMap 'booksById' so a book can be found by its id in O(1).
+ * The books may be partitioned across a number of shards by the surname of their author (see ShardedSortedList), so that a search is shared between the shards and run on many threads at once; positions are those of the single sorted list of every book whatever the number of shards.
+ * The author surname, author forename and title of every book are held in the TrigramIndex 'searchIndex' so that searches only need to inspect the books which could match (see searchBooks).
+ * The ids of the books on loan are held in the IdBitmap 'booksOnLoan', kept up to date by loanBook and returnBook, so the number of books on loan or available is found without inspecting any book, and searches can be narrowed to books which are available or on loan with bitwise operations (see searchBooks).
+ * If there is more than one shard the shard holding each book is also held by book id in the IdColumn 'shardColumn', so the candidates of a search are split between the shards without visiting each book.
+ * The loan state of every book (the id of the user it is on loan to, or -1) is held densely by book id in the IdColumn 'loanColumn' rather than in each Book (see Book.getOnLoanTo), so sweeps over the loans of every book (see Library.checkLoans) read contiguous memory.
+ * Operations which change the state of a book (loanBook, returnBook .etc.) must only make reference to the permanent id of the book and of the user (and never the bookId expressed in LibraryIO).
+ * Methods of the LibraryBookshelf class have been made package-private as they are only intended to be used by instances of the Library class (the Library holds the LibraryBookshelf [the bookshelf of the library).
+ */
+class LibraryBookshelf {
+    static final byte ANY_BOOKS = 0;
+    static final byte AVAILABLE_BOOKS = 1;
+    static final byte BOOKS_ON_LOAN = 2;
+    private ShardedSortedList<Book> books;
+    private IntObjectHashMap<Book> booksById;
+    private TrigramIndex searchIndex;
+    private IdBitmap booksOnLoan;
+    private final IdColumn loanColumn;
+    private final IdColumn shardColumn;
+    private int nextBookId;
+
+    /**
+     * LibraryBookshelf is the constructor method for instances of the LibraryBookshelf class, which holds every book in a single shard.
+     */
+    LibraryBookshelf() {
+        this(1);
+    }
+
+    /**
+     * LibraryBookshelf is the constructor method for instances of the LibraryBookshelf class.
+     * The LibraryBookshelf class contains a ShardedSortedList of Book objects, partitioned across shards by the surname of their author, and a map of those Book objects by their id.
+     *
+     * @param shards specifies the number of shards to partition the books across.
+     */
+    LibraryBookshelf(int shards) {
+        books = new ShardedSortedList<>(shards, book -> ShardedSortedList.hashIgnoreCase(book.getAuthorSurname()));
+        booksById = new IntObjectHashMap<>();
+        searchIndex = new TrigramIndex();
+        booksOnLoan = new IdBitmap();
+        loanColumn = new IdColumn(-1);
+        shardColumn = new IdColumn(0);
+        nextBookId = 0;
+    }
+
+
+    /**
+     * The addBook method adds a book to the SortedArrayList 'books'.
+     *
+     * @param book specifies the book object to be added to 'books'.
+     */
+    void addBook(Book book) {
+        registerBook(book);
+        books.add(book);
+    }
+
+    /**
+     * The addSortedBooks method adds a run of books which has already been sorted to the SortedArrayList 'books' in a single step.
+     *
+     * @param sortedBooks specifies the books to be added to 'books' in ascending order.
+     */
+    void addSortedBooks(Book[] sortedBooks) {
+        for (Book book : sortedBooks) {
+            registerBook(book);
+        }
+        books.addAllSorted(sortedBooks, sortedBooks.length);
+    }
+
+    /**
+     * The restoreSortedBooks method restores the books of an empty bookshelf from a snapshot of the library (see LibraryFileReader.importSnapshot).
+     * Unlike addSortedBooks the books keep the ids they were given when they were first added, and they are not added to 'searchIndex', which is restored from the snapshot as a whole (see getSearchIndex).
+     *
+     * @param sortedBooks specifies the books of the snapshot in ascending order, each with its id already set.
+     * @param onLoanTo    specifies the id of the user each book is on loan to (item i for the book sortedBooks[i]), or -1 if it is not on loan.
+     * @param nextBookId  specifies the id to give the next book added to the bookshelf.
+     */
+    void restoreSortedBooks(Book[] sortedBooks, int[] onLoanTo, int nextBookId) {
+        for (int i = 0; i < sortedBooks.length; i++) {
+            Book book = sortedBooks[i];
+            booksById.put(book.getId(), book);
+            book.setLoanColumn(loanColumn);
+            recordShard(book);
+            if (onLoanTo[i] != -1) {
+                book.setOnLoanTo(onLoanTo[i]);
+                booksOnLoan.add(book.getId());
+            }
+        }
+        books.addAllSorted(sortedBooks, sortedBooks.length);
+        this.nextBookId = nextBookId;
+    }
+
+    /**
+     * The getSearchIndex method returns the TrigramIndex 'searchIndex' so that it can be written to or read from a snapshot of the library.
+     *
+     * @return returns the search index of the bookshelf.
+     */
+    TrigramIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * The getNextBookId method returns the id which will be given to the next book added to the bookshelf.
+     *
+     * @return returns the next book id.
+     */
+    int getNextBookId() {
+        return nextBookId;
+    }
+
+    /**
+     * The registerBook method gives a book the next permanent id and adds it to 'booksById' and 'searchIndex'.
+     *
+     * @param book specifies the book object being added to the bookshelf.
+     */
+    private void registerBook(Book book) {
+        book.setId(nextBookId++);
+        book.setLoanColumn(loanColumn);
+        booksById.put(book.getId(), book);
+        recordShard(book);
+        searchIndex.add(book.getId(), book.getAuthorSurname());
+        searchIndex.add(book.getId(), book.getAuthorForename());
+        searchIndex.add(book.getId(), book.getTitle());
+    }
+
+
+    /**
+     * The recordShard method records the shard of 'books' which holds a book in 'shardColumn' (nothing is recorded if there is a single shard).
+     *
+     * @param book specifies the book, with its id already set.
+     */
+    private void recordShard(Book book) {
+        if (books.getShardCount() > 1) {
+            shardColumn.set(book.getId(), books.shardOf(book));
+        }
+    }
+
+    /**
+     * The removeBooks method removes a set of books from the bookshelf (i.e. the books no longer held by the file of a re-import, see LibraryFileReader.reimportDataFromFile).
+     * The books are removed from 'books' in a single pass (see SortedArrayList.removeIf), as books by the same author compare as equal and finding each of them by indexOf could inspect every book by that author, and they are removed from 'searchIndex' together (see TrigramIndex.removeAll).
+     * The ids of the books removed are never given to another book.
+     *
+     * @param removedBooks specifies the books to remove, none of which may be on loan.
+     */
+    void removeBooks(ArrayList<Book> removedBooks) {
+        Book[] byId = removedBooks.toArray(new Book[0]);
+        Arrays.sort(byId, (a, b) -> Integer.compare(a.getId(), b.getId()));
+        int[] ids = new int[byId.length];
+        String[][] texts = new String[byId.length][];
+        for (int i = 0; i < byId.length; i++) {
+            Book book = byId[i];
+            booksById.remove(book.getId());
+            ids[i] = book.getId();
+            texts[i] = new String[]{book.getAuthorSurname(), book.getAuthorForename(), book.getTitle()};
+        }
+        IdBitmap removedIds = IdBitmap.of(ids);
+        books.removeIf(book -> removedIds.contains(book.getId()));
+        searchIndex.removeAll(ids, texts);
+    }
+
+    /**
+     * The clearBooks method clears the SortedArrayList of book objects.
+     */
+    void clearBooks() {
+        books.clear();
+        booksById.clear();
+        searchIndex.clear();
+        booksOnLoan.clear();
+        loanColumn.clear();
+        shardColumn.clear();
+        nextBookId = 0;
+    }
+
+    /**
+     * The getBook method returns the book object from the SortedArrayList 'books' given the specified index.
+     *
+     * @param bookIndex specifies the index of the book to return from 'books'.
+     * @return returns the instance of the Book class within the SortedArrayList.
+     */
+    Book getBook(int bookIndex) {
+        return books.get(bookIndex);
+    }
+
+    /**
+     * The getBookById method returns the book object with the specified permanent id.
+     *
+     * @param bookId specifies the id of the book to return.
+     * @return returns the instance of the Book class with that id, or null if there is no such book.
+     */
+    Book getBookById(int bookId) {
+        return booksById.get(bookId);
+    }
+
+    /**
+     * The getBookIndex method returns the index of a book in the SortedArrayList 'books' (its display position).
+     *
+     * @param bookId specifies the id of the book.
+     * @return returns the index of the book, or -1 if there is no such book.
+     */
+    int getBookIndex(int bookId) {
+        Book book = booksById.get(bookId);
+        return book == null ? -1 : books.indexOf(book);
+    }
+
+
+    /**
+     * The getBooks method returns all books as the ShardedSortedList 'books'.
+     *
+     * @return returns the ShardedSortedList 'books'.
+     */
+    ShardedSortedList<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * The loanBook method takes the relevant precautions to loan a book to a user.
+     * <p>
+     * The method inspects whether the book is already on loan and if this is the case the method returns the operation cannot be completed.
+     * If the book is not already on loan then the method continues with the operation.
+     *
+     * @param bookId specifies the id of the book to loan.
+     * @param userId specified the id of the user to be assigned as loaning the book.
+     * @return returns true if the operation was successful, returns false if the operation was not successful (including if there is no such book).
+     */
+    boolean loanBook(int bookId, int userId) {
+        Book book = booksById.get(bookId);
+        return book != null && loanBook(book, userId);
+    }
+
+    /**
+     * The loanBook method loans a book which has already been found (i.e. by a batch of operations) to a user, see loanBook(int, int).
+     *
+     * @param book   specifies the book to loan.
+     * @param userId specified the id of the user to be assigned as loaning the book.
+     * @return returns true if the operation was successful, returns false if the operation was not successful.
+     */
+    boolean loanBook(Book book, int userId) {
+        if (book.isOnLoan()) {
+            return false;
+        } else {
+            book.setOnLoanTo(userId);
+            booksOnLoan.add(book.getId());
+            return true;
+        }
+    }
+
+    /**
+     * The returnBook method returns a book which was loaned from the library's bookshelf.
+     *
+     * @param bookId specifies the id of the book to return.
+     * @return returns true if the book was on loan and the operation was successful, returns false if the book was not on loan (or there is no such book) so the operation could not be completed.
+     */
+    boolean returnBook(int bookId) {
+        Book book = booksById.get(bookId);
+        return book != null && returnBook(book);
+    }
+
+    /**
+     * The returnBook method returns a book which has already been found (i.e. by a batch of operations), see returnBook(int).
+     *
+     * @param book specifies the book to return.
+     * @return returns true if the operation was successful, returns false if the book was not on loan.
+     */
+    boolean returnBook(Book book) {
+        if (book.isOnLoan()) {
+            book.setOnLoanTo(-1);
+            booksOnLoan.remove(book.getId());
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * The getBooksOnLoan method returns the ids of the books on loan, so that they can be combined with other sets of books (see IdBitmap.and and IdBitmap.andNot). The set must not be changed by the caller.
+     *
+     * @return returns the IdBitmap 'booksOnLoan'.
+     */
+    IdBitmap getBooksOnLoan() {
+        return booksOnLoan;
+    }
+
+    /**
+     * The getLoanColumn method returns the IdColumn 'loanColumn', which holds the id of the user each book is on loan to (or -1) indexed by the id of the book, so that the loans of every book can be swept in order (see IdColumn.nextSet). The column must not be changed by the caller.
+     *
+     * @return returns the loan column of the bookshelf.
+     */
+    IdColumn getLoanColumn() {
+        return loanColumn;
+    }
+
+    /**
+     * The getNumberOfBooksOnLoan method returns the number of books on loan, counted from 'booksOnLoan' without inspecting any book.
+     *
+     * @return returns the number of books on loan.
+     */
+    int getNumberOfBooksOnLoan() {
+        return booksOnLoan.cardinality();
+    }
+
+    /**
+     * The searchBooks method searches every book, see searchBooks(String, byte).
+     *
+     * @param inputDetails specifies the input details to search by.
+     * @return returns an ArrayList of the search hits.
+     */
+    ArrayList<SearchHit<Book>> searchBooks(String inputDetails) {
+        return searchBooks(inputDetails, ANY_BOOKS);
+    }
+
+    /**
+     * The searchBooks method takes an input string and searches for the existence of that input string in the author surname, author forename or title of each book using the indexOf method.
+     * The method constructs an ArrayList of search hits in the order of 'books' and returns that ArrayList. Each book is returned once, even if it matches on more than one field.
+     * Each search hit carries the book, its id, its index in 'books', and the field and offset of the match (see SearchHit), so the caller never needs to search again to find the index of a result.
+     * <p>
+     * If the input string is at least three characters long then only the candidate books returned by 'searchIndex' (those containing every trigram of the input string) are verified, otherwise every book is inspected.
+     * Candidates are put back into the order of 'books', and their indexes found, by SearchHit.sortAndIndex.
+     * If the books are partitioned across shards each shard is searched on a thread of its own (see ShardedSortedList.fanOut), and the search hits of the shards are merged into the order of 'books' (see SearchHit.merge).
+     * The search can be limited to books which are available or on loan: the candidates (which are sorted) are then filtered by probing 'booksOnLoan' (see IdBitmap.filter) before any of them are verified.
+     *
+     * @param inputDetails specifies the input details to search by.
+     * @param loanFilter   specifies which books to search, ANY_BOOKS, AVAILABLE_BOOKS or BOOKS_ON_LOAN.
+     * @return returns an ArrayList of the search hits.
+     */
+    ArrayList<SearchHit<Book>> searchBooks(String inputDetails, byte loanFilter) {
+        long start = System.nanoTime();
+        ArrayList<SearchHit<Book>> results = findBooks(inputDetails, loanFilter);
+        LibraryMetrics.METRICS.recordSearchBooks(inputDetails.length(), results.size(), System.nanoTime() - start);
+        return results;
+    }
+
+    /**
+     * The findBooks method is the body of searchBooks, which also records the search in LibraryMetrics.
+     */
+    private ArrayList<SearchHit<Book>> findBooks(String inputDetails, byte loanFilter) {
+        if (inputDetails.length() < TrigramIndex.GRAM_LENGTH) {
+            return SearchHit.merge(books.fanOut(shard -> scanBooks(books.shard(shard), inputDetails, loanFilter)), books);
+        }
+        int[] candidates = searchIndex.candidates(inputDetails);
+        if (loanFilter == AVAILABLE_BOOKS) {
+            candidates = booksOnLoan.filter(candidates, false);
+        } else if (loanFilter == BOOKS_ON_LOAN) {
+            candidates = booksOnLoan.filter(candidates, true);
+        }
+        //Split the candidates by the shard holding each of them (read from 'shardColumn' without visiting the books), so that each shard verifies and orders only its own books.
+        int[][] shardCandidates = new int[books.getShardCount()][];
+        if (shardCandidates.length == 1) {
+            shardCandidates[0] = candidates;
+        } else {
+            int[] owners = new int[candidates.length];
+            int[] counts = new int[shardCandidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                owners[i] = shardColumn.get(candidates[i]);
+                counts[owners[i]]++;
+            }
+            for (int s = 0; s < shardCandidates.length; s++) {
+                shardCandidates[s] = new int[counts[s]];
+                counts[s] = 0;
+            }
+            for (int i = 0; i < candidates.length; i++) {
+                shardCandidates[owners[i]][counts[owners[i]]++] = candidates[i];
+            }
+        }
+        return SearchHit.merge(books.fanOut(shard -> verifyBooks(books.shard(shard), shardCandidates[shard], inputDetails)), books);
+    }
+
+    /**
+     * The scanBooks method inspects every book of a shard of 'books' (for an input string too short for 'searchIndex').
+     *
+     * @param shard        specifies the shard of 'books' to search.
+     * @param inputDetails specifies the input details to search by.
+     * @param loanFilter   specifies which books to search, ANY_BOOKS, AVAILABLE_BOOKS or BOOKS_ON_LOAN.
+     * @return returns the search hits of the shard in its order, indexed by their position within the shard.
+     */
+    private ArrayList<SearchHit<Book>> scanBooks(SortedArrayList<Book> shard, String inputDetails, byte loanFilter) {
+        ArrayList<SearchHit<Book>> results = new ArrayList<>();
+        int index = 0;
+        for (Book book : shard) {
+            if (loanFilter != ANY_BOOKS && booksOnLoan.contains(book.getId()) != (loanFilter == BOOKS_ON_LOAN)) {
+                index++;
+                continue;
+            }
+            SearchHit<Book> hit = matchSearch(book, index, inputDetails);
+            if (hit != null) {
+                results.add(hit);
+            }
+            index++;
+        }
+        return results;
+    }
+
+    /**
+     * The verifyBooks method verifies the candidate books of a shard of 'books' found by 'searchIndex', then puts the search hits into the order of the shard (see SearchHit.sortAndIndex).
+     *
+     * @param shard        specifies the shard of 'books' holding the candidates.
+     * @param candidates   specifies the ids of the candidate books held by the shard.
+     * @param inputDetails specifies the input details to search by.
+     * @return returns the search hits of the shard in its order, indexed by their position within the shard.
+     */
+    private ArrayList<SearchHit<Book>> verifyBooks(SortedArrayList<Book> shard, int[] candidates, String inputDetails) {
+        ArrayList<SearchHit<Book>> results = new ArrayList<>();
+        for (int bookId : candidates) {
+            SearchHit<Book> hit = matchSearch(booksById.get(bookId), -1, inputDetails);
+            if (hit != null) {
+                results.add(hit);
+            }
+        }
+        SearchHit.sortAndIndex(results, shard);
+        return results;
+    }
+
+    /**
+     * The matchSearch method evaluates whether the input string is contained in the author surname, author forename or title of a book.
+     *
+     * @param book         specifies the book to inspect.
+     * @param index        specifies the index of the book in its shard of 'books', or -1 if it is not known.
+     * @param inputDetails specifies the input string to search by.
+     * @return returns a search hit for the first field of the book which contains the input string, or null if no field contains it.
+     */
+    private SearchHit<Book> matchSearch(Book book, int index, String inputDetails) {
+        int offset = book.getAuthorSurname().indexOf(inputDetails);
+        if (offset != -1) {
+            return new SearchHit<>(book, book.getId(), index, SearchHit.SURNAME, offset);
+        }
+        offset = book.getAuthorForename().indexOf(inputDetails);
+        if (offset != -1) {
+            return new SearchHit<>(book, book.getId(), index, SearchHit.FORENAME, offset);
+        }
+        offset = book.getTitle().indexOf(inputDetails);
+        if (offset != -1) {
+            return new SearchHit<>(book, book.getId(), index, SearchHit.TITLE, offset);
+        }
+        return null;
+    }
+
+    /**
+     * The getNumberOfBooks method returns the number of books held in the LibraryBookshelf, in the SortedArrayList books.
+     *
+     * @return returns the number of books held in 'books'.
+     */
+    int getNumberOfBooks() {
+        return books.size();
+    }
+
+    /**
+     * The isBookLoanedToUser method determines if a book is already loaned by a user.
+     *
+     * @param bookId specifies the id of the book to search.
+     * @param userId specifies the id of the user to search.
+     * @return returns true if the book is loaned to the user specified, returns false if the book is not loaned to the user specified (or there is no such book).
+     */
+    boolean isBookLoanedToUser(int bookId, int userId) {
+        Book book = booksById.get(bookId);
+        if (book == null || !book.isOnLoan())
+            return false;
+        else {
+            if (book.getOnLoanTo() == userId) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
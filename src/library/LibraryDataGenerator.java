@@ -0,0 +1,137 @@
+package library;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The LibraryDataGenerator class writes synthetic data files of any size in the format read by LibraryFileReader, for benchmarking the library (see LibraryBenchmark) and testing it with large catalogs.
+ * The data is made to look like the catalog of a real library rather than random text, since the cost of sorting and searching depends on it:
+ * a few authors write many books and most write few (authors are drawn from a Zipf distribution, so surnames repeat as they do on real shelves), titles are made of common words drawn with a Zipf distribution and a few rarer ones,
+ * and the names of users repeat (many users share a surname) with some names using accented characters.
+ * The same size and seed always produce the same file.
+ * <p>
+ * Usage: java -cp target/classes library.LibraryDataGenerator [path] [number of books] [number of users] [seed (optional)]
+ * <p>
+ * The LibraryDataGenerator class is made package private as it is a tool for developers of the library, not part of the application.
+ */
+class LibraryDataGenerator {
+    private static final String[] FORENAMES = {"James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth",
+            "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen", "Daniel", "Nancy", "Matthew", "Lisa",
+            "Anthony", "Margaret", "Mark", "Sandra", "Donald", "Ashley", "Paul", "Emily", "Andrew", "Donna", "Joshua", "Michelle", "Kenneth", "Carol",
+            "Kevin", "Amanda", "Brian", "Melissa", "George", "Deborah", "Timothy", "Stephanie", "Ronald", "Rebecca", "Edward", "Sharon", "Jason", "Laura",
+            "Jos\u00e9", "Zo\u00eb", "Bj\u00f6rn", "Chlo\u00e9", "S\u00f8ren", "Ana\u00efs", "\u0141ukasz", "Ren\u00e9e"};
+    private static final String[] SURNAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+            "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White",
+            "Harris", "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright", "Scott", "Torres", "Nguyen",
+            "Hill", "Flores", "Green", "Adams", "Nelson", "Baker", "Hall", "Rivera", "Campbell", "Mitchell", "Carter", "Roberts", "M\u00fcller", "\u00d8berg",
+            "Dvo\u0159\u00e1k", "Bront\u00eb", "M\u00e1rquez", "Okonkwo", "Tolkien", "Austen", "Dickens", "Woolf"};
+    private static final String[] COMMON_WORDS = {"The", "of", "and", "a", "in", "to", "Night", "House", "Love", "Life", "World", "Time", "Man", "Woman",
+            "City", "Dark", "Last", "Secret", "Girl", "Boy", "Day", "Death", "Heart", "War", "King", "Queen", "Light", "Shadow", "Garden", "River",
+            "Sea", "Road", "Story", "History", "Art", "Book", "Guide", "Introduction", "Principles", "Java", "Programming", "Data", "Systems", "Theory"};
+    private static final String[] RARE_WORDS = {"Albatross", "Labyrinth", "Quixotic", "Zephyr", "Obsidian", "Meridian", "Cartographer", "Solstice",
+            "Alchemy", "Vermilion", "Nocturne", "Equinox", "Halcyon", "Pilgrim", "Tapestry", "Lighthouse", "Archipelago", "Monsoon", "Orchard", "Cathedral"};
+
+    /**
+     * The main method writes a data file (see the class description for its arguments).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java -cp target/classes library.LibraryDataGenerator [path] [number of books] [number of users] [seed (optional)]");
+            return;
+        }
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        generate(args[0], Integer.parseInt(args[1]), Integer.parseInt(args[2]), seed);
+    }
+
+    /**
+     * The generate method writes a data file of the specified size.
+     *
+     * @param path     specifies the path of the file to write.
+     * @param books    specifies the number of books.
+     * @param users    specifies the number of users.
+     * @param seed     specifies the seed of the random data (the same seed always produces the same file).
+     * @throws IOException if the file cannot be written.
+     */
+    static void generate(String path, int books, int users, long seed) throws IOException {
+        Random random = new Random(seed);
+        //A catalog of n books has about n / 8 authors, the most prolific of whom write hundreds of books.
+        int authors = Math.max(1, books / 8);
+        double[] authorWeights = zipf(authors, 1.0);
+        double[] wordWeights = zipf(COMMON_WORDS.length, 1.1);
+        String newLine = System.lineSeparator();
+        try (Writer out = new BufferedWriter(new FileWriter(path), 1 << 16)) {
+            out.write(books + newLine);
+            StringBuilder title = new StringBuilder();
+            for (int i = 0; i < books; i++) {
+                title.setLength(0);
+                int words = 1 + random.nextInt(5);
+                for (int w = 0; w < words; w++) {
+                    if (w > 0) {
+                        title.append(' ');
+                    }
+                    if (random.nextInt(6) == 0) {
+                        title.append(RARE_WORDS[random.nextInt(RARE_WORDS.length)]);
+                    } else {
+                        title.append(COMMON_WORDS[draw(wordWeights, random)]);
+                    }
+                }
+                //Most books of a prolific author differ by title, some are volumes of a series.
+                if (random.nextInt(10) == 0) {
+                    title.append(" Volume ").append(1 + random.nextInt(12));
+                }
+                out.write(title + newLine);
+                int author = draw(authorWeights, random);
+                out.write(forenameOf(author) + " " + surnameOf(author) + newLine);
+            }
+            out.write(users + newLine);
+            for (int i = 0; i < users; i++) {
+                int person = random.nextInt(Math.max(1, users / 2));
+                out.write(forenameOf(person * 31 + 7) + " " + surnameOf(person) + newLine);
+            }
+        }
+    }
+
+    /**
+     * The forenameOf method returns the forename of a person (an author or a user), the same every time for the same person.
+     */
+    private static String forenameOf(int person) {
+        return FORENAMES[Math.floorMod(person * 0x9E3779B9, FORENAMES.length)];
+    }
+
+    /**
+     * The surnameOf method returns the surname of a person. There are far more people than surnames in the pools, so a number is added to the surnames of all but the first people, as real catalogs hold many distinct surnames.
+     */
+    private static String surnameOf(int person) {
+        String surname = SURNAMES[person % SURNAMES.length];
+        int family = person / SURNAMES.length;
+        return family == 0 ? surname : surname + family;
+    }
+
+    /**
+     * The zipf method returns the cumulative weights of a Zipf distribution over n items (the weight of the k'th item is 1 / k^exponent), for use by draw.
+     */
+    private static double[] zipf(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= total;
+        }
+        return cumulative;
+    }
+
+    /**
+     * The draw method draws an item from a distribution given by its cumulative weights.
+     */
+    private static int draw(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+}
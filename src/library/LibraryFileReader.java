@@ -0,0 +1,680 @@
+package library;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The LibraryFileReader class is responsible for all operations which read a file to instances of a library object (insofar, instances of the LibraryUserData and LibraryBookshelf classes).
+ * The LibraryFileReader class imports information of a given kind (defined in importModes), primarily to be processed by the importDataFromFile method.
+ * The LibraryFileReader class should always close files once it is finished with them.
+ * <p>
+ * Records are not inserted into the bookshelf or userdata one at a time. Instead they are parsed into staging buffers, each buffer is sorted once with a (stable) parallel sort, and the sorted run is handed to the LibraryBookshelf and LibraryUserdata in a single step.
+ * This makes an import O(n log n) rather than paying for a sorted insertion per record, and since the sort is stable the resulting order is the same as adding each record in turn.
+ * The file itself is read with a LibraryLineReader, which reads the file through a FileChannel and parses counts and names from its buffer without regular expressions, exceptions or a String per line.
+ * <p>
+ * An import runs in three stages so that the work can be shared across the processors of the machine (using the common ForkJoinPool):
+ * (1) A single pass over the file validates its structure (without creating any objects) and records the offset of every RECORDS_PER_CHUNK'th record of each import mode, splitting each section of the file into chunks at record boundaries.
+ * (2) Every chunk, of every section, is then parsed at the same time by its own LibraryLineReader into its own slice of the staging buffer of its import mode.
+ * (3) The staging buffer of each import mode is sorted and handed to the library at the same time (the bookshelf and userdata are independent of each other).
+ * <p>
+ * A file which has been imported can later be re-imported (see reimportDataFromFile), which applies only the records which have been added to or removed from the file since.
+ * <p>
+ * A file which begins with LibraryFileWriter.SNAPSHOT_MAGIC is instead read as a snapshot of the library (see importSnapshot), which restores the library in a single sequential read without parsing, sorting or indexing.
+ * <p>
+ * The LibraryFileReader class is made package private as it is intended for use only by instances of the Library Class (the file reader of the library belongs to the library).
+ */
+class LibraryFileReader {
+    private static final int RECORDS_PER_CHUNK = 1 << 16;
+    private final String[] importModes = {"Books", "Users"};
+
+    /**
+     * The importDataFromFile method is the primary file import procedure designed with developers in-mind: in such a way that it makes it easy to change the details of the kinds of items being imported to the Library.
+     * <p>
+     * If you would like to only add another object to be read by the text file then you simply need to add the name of the object to the end of the array 'importModes' and specify the rules you want that import to behave by within the switch case that iterates over those import modes,, then pass the parameters you need.
+     * The rules are split in two: the switch case of the validateFile method validates the lines of a single item, and the switch case of the parseChunk method creates the object of a single item (once every item of the file has been validated).
+     * <p>
+     * If you would like to understand the logic more deeply there are three things to keep in mind...
+     * The outer for loop which ranges over the import modes declared in the array of strings 'import modes'.
+     * The inner while loop which evaluates for an integer data-type within the text file that indicates the next set of lines.
+     * The 'importModes' switch case which iterates over the different import modes defined in the array 'import modes' when the outer for loop has finished iteration.
+     * <p>
+     * To illustrate a sequence might process in this order...
+     * The outer for loop which first reads for items of the kind 'books'.
+     * The inner while loop which obtains the value for the number of lines to parse and continues until the next integer has been found.
+     * While the next integer has not been found the while loop iterates through all of the lines.
+     * For each iteration of the while loop the switch case of import modes determines which rules evaluate the lines (which obtains its value from the inner for loop, items of the kind 'books').
+     * This process continues until the inner while loop has found the next integer or has evaluated all of the lines for each set of rules.
+     * <p>
+     * The sequence checks for consistency by ensuring the actual line count for each item of a kind is equal to the specified line count for each iteration of the while loop, that is if there are 5 books with 2 lines then only after processing the number of lines for books is it necessary to increment this value by 1.
+     * The sequence closes the file and returns error codes
+     * Only once every line has been validated are the objects created, by parsing the chunks of the file in parallel (see the class description).
+     * <p>
+     * If the file is a snapshot of the library written by LibraryFileWriter.writeSnapshot, it is read by importSnapshot instead.
+     * <p>
+     * The benefit of this approach is all a developer needs to do in order to define an new item is specify what they want the application to do when iterating over items of a kind 'DVD's', instead of making changes to the logic they otherwise shouldn't have to make (see comment blocks in code).
+     * The caveat of this approach is the complexity of the sequence.
+     *
+     * @param filepath  specifies the directory filepath.
+     * @param userdata  specifies the userdata object required to insert users to.
+     * @param bookshelf specifies the bookshelf object required to inset books to.
+     * @return returns 1 if the file has been successfully imported returns -1 if there is an identifiable error with the number specified by the file (i.e. if the input file contains 0 books), returns -2 if there is a syntax error with the file.
+     * @throws IOException is thrown for input output issues including those associated with a FileNotFound exception (interrupted file operations .etc.).
+     *                     <p>
+     *                     Methods of the LibraryFileReader class are made package private as they are only intended to be used by instances of the Library class.
+     */
+    byte importDataFromFile(String filepath, LibraryUserdata userdata, LibraryBookshelf bookshelf) throws IOException {
+        if (isSnapshot(filepath)) {
+            return importSnapshot(filepath, userdata, bookshelf);
+        }
+
+        //Validate the file (stage 1), nothing is created unless every line of the file is valid.
+        int[] recordCounts = new int[importModes.length];
+        ArrayList<ImportChunk> chunks = new ArrayList<>();
+        byte status = validateFile(filepath, recordCounts, chunks);
+        if (status != 1) {
+            return status;
+        }
+
+        //If we get this far the file is valid, so parse every chunk in parallel (stage 2).
+        Book[] stagedBooks = new Book[recordCounts[0]];
+        User[] stagedUsers = new User[recordCounts[1]];
+        parseChunks(filepath, recordCounts, chunks, stagedBooks, stagedUsers);
+
+        //Then sort the staged objects of each mode and hand them to the library in parallel (stage 3).
+        ArrayList<Callable<Void>> commitTasks = new ArrayList<>();
+        commitTasks.add(() -> {
+            commitStagedBooks(stagedBooks, bookshelf);
+            return null;
+        });
+        commitTasks.add(() -> {
+            commitStagedUsers(stagedUsers, userdata);
+            return null;
+        });
+        runInParallel(commitTasks);
+        return 1;
+    }
+
+    /**
+     * The reimportDataFromFile method brings the library up to date with a new version of a file it was imported from, applying only the differences between the file and the books and users the library holds.
+     * A file which is mostly unchanged is far cheaper to re-import than to import again, as the books and users which are unchanged are not sorted, indexed or given new ids, and they keep their loans.
+     * <p>
+     * The file is validated and parsed in parallel as by importDataFromFile (stages 1 and 2), and nothing is changed unless the whole file is valid.
+     * Every record of the file is then matched against the records held (see difference): each record is given a fingerprint from the hashes of its fields, and records with the same fingerprint are compared field by field, so a fingerprint shared by different records never matches them.
+     * Each record of the file matches at most one record held, so a book held twice and listed once in the file is removed once.
+     * Records of the file which match no record held are added (with new ids, in sorted order), and records held which match no record of the file are removed.
+     * A book on loan, or a user who has books on loan, is never removed: it is kept and counted in 'changes' instead. Where a record of the file matches several identical records held, one on loan is matched first, so a loan is only kept against the file when it must be.
+     * <p>
+     * A snapshot cannot be re-imported, as the ids it holds would not agree with those of the library.
+     *
+     * @param filepath  specifies the directory filepath.
+     * @param userdata  specifies the userdata object required to add users to and remove users from.
+     * @param bookshelf specifies the bookshelf object required to add books to and remove books from.
+     * @param changes   an array of 6 elements which receives the number of books added, books removed, books kept as they are on loan, users added, users removed, and users kept as they have books on loan.
+     * @return returns 1 if the library has been brought up to date with the file, returns -2 if there is a syntax error with the file or the file is a snapshot (in which case the library is unchanged).
+     * @throws IOException if the file cannot be read (in which case the library is unchanged).
+     */
+    byte reimportDataFromFile(String filepath, LibraryUserdata userdata, LibraryBookshelf bookshelf, int[] changes) throws IOException {
+        if (isSnapshot(filepath)) {
+            return -2;
+        }
+        Arrays.fill(changes, 0);
+        int[] recordCounts = new int[importModes.length];
+        ArrayList<ImportChunk> chunks = new ArrayList<>();
+        byte status = validateFile(filepath, recordCounts, chunks);
+        if (status != 1) {
+            return status;
+        }
+        Book[] stagedBooks = new Book[recordCounts[0]];
+        User[] stagedUsers = new User[recordCounts[1]];
+        parseChunks(filepath, recordCounts, chunks, stagedBooks, stagedUsers);
+
+        //Match the records of each mode against those held and apply the differences, the bookshelf and userdata in parallel.
+        ArrayList<Callable<Void>> applyTasks = new ArrayList<>();
+        applyTasks.add(() -> {
+            ArrayList<Book> added = new ArrayList<>();
+            ArrayList<Book> unmatched = new ArrayList<>();
+            difference(bookshelf.getBooks().toArray(new Book[0]), stagedBooks, LibraryFileReader::fingerprintOf,
+                    (held, read) -> held.getTitle().equals(read.getTitle()) && held.getAuthorForename().equals(read.getAuthorForename()) && held.getAuthorSurname().equals(read.getAuthorSurname()),
+                    Book::isOnLoan, added, unmatched);
+            ArrayList<Book> removed = new ArrayList<>();
+            for (Book book : unmatched) {
+                if (book.isOnLoan()) {
+                    changes[2]++;
+                } else {
+                    removed.add(book);
+                }
+            }
+            bookshelf.removeBooks(removed);
+            Book[] sortedAdded = added.toArray(new Book[0]);
+            Arrays.parallelSort(sortedAdded);
+            if (bookshelf.getNumberOfBooks() == 0) {
+                bookshelf.addSortedBooks(sortedAdded);
+            } else {
+                for (Book book : sortedAdded) {
+                    bookshelf.addBook(book);
+                }
+            }
+            changes[0] = sortedAdded.length;
+            changes[1] = removed.size();
+            return null;
+        });
+        applyTasks.add(() -> {
+            ArrayList<User> added = new ArrayList<>();
+            ArrayList<User> unmatched = new ArrayList<>();
+            difference(userdata.getUsers().toArray(new User[0]), stagedUsers, LibraryFileReader::fingerprintOf,
+                    (held, read) -> held.getForename().equals(read.getForename()) && held.getSurname().equals(read.getSurname()),
+                    user -> user.getBooksLoaned() > 0, added, unmatched);
+            ArrayList<User> removed = new ArrayList<>();
+            for (User user : unmatched) {
+                if (user.getBooksLoaned() > 0) {
+                    changes[5]++;
+                } else {
+                    removed.add(user);
+                }
+            }
+            userdata.removeUsers(removed);
+            User[] sortedAdded = added.toArray(new User[0]);
+            Arrays.parallelSort(sortedAdded);
+            if (userdata.getNumberOfUsers() == 0) {
+                userdata.addSortedUsers(sortedAdded);
+            } else {
+                for (User user : sortedAdded) {
+                    userdata.addUser(user);
+                }
+            }
+            changes[3] = sortedAdded.length;
+            changes[4] = removed.size();
+            return null;
+        });
+        runInParallel(applyTasks);
+        return 1;
+    }
+
+    /**
+     * Used to validate every line of a text file (stage 1 of an import, see importDataFromFile) without creating any objects, counting the items of each import mode and splitting each section of the file into chunks.
+     *
+     * @param filepath     specifies the directory filepath.
+     * @param recordCounts an array of one element per import mode which receives the number of items of each mode.
+     * @param chunks       receives the chunks of the file, in the order of the file.
+     * @return returns 1 if the file is valid, returns -2 if there is a syntax error with the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private byte validateFile(String filepath, int[] recordCounts, ArrayList<ImportChunk> chunks) throws IOException {
+
+        //Variables required for validateFile to operate//
+        boolean fileProcessed = false;
+        int statedLineCount = 0;
+        int actualLineCount = 0;
+        int lineValue;
+        String mode;
+
+
+        //Variables for evaluating lines of type Books.
+        int lastSpace;
+
+        //Variables for evaluating lines of type Users.
+        int[] name = new int[4];
+        boolean readingLines = false;
+
+        //Add variables you define here.
+
+
+        //Try block for validating the file (stage 1), the file is always closed when the block is left.
+        try (LibraryLineReader data = new LibraryLineReader(filepath)) {
+            // For each importMode defined in the array importModes (top of class).
+            for (int modeIndex = 0; modeIndex < importModes.length; modeIndex++) {
+                mode = importModes[modeIndex];
+                //While the data from the file has another line and the stated line count is equal to or greater than the actual line count.
+                while (data.hasNext() && actualLineCount <= statedLineCount) {
+                    //Process the lines, set file processed to true (indicating we have started to process the file).
+                    fileProcessed = true;
+                    //Read each line into the reader's buffer.
+                    data.nextLine();
+                    if (data.lineLength() == 0) {
+                        return -2;
+                    }
+                    lineValue = data.parseIntOver0();
+                    //If we are reading lines and the line is not a long, continue
+                    if (!readingLines) {
+                        if (lineValue > 0) {
+                            statedLineCount = lineValue;
+                            actualLineCount = 0;
+                            readingLines = true;
+                            // If we are not reading lines and the first line isn't a long, continue.
+                            continue;
+                        } else {
+                            // If we are not reading the lines and we have reached a line such that it isn't an integer, return a syntax issue.
+                            return -2;
+                        }
+                    } else {
+                        //If we are reading the lines and the line is an integer over 0, then check if the actual line count is equal to the stated line count. If we are reading lines and the line is not an integer over 0 then continue reading lines.
+                        if (lineValue > 0) {
+                            if (actualLineCount == statedLineCount) {
+                                statedLineCount = lineValue;
+                                actualLineCount = 0;
+                                //If the actual line count is equal to the stated line count break the loop.
+                                break;
+                            } else {
+                                //If the actual line count is not equal to the stated line count then terminate the operation.
+                                return -2;
+                            }
+                        }
+                    }
+                    //Begin a new chunk at every RECORDS_PER_CHUNK'th item of this mode, the current line is the first line of the item.
+                    if (recordCounts[modeIndex] % RECORDS_PER_CHUNK == 0) {
+                        chunks.add(new ImportChunk(modeIndex, data.lineOffset(), recordCounts[modeIndex]));
+                    }
+                    switch (mode) {
+                        case "Books":
+                            //Logic for validating a single book: the title line is followed by an author line whose surname follows the last space of the line, and whose forename(s) precede it.
+                            if (!data.nextLine()) {
+                                return -2;
+                            }
+                            lastSpace = data.lastIndexOf((byte) ' ');
+                            if (lastSpace <= 0 || lastSpace == data.lineLength() - 1) {
+                                return -2;
+                            }
+                            //Increment the number of books **added** by 1.
+                            actualLineCount++;
+                            break;
+
+                        case "Users":
+                            //Logic for validating a single user.
+                            if (splitOnWhitespace(data, name) != 2) {
+                                return -2;
+                            }
+                            //Increment the number of users **added** by 1.
+                            actualLineCount++;
+                            break;
+
+                        //Add your set of rules here i.e.
+                        //
+                        //case "DVD":
+                        //Using the line in 'data'.
+                        //Perform validation for lines of type DVD (and add the rules for creating a DVD object to parseChunk).
+                        //actualLineCount++; [Required to indicate how many lines you have processed for each iteration of readMode.
+                    }
+                    recordCounts[modeIndex]++;
+                }
+            }
+
+            //If for the last iteration of read modes, if the actual line count is not equal to the line count stated, return that there is a syntax error.
+            if (!(actualLineCount == statedLineCount)) {
+                return -2;
+            }
+            //If the file has not been processed (the file was blank), return there is a syntax error.
+            if (!fileProcessed) {
+                return -2;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Used to parse every chunk of a validated file in parallel (stage 2 of an import) into the staging buffers of its import mode.
+     *
+     * @param filepath     specifies the directory filepath.
+     * @param recordCounts the number of items of each import mode (see validateFile).
+     * @param chunks       the chunks of the file (see validateFile).
+     * @param stagedBooks  the staging buffer of books, of one element per book of the file.
+     * @param stagedUsers  the staging buffer of users, of one element per user of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private void parseChunks(String filepath, int[] recordCounts, ArrayList<ImportChunk> chunks, Book[] stagedBooks, User[] stagedUsers) throws IOException {
+        ArrayList<Callable<Void>> parseTasks = new ArrayList<>();
+        for (ImportChunk chunk : chunks) {
+            chunk.recordCount = Math.min(RECORDS_PER_CHUNK, recordCounts[chunk.modeIndex] - chunk.firstRecord);
+            parseTasks.add(() -> {
+                parseChunk(filepath, chunk, stagedBooks, stagedUsers);
+                return null;
+            });
+        }
+        runInParallel(parseTasks);
+    }
+
+    /**
+     * Used to evaluate whether a file is a snapshot of the library, by whether it begins with LibraryFileWriter.SNAPSHOT_MAGIC (which no text file of the known format can begin with, as it must begin with a number).
+     *
+     * @param filepath specifies the directory filepath.
+     * @return returns true if the file is a snapshot.
+     * @throws IOException if the file cannot be read.
+     */
+    private boolean isSnapshot(String filepath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filepath))) {
+            return in.readInt() == LibraryFileWriter.SNAPSHOT_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Used to restore the library from a snapshot written by LibraryFileWriter.writeSnapshot (see that class for the layout of a snapshot).
+     * The snapshot is read into memory in one read and then decoded in a single pass: the books and users are already in sorted order and the search indexes are read as they were written, so no comparisons are made and nothing is indexed again.
+     *
+     * @param filepath  specifies the directory filepath.
+     * @param userdata  specifies the userdata object required to insert users to.
+     * @param bookshelf specifies the bookshelf object required to inset books to.
+     * @return returns 1 if the snapshot has been successfully imported, returns -2 if the snapshot is of an unknown version or is incomplete.
+     * @throws IOException if the file cannot be read.
+     */
+    private byte importSnapshot(String filepath, LibraryUserdata userdata, LibraryBookshelf bookshelf) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(Paths.get(filepath)));
+        try {
+            if (in.getInt() != LibraryFileWriter.SNAPSHOT_MAGIC || in.getInt() != LibraryFileWriter.SNAPSHOT_VERSION) {
+                return -2;
+            }
+            String[] strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = in.getInt();
+                strings[i] = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+            }
+
+            int nextBookId = in.getInt();
+            Book[] books = new Book[in.getInt()];
+            int[] onLoanTo = new int[books.length];
+            for (int i = 0; i < books.length; i++) {
+                int id = in.getInt();
+                onLoanTo[i] = in.getInt();
+                books[i] = new Book(strings[in.getInt()], strings[in.getInt()], strings[in.getInt()]);
+                books[i].setId(id);
+            }
+            bookshelf.restoreSortedBooks(books, onLoanTo, nextBookId);
+            bookshelf.getSearchIndex().readFrom(in);
+
+            int nextUserId = in.getInt();
+            User[] users = new User[in.getInt()];
+            byte[] booksLoaned = new byte[users.length];
+            for (int i = 0; i < users.length; i++) {
+                int id = in.getInt();
+                booksLoaned[i] = in.get();
+                users[i] = new User(strings[in.getInt()], strings[in.getInt()]);
+                users[i].setId(id);
+            }
+            userdata.restoreSortedUsers(users, nextUserId);
+            userdata.getNameTrie().readFrom(in, strings);
+            //The loan index of each user is rebuilt from the books, and must agree with the number of books loaned saved for the user.
+            for (Book book : books) {
+                if (book.isOnLoan()) {
+                    if (userdata.getUserById(book.getOnLoanTo()) == null) {
+                        return -2;
+                    }
+                    userdata.restoreBookToUser(book.getOnLoanTo(), book.getId());
+                }
+            }
+            for (int i = 0; i < users.length; i++) {
+                if (users[i].getBooksLoaned() != booksLoaned[i]) {
+                    return -2;
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            //The snapshot ends early or refers to data it does not hold.
+            return -2;
+        }
+        return 1;
+    }
+
+    /**
+     * Used to create the objects of every item of a chunk of the file, once the whole file has been validated by validateFile.
+     * Each chunk is read by its own LibraryLineReader so that chunks can be parsed at the same time, and each writes only to its own slice of the staging buffers.
+     *
+     * @param filepath    specifies the directory filepath.
+     * @param chunk       specifies the chunk of the file to parse.
+     * @param stagedBooks the staging buffer of books read from the file.
+     * @param stagedUsers the staging buffer of users read from the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private void parseChunk(String filepath, ImportChunk chunk, Book[] stagedBooks, User[] stagedUsers) throws IOException {
+        String title;
+        int lastSpace;
+        int[] name = new int[4];
+        try (LibraryLineReader data = new LibraryLineReader(filepath, chunk.offset)) {
+            for (int record = chunk.firstRecord; record < chunk.firstRecord + chunk.recordCount; record++) {
+                data.nextLine();
+                switch (importModes[chunk.modeIndex]) {
+                    case "Books":
+                        //Logic for processing a single book.
+                        title = data.lineString(0, data.lineLength());
+                        data.nextLine();
+                        lastSpace = data.lastIndexOf((byte) ' ');
+                        importBookObject(title, data.linePooledString(0, lastSpace, StringPool.NAMES), data.linePooledString(lastSpace + 1, data.lineLength(), StringPool.NAMES), stagedBooks, record);
+                        break;
+
+                    case "Users":
+                        //Logic for processing a single user.
+                        splitOnWhitespace(data, name);
+                        importUserObject(data.linePooledString(name[0], name[1], StringPool.NAMES), data.linePooledString(name[2], name[3], StringPool.NAMES), stagedUsers, record);
+                        break;
+
+                    //Add your set of rules here i.e.
+                    //
+                    //case "DVD":
+                    //importDVDObject();
+                }
+            }
+        }
+    }
+
+    /**
+     * Used to run a set of tasks on the common ForkJoinPool and wait for all of them to complete.
+     *
+     * @param tasks the tasks to run.
+     * @throws IOException if any of the tasks failed with an IOException.
+     */
+    private void runInParallel(ArrayList<Callable<Void>> tasks) throws IOException {
+        try {
+            for (Future<Void> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The import was interrupted.", e);
+        }
+    }
+
+
+    /**
+     * Used to import a new Book object to the staging buffer of books during a file read procedure.
+     *
+     * @param title          specifies the title of the book.
+     * @param authorForename specifies the author's forename of the book.
+     * @param authorSurname  specifies the author's
+     * @param stagedBooks    the staging buffer of books which have been read but not yet added to the bookshelf.
+     * @param record         the position of the book in the file (and so in the staging buffer).
+     */
+    private void importBookObject(String title, String authorForename, String authorSurname, Book[] stagedBooks, int record) {
+        Book book = new Book(title, authorForename, authorSurname);
+        stagedBooks[record] = book;
+    }
+
+
+    /**
+     * Used to import a new User object to the staging buffer of users during a file read procedure.
+     *
+     * @param forename    specifies the forename of the user.
+     * @param surname     specifies the surname of the user.
+     * @param stagedUsers the staging buffer of users which have been read but not yet added to the userdata.
+     * @param record      the position of the user in the file (and so in the staging buffer).
+     */
+    private void importUserObject(String forename, String surname, User[] stagedUsers, int record) {
+        User user = new User(forename, surname);
+        stagedUsers[record] = user;
+    }
+
+    /**
+     * Used to sort the staging buffer of books once and add the sorted run to the library's bookshelf.
+     * Arrays.parallelSort is a stable sort for objects, so books which compare as equal keep the order they were read in (as they would if added one at a time).
+     *
+     * @param stagedBooks the staging buffer of books read from the file.
+     * @param bookshelf   the bookshelf object required to perform operations on books in the library.
+     */
+    private void commitStagedBooks(Book[] stagedBooks, LibraryBookshelf bookshelf) {
+        Arrays.parallelSort(stagedBooks);
+        bookshelf.addSortedBooks(stagedBooks);
+    }
+
+    /**
+     * Used to sort the staging buffer of users once and add the sorted run to the library's userdata.
+     * Arrays.parallelSort is a stable sort for objects, so users which compare as equal keep the order they were read in (as they would if added one at a time).
+     *
+     * @param stagedUsers the staging buffer of users read from the file.
+     * @param userdata    the userdata object required to perform operations on users of the library.
+     */
+    private void commitStagedUsers(User[] stagedUsers, LibraryUserdata userdata) {
+        Arrays.parallelSort(stagedUsers);
+        userdata.addSortedUsers(stagedUsers);
+    }
+
+    /**
+     * Used to match the records read from a file against the records held by the library (see reimportDataFromFile).
+     * The records held are chained by fingerprint in a table of primitive arrays, and each record read walks only the chain of its own fingerprint, taking the first equal record and unlinking it, so matching costs O(n) rather than a comparison of every pair.
+     *
+     * @param held        the records held by the library.
+     * @param read        the records read from the file.
+     * @param fingerprint gives the fingerprint of a record (equal records must have equal fingerprints).
+     * @param same        tests whether a record held and a record read are equal.
+     * @param preferred   tests whether a record held should be matched before other equal records (i.e. a book on loan).
+     * @param added       receives the records read which match no record held, in the order they were read.
+     * @param unmatched   receives the records held which match no record read.
+     * @param <T>         the type of the records.
+     */
+    private static <T> void difference(T[] held, T[] read, ToIntFunction<T> fingerprint, BiPredicate<T, T> same, Predicate<T> preferred, ArrayList<T> added, ArrayList<T> unmatched) {
+        int capacity = Integer.highestOneBit(Math.max(held.length, 1)) << 2;
+        int mask = capacity - 1;
+        int[] head = new int[capacity];
+        Arrays.fill(head, -1);
+        int[] next = new int[held.length];
+        int[] prints = new int[held.length];
+        //The preferred records are chained last so that they are at the front of their chains.
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < held.length; i++) {
+                if (preferred.test(held[i]) == (pass == 1)) {
+                    prints[i] = fingerprint.applyAsInt(held[i]);
+                    next[i] = head[prints[i] & mask];
+                    head[prints[i] & mask] = i;
+                }
+            }
+        }
+        boolean[] matched = new boolean[held.length];
+        for (T record : read) {
+            int print = fingerprint.applyAsInt(record);
+            int previous = -1;
+            int i = head[print & mask];
+            while (i != -1 && !(prints[i] == print && same.test(held[i], record))) {
+                previous = i;
+                i = next[i];
+            }
+            if (i == -1) {
+                added.add(record);
+                continue;
+            }
+            //A record which has been matched is unlinked from its chain, so the chain of a record held many times is not walked again past the copies already matched.
+            if (previous == -1) {
+                head[print & mask] = next[i];
+            } else {
+                next[previous] = next[i];
+            }
+            matched[i] = true;
+        }
+        for (int i = 0; i < held.length; i++) {
+            if (!matched[i]) {
+                unmatched.add(held[i]);
+            }
+        }
+    }
+
+    /**
+     * Used to give a book a fingerprint from the hashes of its title and author (the hash of a String is kept by the String, so the names shared through StringPool.NAMES are only hashed once).
+     */
+    private static int fingerprintOf(Book book) {
+        return spread((book.getTitle().hashCode() * 31 + book.getAuthorForename().hashCode()) * 31 + book.getAuthorSurname().hashCode());
+    }
+
+    /**
+     * Used to give a user a fingerprint from the hashes of their names.
+     */
+    private static int fingerprintOf(User user) {
+        return spread(user.getForename().hashCode() * 31 + user.getSurname().hashCode());
+    }
+
+    /**
+     * Used to mix the high bits of a hash into its low bits, so that the low bits of a fingerprint can choose its chain.
+     */
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Used to split the current line of the reader into words separated by whitespace, following the rules of String.split("\\s+"): a line beginning with whitespace has an empty first word, and empty words at the end of the line are discarded.
+     * No Strings are created, instead the offsets of the first two words are written to 'bounds'.
+     *
+     * @param data   the reader positioned at the line to split.
+     * @param bounds an array of 4 elements which receives the start and end offsets of the first word followed by the start and end offsets of the second word.
+     * @return returns the number of words in the line.
+     */
+    private int splitOnWhitespace(LibraryLineReader data, int[] bounds) {
+        int length = data.lineLength();
+        int words = 0;
+        int wordStart = 0;
+        int lastNonEmptyWords = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || LibraryLineReader.isWhitespace(data.byteAt(i))) {
+                //Consecutive whitespace forms one separator, except at the start of the line which produces an empty first word.
+                if (i > wordStart || i == 0) {
+                    if (words < 2) {
+                        bounds[2 * words] = wordStart;
+                        bounds[2 * words + 1] = i;
+                    }
+                    words++;
+                    if (i > wordStart) {
+                        lastNonEmptyWords = words;
+                    }
+                }
+                wordStart = i + 1;
+            }
+        }
+        //Empty words at the end of the line are discarded.
+        return lastNonEmptyWords;
+    }
+
+    /**
+     * The ImportChunk class describes a run of up to RECORDS_PER_CHUNK items of one import mode, found while validating the file, so that the run can be parsed by a reader of its own.
+     */
+    private static class ImportChunk {
+        private final int modeIndex;
+        private final long offset;
+        private final int firstRecord;
+        private int recordCount;
+
+        private ImportChunk(int modeIndex, long offset, int firstRecord) {
+            this.modeIndex = modeIndex;
+            this.offset = offset;
+            this.firstRecord = firstRecord;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package library;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The LibraryFileWriter class is responsible for all operations which write to a file i.e. return notices (whose templates are held here, and which are written in the background by the LibraryNoticeWriter) and snapshots of the library.
+ * The LibraryFileWriter class should always close files once it is finished with them.
+ * <p>
+ * A snapshot is a binary copy of the state of the library which can be loaded far faster than the text file it was imported from (see LibraryFileReader.importSnapshot), as nothing has to be parsed, sorted or indexed again.
+ * A snapshot is laid out as follows (all numbers are big-endian):
+ * (1) The int SNAPSHOT_MAGIC and the int SNAPSHOT_VERSION.
+ * (2) The string table: the number of distinct strings, then each string as its length in bytes followed by its bytes in UTF-8. Every other section refers to strings by their index in this table, so a name shared by many books or users is only held once.
+ * (3) The books: the next book id and the number of books, then for each book in sorted order its id, the id of the user it is on loan to (or -1), and the indexes of its title, author forename and author surname.
+ * (4) The search index of the books (see TrigramIndex.writeTo).
+ * (5) The users: the next user id and the number of users, then for each user in sorted order its id, the number of books it has loaned (one byte), and the indexes of its forename and surname.
+ * (6) The name trie of the users (see PrefixTrie.writeTo).
+ * <p>
+ * The LibraryFileWriter class is made package private as it is intended for use only by instances of the Library Class (the file writer of the library belongs to the library).
+ */
+class LibraryFileWriter {
+    static final int SNAPSHOT_MAGIC = 0x4C494253;
+    static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * The RETURN_NOTICE template is the return notice written to the user a book is on loan to when it is requested by another user (see Library.writeReturnNotice).
+     * The book is given in the format of Book.getBookByAuthorSurname, "Author Surname, Author Forename. Book Title.".
+     */
+    static final NoticeTemplate RETURN_NOTICE = new NoticeTemplate("return notice", "Dear {forename},\n"
+            + "\n"
+            + "\n"
+            + "Please return the following item as soon as possible as it has been requested by another user of the library...\n"
+            + "\n"
+            + "{authorSurname}, {authorForename}. {title}.\n"
+            + "\n"
+            + "\n"
+            + "Best wishes,\n"
+            + "The Library\n");
+
+    /**
+     * The HOLD_READY_NOTICE template is the notice written to a user who was waiting for a book when it is returned and issued to them (see Library.returnBookFromUser).
+     * Written to a file per user, it has a file of its own ("hold ready notice [user id].txt") so it is not mistaken for a return notice.
+     */
+    static final NoticeTemplate HOLD_READY_NOTICE = new NoticeTemplate("hold ready notice", "Dear {forename},\n"
+            + "\n"
+            + "\n"
+            + "The following item you reserved has been returned and is now on loan to you, ready to be collected from the library...\n"
+            + "\n"
+            + "{authorSurname}, {authorForename}. {title}.\n"
+            + "\n"
+            + "\n"
+            + "Best wishes,\n"
+            + "The Library\n");
+
+    /**
+     * The writeSnapshot method writes a snapshot of the bookshelf and userdata of the library to a file (see the class description for the layout of a snapshot).
+     * The snapshot is first written to a temporary file beside the destination and forced to the disk, which then replaces the destination with an atomic move (as LibraryJournal.compact does), so an existing snapshot is never left half written, even if the machine fails.
+     *
+     * @param bookshelf specifies the bookshelf of the library.
+     * @param userdata  specifies the userdata of the library.
+     * @param directory the directory to output the file to.
+     * @return returns true when the operation has been completed.
+     * @throws IOException throws an IOException if a general input/output error occurs (possibly permissions issues).
+     */
+    boolean writeSnapshot(LibraryBookshelf bookshelf, LibraryUserdata userdata, String directory) throws IOException {
+        Path destination = Paths.get(directory);
+        Path temporary = Paths.get(directory + ".tmp");
+        HashMap<String, Integer> stringIds = new HashMap<>();
+        ArrayList<String> strings = new ArrayList<>();
+        for (Book book : bookshelf.getBooks()) {
+            addString(book.getTitle(), stringIds, strings);
+            addString(book.getAuthorForename(), stringIds, strings);
+            addString(book.getAuthorSurname(), stringIds, strings);
+        }
+        for (User user : userdata.getUsers()) {
+            addString(user.getForename(), stringIds, strings);
+            addString(user.getSurname(), stringIds, strings);
+        }
+        //A word of the name trie keeps the case it was first added with, which may belong to a user who has since been removed (see Library.reimportDataFromFile).
+        userdata.getNameTrie().forEachWord(word -> addString(word, stringIds, strings));
+
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(bookshelf.getNextBookId());
+            out.writeInt(bookshelf.getBooks().size());
+            for (Book book : bookshelf.getBooks()) {
+                out.writeInt(book.getId());
+                out.writeInt(book.getOnLoanTo());
+                out.writeInt(stringIds.get(book.getTitle()));
+                out.writeInt(stringIds.get(book.getAuthorForename()));
+                out.writeInt(stringIds.get(book.getAuthorSurname()));
+            }
+            bookshelf.getSearchIndex().writeTo(out);
+
+            out.writeInt(userdata.getNextUserId());
+            out.writeInt(userdata.getUsers().size());
+            for (User user : userdata.getUsers()) {
+                out.writeInt(user.getId());
+                out.writeByte(user.getBooksLoaned());
+                out.writeInt(stringIds.get(user.getForename()));
+                out.writeInt(stringIds.get(user.getSurname()));
+            }
+            userdata.getNameTrie().writeTo(out, stringIds::get);
+            out.flush();
+            file.getChannel().force(false);
+        }
+        Files.move(temporary, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * The addString method adds a string to the string table of a snapshot if it is not already in it.
+     */
+    private static void addString(String string, HashMap<String, Integer> stringIds, ArrayList<String> strings) {
+        if (!stringIds.containsKey(string)) {
+            stringIds.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+}
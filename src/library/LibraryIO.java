@@ -1,7 +1,14 @@
+package library;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntBinaryOperator;
 
 /**
  * <h1>Library</h1>
@@ -10,7 +17,7 @@ import java.util.Scanner;
  * It is specified the system must take user input before displaying that interactive system. This functionality has been extended to default directories for different operating systems. In the case those default directories cannot be detected a user is able to specify directories they are familiar with (forward error handling). Further details on how the input file is read is documented in the LibraryFileReader class.
  * It is specified the system must contain at least the commands f (finish running the program), b (to display on the screen the information about all the books in the library), u (to display on the screen the information about all the users), i (to update the stored data when a book is issued to a user), and r (to update the stored data when a user returns a book to the library).
  * It is specified to include validation procedures to validate (and in conjunction to this confirm) to the user that the book they wish to either issue or return to specific users is in fact the correct book or user.
- * It is specified that all User and Book objects are stored within a SortedArrayList object which extends the ArrayList object such that it is able to lexicographically order books and users of the array. This is achieved by implementing the Comparable interface in those objects and using the compareTo method to define an ascending sorting procedure (see SortedArrayList and User or Book objects for further details).
+ * It is specified that all User and Book objects are stored within a SortedArrayList object, a List (it extends the AbstractList class and keeps its elements in small sorted chunks rather than one ArrayList) such that it is able to lexicographically order books and users of the array. This is achieved by implementing the Comparable interface in those objects and using the compareTo method to define an ascending sorting procedure (see SortedArrayList and User or Book objects for further details).
  * It is specified there should exist relevant procedures. To illustrate these include displaying an appropriate messages on the screen and outputting notices asking users to return books.
  * </p>
  * <p>
@@ -26,7 +33,8 @@ import java.util.Scanner;
  * The class is responsible for aggressively validating user input to provide user feedback.
  * </p>
  * <p>
- * The class is also responsible for handling ID information for Books and Users. This information is not semantically representative of the internal structure of the application, this refers to userIndex and bookIndex which is equal to the userId and bookId incremented by 1.
+ * The class is also responsible for handling ID information for Books and Users. This information is not semantically representative of the internal structure of the application, this refers to userIndex and bookIndex (the sorted position of the user or book) which is equal to the userId and bookId decremented by 1.
+ * Before an operation is passed to the Library the book and user at those positions are looked up and their permanent ids (see Book.getId and User.getId) are passed instead.
  * </p>
  * <p>
  * The only method public in this class is the main method as the main method must always be used as the starting point for the execution of this interface: it is only possible for the user interface to be initialized before data has been read.
@@ -36,6 +44,9 @@ import java.util.Scanner;
  * </p>
  */
 public class LibraryIO {
+    private static final ConcurrentLinkedQueue<String> noticeMessages = new ConcurrentLinkedQueue<>();
+    private static final int PAGE_SIZE = 20;
+    private static final LibraryListing listing = new LibraryListing(System.out);
 
     /**
      * The method main is responsible for the initial execution of the application, the 'initialization' of the application.
@@ -46,12 +57,39 @@ public class LibraryIO {
      * <p>
      * The program should not initialize the user interface until data of the known format has been detected.
      * This is made explicit by a switch case which uses a status code 'importStatusCode' such that it is only possible for this value to be equal to 1 if stage 1 of initialization procedure was successful (at which point begin stage 2).
+     * <p>
+     * If the application is started with the arguments "--script [file]" (or "--script" alone to read standard input) there is no user interface: the commands of the script are performed without prompts and their results printed (see LibraryScript and runScript).
+     * Either may be preceded by the arguments "--shards [n]" to partition the books and users of the library across n shards, so that searches run on n threads at once (see Library(int)).
      */
     public static void main(String[] args) {
+        //Publish the metrics of the library through JMX (see LibraryMetrics); the library runs the same if they cannot be published.
+        LibraryMetrics.register();
+        int shards = 1;
+        int first = 0;
+        if (args.length > 0 && args[0].equals("--shards")) {
+            try {
+                shards = Integer.parseInt(args.length > 1 ? args[1] : "");
+            } catch (NumberFormatException e) {
+                shards = 0;
+            }
+            if (shards < 1) {
+                System.err.println("The number of shards must be a whole number of at least 1.");
+                System.exit(2);
+            }
+            first = 2;
+        }
+        if (args.length > first && args[first].equals("--script")) {
+            runScript(args.length > first + 1 ? args[first + 1] : null, shards);
+            return;
+        }
         Scanner userInput;
-        Library library = new Library();
+        Library library = new Library(shards);
+        //Hold ready notices are written when a book is returned to a user waiting for it, their outcome is reported at the main menu (see printNoticeMessages).
+        library.setHoldNoticeCallback((file, failure) -> noticeMessages.add(failure == null
+                ? "Wrote hold ready notice to " + file + "."
+                : "Failed to write a hold ready notice to " + file + ". Please contact your system administrator and ensure you have read and write permissions to " + file + "."));
         userInput = new Scanner(System.in);
-        String pathInput;
+        String pathInput = "";
         boolean fileInitialized = false;
         byte importStatusCode;
         String defaultPath = getDefaultPathByOperatingSystem() + "inputdata.txt";
@@ -59,6 +97,7 @@ public class LibraryIO {
             System.out.println("Library Interactive System: Initialisation");
             System.out.println();
             System.out.println("Please enter the path to the file (with extension) containing the data you would like to import, or type 'f' to exit.");
+            System.out.println("A snapshot of the library saved with the command 's' may be imported in the same way.");
             if (!defaultPath.equals("")) {
                 System.out.println("Alternatively, pressing enter will use the file at the default path '" + defaultPath + "' for your operating system.");
             }
@@ -103,12 +142,58 @@ public class LibraryIO {
 
 
         if (fileInitialized) {
+            String journalPath = pathInput + LibraryJournal.JOURNAL_SUFFIX;
+            try {
+                if (library.openJournal(journalPath) != 1) {
+                    System.out.println("The journal of loans and returns at " + journalPath + " does not belong to the data at " + pathInput + "." +
+                            "\nPlease move or remove the journal and try again. The system will now terminate.");
+                    terminate(library, userInput, -1);
+                }
+            } catch (IOException e) {
+                System.out.println("The journal of loans and returns at " + journalPath + " could not be opened." +
+                        "\nPlease contact your system administrator and ensure you have read and write permissions to " + journalPath + ". The system will now terminate.");
+                terminate(library, userInput, -1);
+            }
+            if (!library.checkLoans()) {
+                System.out.println("The loans recorded for users do not agree with the loans recorded for books in " + pathInput + " and its journal." +
+                        "\nPlease check your data and try again. The system will now terminate.");
+                terminate(library, userInput, -1);
+            }
             userInterface(library, userInput);
         } else {
             terminate(library, userInput, -1);
         }
     }
 
+    /**
+     * The runScript method runs a script of commands on a new library without a user interface (see LibraryScript), then writes any return notices and closes the journal as terminate does.
+     * The application exits with the status 0 if every command could be performed, 1 if any could not, and 2 if the script could not be read.
+     *
+     * @param scriptPath specifies the path of the script, or null to read the script from standard input.
+     * @param shards     specifies the number of shards to partition the books and users of the library across.
+     */
+    private static void runScript(String scriptPath, int shards) {
+        Library library = new Library(shards);
+        int exitCode;
+        try (BufferedReader script = scriptPath == null
+                ? new BufferedReader(new InputStreamReader(System.in))
+                : new BufferedReader(new FileReader(scriptPath))) {
+            exitCode = new LibraryScript(library, System.out).run(script) == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("The script could not be read: " + e.getMessage());
+            exitCode = 2;
+        }
+        library.closeNoticeWriter();
+        try {
+            library.closeJournal();
+        } catch (IOException e) {
+            System.err.println("The most recent loans and returns could not be written to the journal.");
+            exitCode = 2;
+        }
+        System.out.flush();
+        System.exit(exitCode);
+    }
+
     /**
      * The userInterface method presents a switch case of commands which refer to the other methods in the LibraryIO class.
      * The userInterface allows a user to interactively work with the application. To help accessibility, commands for both advanced and novice users of the application have been implemented (i.e. i (issue) or i:id (issue by id).
@@ -128,6 +213,7 @@ public class LibraryIO {
             try {
                 System.out.print('\u000C');
 
+                printNoticeMessages();
                 System.out.println("Library Interactive System: Main Menu" +
                         "\n" +
                         "\nPlease select a command. Type help for a list of commands.");
@@ -136,6 +222,21 @@ public class LibraryIO {
                 userSelection = userInput.nextLine();
                 if (userSelection != null) {
                     switch (userSelection) {
+                        case "a":
+                            System.out.println();
+                            System.out.println("Please enter the User ID of the account you would like to view. Otherwise press enter to return to the main menu.");
+                            System.out.println();
+                            System.out.print("> ");
+                            userSelection = userInput.nextLine();
+                            if (userSelection.equals("")) {
+                                continue;
+                            }
+                            userId = Integer.valueOf(userSelection);
+                            if (userId <= 0) {
+                                throw new NumberFormatException();
+                            }
+                            userAccountInterface(library, userInput, userId);
+                            break;
                         case "b":
                             printAllBooks(library, userInput);
                             break;
@@ -205,6 +306,9 @@ public class LibraryIO {
                             }
                             returnBooksInterface(library, userInput, bookId, userId);
                             break;
+                        case "s":
+                            saveSnapshotInterface(library, userInput);
+                            break;
                         case "u":
                             printAllUsers(library, userInput);
                             break;
@@ -254,7 +358,7 @@ public class LibraryIO {
      * Appropriate messages are displayed in cases.
      * a) The book is not on loan and can be loaned by that user.
      * b) The book is not on loan and cannot be loaned by that user i.e. too many books.
-     * c) The book is on loan and cannot be loaned by that user (is on loan), issues a return notice to the user who has loaned a book.
+     * c) The book is on loan and cannot be loaned by that user (is on loan): the user is added to the queue of users waiting for the book (see Library.placeHold), so the book is issued to them when it is returned, and a return notice is issued to the user who has loaned the book.
      * d) The system has attempted to issue a return notice but has failed, asks to check permissions.
      *
      * @param library   refers to the library object to perform operations on used throughout the entire application.
@@ -301,41 +405,51 @@ public class LibraryIO {
             switch (userSelection) {
                 case "yes":
                 case ("y"):
-                    if (library.issueBookToUser(bookIndex, userIndex) == 1) {
+                    byte status = library.issueBookToUser(book.getId(), user.getId());
+                    if (status == 1) {
                         System.out.println();
                         System.out.println("The book has been successfully issued to the user." +
                                 "\n" + library.getUserdata().getUser(userIndex).getNameBySurname() + " has now loaned " + library.getUserdata().getUser(userIndex).getBooksLoaned() + " items.");
                         System.out.println("Pressing enter will return you to the main menu.");
                         userInput.nextLine();
-                    } else if (library.issueBookToUser(bookIndex, userIndex) == -1) {
+                    } else if (status == -1) {
                         System.out.println();
                         System.out.println("The book is already on loan");
-                        String path = getDefaultPathByOperatingSystem();
-                        if (path.equals("")) {
-                            System.out.println("A default path to output a return notice could not be detected." +
-                                    "\nPlease enter the path you would like to output the return notice to...");
-                            System.out.println();
-                            System.out.print("> ");
-                            path = userInput.nextLine();
-                        } else {
-                            path = getDefaultPathByOperatingSystem() + "return notice.txt";
+                        int position = library.placeHold(book.getId(), user.getId());
+                        if (position > 0) {
+                            System.out.println(user.getNameBySurname() + " has been added to the queue for this book at position " + position + ", it will be issued to them when it is returned.");
+                        } else if (position == -2) {
+                            System.out.println(user.getNameBySurname() + " is already waiting for this book, or has it on loan.");
                         }
-                        try {
-                            if ((library.writeReturnNotice(bookIndex, (path)))) {
-                                System.out.println();
-                                System.out.println("Wrote return notice to " + path + ".");
+                        if (library.getNoticePath() == null) {
+                            String path = getDefaultPathByOperatingSystem();
+                            if (path.equals("")) {
+                                System.out.println("A default directory to output return notices to could not be detected." +
+                                        "\nPlease enter the directory you would like to output return notices to...");
                                 System.out.println();
-                                System.out.println("Pressing enter will return you to the main menu.");
-                                userInput.nextLine();
+                                System.out.print("> ");
+                                path = userInput.nextLine();
                             }
-                        } catch (IOException e) {
-                            System.out.println("\nFailed to write data to " + path);
-                            System.out.println("The operation has been cancelled. Please contact your system administrator and ensure you have read and write permissions to " + path + ".");
+                            library.openNoticeWriter(path, false);
+                        }
+                        //The notice is written in the background, its outcome is reported at the main menu (see printNoticeMessages).
+                        byte noticeStatus = library.writeReturnNotice(book.getId(), (file, failure) -> noticeMessages.add(failure == null
+                                ? "Wrote return notice to " + file + "."
+                                : "Failed to write a return notice to " + file + ". Please contact your system administrator and ensure you have read and write permissions to " + file + "."));
+                        if (noticeStatus == 1) {
                             System.out.println();
-                            System.out.println("Pressing enter will return you to the main menu.");
-                            userInput.nextLine();
+                            System.out.println("A return notice will be written to " + library.getNoticePath() + ".");
+                        } else if (noticeStatus == 0) {
+                            System.out.println();
+                            System.out.println("The system is busy writing other return notices. Please try again shortly.");
+                        } else {
+                            System.out.println();
+                            System.out.println("The book has been returned in the meantime, so no return notice is needed.");
                         }
-                    } else if (library.issueBookToUser(bookIndex, userIndex) == -2) {
+                        System.out.println();
+                        System.out.println("Pressing enter will return you to the main menu.");
+                        userInput.nextLine();
+                    } else if (status == -2) {
                         System.out.println();
                         System.out.println("This user has already loaned out three books.");
                         System.out.println();
@@ -355,28 +469,17 @@ public class LibraryIO {
     }
 
     /**
-     * The printAllBooks method returns general information about all books and prints that information to the screen.
+     * The printAllBooks method returns general information about all books and prints that information to the screen, a page of PAGE_SIZE books at a time (see printPages).
      *
      * @param library   refers to the library object to perform operations on used throughout the entire application.
      * @param userInput refers to the scanner object required for taking user input instantiated in the main method and used throughout the entire application.
      */
     private static void printAllBooks(Library library, Scanner userInput) {
-        System.out.println();
-        int bookIndex = 1;
-        System.out.println("Book ID. Author Surname, Author Forename. Title. On Loan[?].");
-        System.out.println();
-        for (Book book : library.getBookshelf().getBooks()) {
-            System.out.print(bookIndex + ". " + book.getAuthorSurname() + ", " + book.getAuthorForename() + ". " + book.getTitle() + ".");
-            if (book.getOnLoanTo() == -1) {
-                System.out.print(" No.");
-            } else {
-                System.out.print(" Yes.");
-            }
-            System.out.println();
-            bookIndex++;
-        }
-        System.out.println("\nPlease press enter to continue.");
-        userInput.nextLine();
+        ShardedSortedList<Book> books = library.getBookshelf().getBooks();
+        int booksOnLoan = library.getBookshelf().getNumberOfBooksOnLoan();
+        printPages(userInput, "Book ID. Author Surname, Author Forename. Title. On Loan[?].", "books",
+                books.size() + " books, " + booksOnLoan + " on loan, " + (books.size() - booksOnLoan) + " available.",
+                books.size(), (offset, limit) -> listing.listBooks(books, offset, limit));
     }
 
     /**
@@ -387,36 +490,165 @@ public class LibraryIO {
     private static void printCommands(Scanner userInput) {
         System.out.println("\n" +
                 "The commands available from the main menu are...\n\n" +
+                "a - to display on the screen the account of a user, the books they currently have on loan.\n" +
                 "b - to display on the screen the information about all the books in the library. " +
                 "\nu - display on the screen the information about all the users." +
                 "\ni - to update the stored data when a book is issued to a user." +
                 "\ni:id - to update the stored data when a book is issued to a user by IDs only." +
                 "\nr - to update the stored data when a user returns a book to the library." +
                 "\nr:id - to update the stored data when a user returns a book to the library by IDs only." +
+                "\ns - to save a snapshot of the library which can be imported in place of the data file to start the application faster." +
                 "\nf - terminate the application.");
         System.out.println("\nPlease press enter to continue.\n");
         userInput.nextLine();
     }
 
     /**
-     * The printAllUsers method returns general information about all users and prints that information to the screen.
+     * The saveSnapshotInterface method asks the user where to save a snapshot of the library and attempts to save it there.
+     * The snapshot holds the books, users and loans of the library in their current state and can be imported at initialisation in place of the data file. The journal moves beside the snapshot (see Library.saveSnapshot).
      *
      * @param library   refers to the library object to perform operations on used throughout the entire application.
      * @param userInput refers to the scanner object required for taking user input instantiated in the main method and used throughout the entire application.
      */
-    private static void printAllUsers(Library library, Scanner userInput) {
+    private static void saveSnapshotInterface(Library library, Scanner userInput) {
+        String path = getDefaultPathByOperatingSystem();
         System.out.println();
-        int userIndex = 1;
-        System.out.println("User ID. Surname, Forename. Books Loaned.");
+        if (path.equals("")) {
+            System.out.println("Please enter the path you would like to save the snapshot to...");
+        } else {
+            path = path + "library.snapshot";
+            System.out.println("Please enter the path you would like to save the snapshot to, or press enter to save it to '" + path + "'.");
+        }
         System.out.println();
-        for (User user : library.getUserdata().getUsers()) {
-            System.out.println(userIndex + ". " + user.getNameBySurname() + ". " + user.getBooksLoaned() + ".");
-            userIndex++;
+        System.out.print("> ");
+        String pathInput = userInput.nextLine();
+        if (!pathInput.equals("")) {
+            path = pathInput;
+        }
+        try {
+            if (library.saveSnapshot(path)) {
+                System.out.println();
+                System.out.println("Saved a snapshot of the library to " + path + ".");
+                System.out.println("The journal of loans and returns has been moved to " + path + LibraryJournal.JOURNAL_SUFFIX + ". Please import the snapshot (not the original data) from now on.");
+            }
+        } catch (IOException e) {
+            System.out.println("\nFailed to write data to " + path);
+            System.out.println("The operation has been cancelled. Please contact your system administrator and ensure you have read and write permissions to " + path + ".");
+        }
+        System.out.println();
+        System.out.println("Pressing enter will return you to the main menu.");
+        userInput.nextLine();
+    }
+
+    /**
+     * The userAccountInterface method prints the account of a user: their details and the books they currently have on loan (found from the loan index of the user, see Library.getBooksLoanedToUser).
+     *
+     * @param library   refers to the library object to perform operations on used throughout the entire application.
+     * @param userInput refers to the scanner object required for taking user input instantiated in the main method and used throughout the entire application.
+     * @param userId    is the userId to validate (and convert to a userIndex used by the Library's internal architecture).
+     */
+    private static void userAccountInterface(Library library, Scanner userInput, int userId) {
+        int userIndex = userId - 1;
+        System.out.println();
+        if (userIndex >= library.getUserdata().getNumberOfUsers()) {
+            System.out.println("To perform this operation you must enter a valid ID.");
+        } else {
+            User user = library.getUserdata().getUser(userIndex);
+            System.out.println("User ID. Surname, Forename. Books Loaned.");
+            System.out.println();
+            System.out.println(userId + ". " + user.getNameBySurname() + ". " + user.getBooksLoaned() + ".");
+            System.out.println();
+            ArrayList<Book> books = library.getBooksLoanedToUser(user.getId());
+            if (books.isEmpty()) {
+                System.out.println("The user has no books on loan.");
+            } else {
+                System.out.println("Book ID. Author Surname, Author Forename. Title.");
+                System.out.println();
+                for (Book book : books) {
+                    int bookId = library.getBookshelf().getBookIndex(book.getId()) + 1;
+                    System.out.println(bookId + ". " + book.getAuthorSurname() + ", " + book.getAuthorForename() + ". " + book.getTitle() + ".");
+                }
+            }
         }
         System.out.println("\nPlease press enter to continue.");
         userInput.nextLine();
     }
 
+    /**
+     * The printNoticeMessages method prints (and forgets) the outcome of every return notice written in the background since the messages were last printed.
+     */
+    private static void printNoticeMessages() {
+        String message;
+        while ((message = noticeMessages.poll()) != null) {
+            System.out.println(message);
+            System.out.println();
+        }
+    }
+
+    /**
+     * The printAllUsers method returns general information about all users and prints that information to the screen, a page of PAGE_SIZE users at a time (see printPages).
+     *
+     * @param library   refers to the library object to perform operations on used throughout the entire application.
+     * @param userInput refers to the scanner object required for taking user input instantiated in the main method and used throughout the entire application.
+     */
+    private static void printAllUsers(Library library, Scanner userInput) {
+        ShardedSortedList<User> users = library.getUserdata().getUsers();
+        printPages(userInput, "User ID. Surname, Forename. Books Loaned.", "users", users.size() + " users.",
+                users.size(), (offset, limit) -> listing.listUsers(users, offset, limit));
+    }
+
+    /**
+     * The printPages method lets the user browse a listing page by page: pressing enter shows the next page, 'p' the previous page, and 'all' lists every item at once (the full listing is only written when it is asked for).
+     * Any other input returns to the previous menu, as does pressing enter on the last page.
+     *
+     * @param userInput refers to the scanner object required for taking user input instantiated in the main method and used throughout the entire application.
+     * @param header    specifies the heading of the columns of the listing.
+     * @param items     specifies the name of the items listed, i.e. "books".
+     * @param summary   specifies a line summarising the items, printed below every page.
+     * @param size      specifies the number of items.
+     * @param page      specifies the function which lists the items from an offset up to a limit and returns the offset of the next page (see LibraryListing).
+     */
+    private static void printPages(Scanner userInput, String header, String items, String summary, int size, IntBinaryOperator page) {
+        int offset = 0;
+        while (true) {
+            System.out.println();
+            System.out.println(header);
+            System.out.println();
+            int next = page.applyAsInt(offset, PAGE_SIZE);
+            listing.flush();
+            System.out.println();
+            System.out.println("Showing " + items + " " + Math.min(offset + 1, next) + " to " + next + " of " + size + ". " + summary);
+            System.out.println("Press enter for the next page, type 'p' for the previous page or 'all' to list all " + items + ". Please input any other data to return to the previous menu.");
+            System.out.println();
+            System.out.print("> ");
+            String userSelection = userInput.nextLine();
+            switch (userSelection) {
+                case "":
+                    if (next >= size) {
+                        return;
+                    }
+                    offset = next;
+                    break;
+                case "p":
+                    offset = Math.max(0, offset - PAGE_SIZE);
+                    break;
+                case "all":
+                    System.out.println();
+                    System.out.println(header);
+                    System.out.println();
+                    page.applyAsInt(0, size);
+                    listing.flush();
+                    System.out.println();
+                    System.out.println(summary);
+                    System.out.println("\nPlease press enter to continue.");
+                    userInput.nextLine();
+                    return;
+                default:
+                    return;
+            }
+        }
+    }
+
     /**
      * The returnBooksInterface method defines the general interface which attempts to return a book from a particular user.
      * To illustrate, a book and user may be identified by the search function but it is not the responsibility of the search function to return books from that user.
@@ -470,10 +702,14 @@ public class LibraryIO {
             switch (userSelection) {
                 case "yes":
                 case ("y"):
-                    if (library.returnBookFromUser(bookIndex, userIndex)) {
+                    if (library.returnBookFromUser(book.getId(), user.getId())) {
                         System.out.println();
                         System.out.println("The book has been successfully returned." +
                                 "\n" + library.getUserdata().getUser(userIndex).getNameBySurname() + " has now loaned " + library.getUserdata().getUser(userIndex).getBooksLoaned() + " items.\n");
+                        if (book.isOnLoan()) {
+                            //The book was issued straight away to the next user waiting for it (see Library.returnBookFromUser).
+                            System.out.println("The book has been issued to " + library.getUserdata().getUserById(book.getOnLoanTo()).getNameBySurname() + ", who was waiting for it.\n");
+                        }
                         System.out.println("Pressing enter will return you to the main menu.");
                         userInput.nextLine();
                     } else {
@@ -516,8 +752,8 @@ public class LibraryIO {
      * @param searchMode defines what function to pass information to once a search procedure has been completed.
      */
     private static void searchInterface(Library library, Scanner userInput, String searchMode) {
-        ArrayList<User> userResults;
-        ArrayList<Book> bookResults;
+        ArrayList<SearchHit<User>> userResults;
+        ArrayList<SearchHit<Book>> bookResults;
         boolean menuExit = false;
         String strInputUser = "";
         String strInputBook = "";
@@ -526,7 +762,11 @@ public class LibraryIO {
         int bookId;
 
         boolean searchByUserID = false;
+        boolean searchByUserPrefix = false;
         boolean searchByBookID = false;
+        //Searching for books to issue only needs books which are available, and searching for books to return only needs books which are on loan.
+        byte bookLoanFilter = LibraryBookshelf.ANY_BOOKS;
+        byte modeLoanFilter = searchMode.equals("issue") ? LibraryBookshelf.AVAILABLE_BOOKS : LibraryBookshelf.BOOKS_ON_LOAN;
         while (!menuExit) {
             // Present a menu to search details of users or books.
             System.out.print('\u000C');
@@ -537,10 +777,16 @@ public class LibraryIO {
             System.out.print("1. User Details: ");
             if (searchByUserID) {
                 System.out.print("[User ID] " + strInputUser + "\n");
+            } else if (searchByUserPrefix) {
+                System.out.print("[Name Begins] " + strInputUser + "\n");
             } else System.out.print(strInputUser + "\n");
             System.out.print("2. Book Details: ");
             if (searchByBookID) {
                 System.out.print("[Book ID] " + strInputBook + "\n");
+            } else if (bookLoanFilter == LibraryBookshelf.AVAILABLE_BOOKS) {
+                System.out.print("[Available] " + strInputBook + "\n");
+            } else if (bookLoanFilter == LibraryBookshelf.BOOKS_ON_LOAN) {
+                System.out.print("[On Loan] " + strInputBook + "\n");
             } else System.out.print((strInputBook + "\n"));
             System.out.println("3. Submit");
             System.out.println("4. Return to the previous menu.");
@@ -552,11 +798,13 @@ public class LibraryIO {
                     //If the user selection is for users present a submenu of ways to search.
                     case "1":
                         searchByUserID = false;
+                        searchByUserPrefix = false;
                         searchByBookID = false;
                         System.out.println();
                         System.out.println("Would you like to input the User ID or would you like to search by other details? Press enter to return to the previous selection screen.");
                         System.out.println("1. User ID.");
                         System.out.println("2. Other details (either user forename or user surname) This is a case-sensitive operation.");
+                        System.out.println("3. The start of the user's forename or surname. This is not a case-sensitive operation.");
                         System.out.println("u. Print a list of all users to the screen.");
                         System.out.println();
                         System.out.print("> ");
@@ -589,6 +837,21 @@ public class LibraryIO {
                                 strInputUser = userInput.nextLine();
                                 searchByUserID = false;
                                 break;
+                            case "3":
+                                System.out.println();
+                                System.out.println("Please enter the start of the forename or surname you would like to search by...");
+                                System.out.println();
+                                System.out.print("> ");
+                                strInputUser = userInput.nextLine();
+                                searchByUserID = false;
+                                searchByUserPrefix = true;
+                                //Suggest the first few names which begin with the input so the user can check the spelling.
+                                ArrayList<String> completions = library.getUserdata().completeUserNames(strInputUser, 5);
+                                if (!completions.isEmpty()) {
+                                    System.out.println();
+                                    System.out.println("Names beginning with " + strInputUser + " include: " + String.join(", ", completions) + ".");
+                                }
+                                break;
                             case "u":
                                 printAllUsers(library, userInput);
 
@@ -599,10 +862,16 @@ public class LibraryIO {
                     //If the user's selection is for books then present a submenu of ways to search.
                     case "2":
                         searchByBookID = false;
+                        bookLoanFilter = LibraryBookshelf.ANY_BOOKS;
                         System.out.println();
                         System.out.println("Would you like to input the Book ID or would you like to search by other details? Press enter to return to the previous selection screen.");
                         System.out.println("1. Book ID.");
                         System.out.println("2. Other details (either author forename, surname, or book title). This is a case-sensitive operation.");
+                        if (modeLoanFilter == LibraryBookshelf.AVAILABLE_BOOKS) {
+                            System.out.println("3. Other details, of books which are available (not on loan). This is a case-sensitive operation.");
+                        } else {
+                            System.out.println("3. Other details, of books which are on loan. This is a case-sensitive operation.");
+                        }
                         System.out.println("b. Print a list of all books to the screen.");
                         System.out.println();
                         System.out.print("> ");
@@ -636,6 +905,15 @@ public class LibraryIO {
                                 strInputBook = userInput.nextLine();
                                 searchByBookID = false;
                                 break;
+                            case "3":
+                                System.out.println();
+                                System.out.println("Please enter additional details (Author, Title .etc.) you would like to search by...");
+                                System.out.println();
+                                System.out.print("> ");
+                                strInputBook = userInput.nextLine();
+                                searchByBookID = false;
+                                bookLoanFilter = modeLoanFilter;
+                                break;
                             case "b":
                                 printAllBooks(library, userInput);
                             default:
@@ -664,8 +942,12 @@ public class LibraryIO {
                                 // IF the value is within range then attempt to return the userdata using that user id converted to a user index.
                                 library.getUserdata().getUser(userId - 1);
                             } else {
-                                //If we do not search by a user's id then use the searchUser's method to find the user.
-                                userResults = library.getUserdata().searchUsers(strInputUser);
+                                //If we do not search by a user's id then use the searchUsersByPrefix or searchUsers method to find the user.
+                                if (searchByUserPrefix) {
+                                    userResults = library.getUserdata().searchUsersByPrefix(strInputUser);
+                                } else {
+                                    userResults = library.getUserdata().searchUsers(strInputUser);
+                                }
                                 //If there is more than one result...
                                 if (1 < userResults.size()) {
                                     System.out.println();
@@ -673,17 +955,17 @@ public class LibraryIO {
                                     System.out.println();
                                     System.out.println("User ID. Surname, Forename. Books Loaned.");
                                     System.out.println();
-                                    // Print the users and the corresponding id determined by the number of times that user occurred in the database using the 'getUserIndexFromSearchOccurrence' method.
-                                    int occurrence = 1;
-                                    for (User user : userResults) {
-                                        System.out.println(library.getUserdata().getUserIndexFromSearchOccurrence(strInputUser, occurrence) + 1 + ". " + user.getNameBySurname() + ". " + user.getBooksLoaned() + ".");
-                                        occurrence++;
+                                    // Print the users and the corresponding id determined by the index carried by each search hit.
+                                    for (SearchHit<User> hit : userResults) {
+                                        User user = hit.getItem();
+                                        System.out.println(hit.getIndex() + 1 + ". " + user.getNameBySurname() + ". " + user.getBooksLoaned() + ".");
                                     }
                                     // Prompt the user to make a valid selection.
                                     System.out.println("\nPlease select a User ID in order to narrow the search. Pressing enter will return you to the selection screen.");
                                     System.out.println();
                                     System.out.print("> ");
                                     strInputUser = userInput.nextLine();
+                                    searchByUserPrefix = false;
                                     userId = Integer.valueOf(strInputUser);
                                     //If the user id is an invalid selection (is not within the number of users in the system) throw an ArrayIndexOutOfBoundsException.
                                     if (userId <= 0 | library.getUserdata().getNumberOfUsers() < userId) {
@@ -691,7 +973,7 @@ public class LibraryIO {
                                     }
                                     //Otherwise if only one search result is returned then use that search result.
                                 } else if (1 == userResults.size()) {
-                                    userId = library.getUserdata().getUserIndexFromSearchOccurrence(strInputUser, 1) + 1;
+                                    userId = userResults.get(0).getIndex() + 1;
                                     //This procedure exhausts the possible options we want a user to take so anything else is indicative that the search result is out of bounds.
                                 } else {
                                     throw new ArrayIndexOutOfBoundsException();
@@ -703,6 +985,7 @@ public class LibraryIO {
                             System.out.println("\nPlease press enter to return to the selection menu.");
                             strInputUser = "";
                             searchByUserID = false;
+                            searchByUserPrefix = false;
                             userInput.nextLine();
                             continue;
                         }
@@ -720,22 +1003,21 @@ public class LibraryIO {
                                 }
                                 library.getBookshelf().getBook(bookId - 1);
                             } else {
-                                bookResults = library.getBookshelf().searchBooks(strInputBook);
+                                bookResults = library.getBookshelf().searchBooks(strInputBook, bookLoanFilter);
                                 if (1 < bookResults.size()) {
                                     System.out.println();
                                     System.out.println("Books have been found and are presented below...");
                                     System.out.println("Book ID. Author Surname, Author Forename(s). Title. On Loan[?].");
                                     System.out.println();
-                                    int occurrence = 1;
-                                    for (Book book : bookResults) {
-                                        System.out.print(library.getBookshelf().getBookIndexFromSearchOccurrence(strInputBook, occurrence) + 1 + ". " + book.getAuthorSurname() + ", " + book.getAuthorForename() + "." + book.getTitle() + ".");
+                                    for (SearchHit<Book> hit : bookResults) {
+                                        Book book = hit.getItem();
+                                        System.out.print(hit.getIndex() + 1 + ". " + book.getAuthorSurname() + ", " + book.getAuthorForename() + "." + book.getTitle() + ".");
                                         if (book.getOnLoanTo() == -1) {
                                             System.out.print(" No.");
                                         } else {
                                             System.out.print(" Yes.");
                                         }
                                         System.out.println();
-                                        occurrence++;
                                     }
                                     System.out.println("\nPlease select a Book ID in order to narrow the search. Pressing enter will return you to the selection screen.");
                                     System.out.println();
@@ -746,7 +1028,7 @@ public class LibraryIO {
                                         throw new ArrayIndexOutOfBoundsException();
                                     }
                                 } else if (bookResults.size() == 1) {
-                                    bookId = library.getBookshelf().getBookIndexFromSearchOccurrence(strInputBook, 1) + 1;
+                                    bookId = bookResults.get(0).getIndex() + 1;
                                 } else {
                                     throw new ArrayIndexOutOfBoundsException();
                                 }
@@ -756,6 +1038,7 @@ public class LibraryIO {
                             System.out.println("\nPlease press enter to return to the selection menu.");
                             strInputBook = "";
                             searchByBookID = false;
+                            bookLoanFilter = LibraryBookshelf.ANY_BOOKS;
                             userInput.nextLine();
                             continue;
                         }
@@ -763,6 +1046,8 @@ public class LibraryIO {
                         //If the operation is successful for each search procedure above, then the method will send the data to the method selected by the user in the user interface.
                         strInputUser = "";
                         strInputBook = "";
+                        searchByUserPrefix = false;
+                        bookLoanFilter = LibraryBookshelf.ANY_BOOKS;
                         switch (searchMode) {
                             case "issue":
                                 issueBooksInterface(library, userInput, bookId, userId);
@@ -796,7 +1081,14 @@ public class LibraryIO {
      * @param exitCode  is the exit code the application terminates by. A non-zero error code indicates an abnormal termination (for more details please visit https://docs.oracle.com/javase/7/docs/api/java/lang/System.html#exit(int)).
      */
     private static void terminate(Library library, Scanner userInput, int exitCode) {
-        //Clear the objects and arrays before closing for a controlled and graceful termination of the application.
+        //Write any return notices and any loans and returns still waiting to be journaled, then clear the objects and arrays before closing for a controlled and graceful termination of the application.
+        library.closeNoticeWriter();
+        printNoticeMessages();
+        try {
+            library.closeJournal();
+        } catch (IOException e) {
+            System.out.println("\nThe most recent loans and returns could not be written to the journal.");
+        }
         library.clearBookshelf();
         library.clearUserdata();
         System.out.println("\n" +
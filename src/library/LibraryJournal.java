@@ -0,0 +1,389 @@
+package library;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LibraryJournal class is an append-only journal of the loans and returns made by the Library, so that the state of loans survives the application closing unexpectedly.
+ * The journal belongs to the data it was started with: events refer to books and users by their permanent ids.
+ * Importing the same text file again gives every book and user the same id, but ids are otherwise not tied to the file: a library which has been re-imported (see Library.reimportDataFromFile) holds ids a fresh import of the file would not, and a snapshot holds the ids of the library it was saved from.
+ * So that a journal is never replayed on other data, its header records a fingerprint of the books and users it belongs to (see fingerprint), and a journal whose fingerprint does not match the imported data is refused (see replay).
+ * <p>
+ * A journal file begins with a header of HEADER_SIZE bytes: JOURNAL_MAGIC, JOURNAL_VERSION, the next book id and the next user id, and a hash of the id, title and author of every book and the id and name of every user.
+ * The header is followed by records of RECORD_SIZE bytes: the kind of event (ISSUE, RETURN or CLEAR), the id of the book and the id of the user.
+ * Events are appended by the Library while it holds the lock of the book, so the events of each book are in the order they were made (events of different books may not be).
+ * Records are not written to the disk one at a time. They are collected in a buffer and written (and synced to the disk) as a group, either once GROUP_COMMIT_RECORDS records are waiting or every SYNC_INTERVAL_MS milliseconds, whichever comes first.
+ * This allows thousands of events per second to be journaled for the cost of a few syncs per second, at the price of losing at most the last SYNC_INTERVAL_MS milliseconds of events if the machine fails.
+ * The journal has two buffers (double buffering): events are appended to one while the other is written and synced to the disk, and a group is written by the background sync thread rather than by the thread which appended it.
+ * Appending therefore never waits for the disk while the lock of the journal is held, so threads holding the locks of books are not held up by a sync; only when both buffers are full does an append wait for the sync in progress to finish.
+ * <p>
+ * A record which was only partly written when the application stopped is discarded when the journal is next opened.
+ * The journal can be compacted (see compact), replacing its history with a CLEAR record (which returns every book on loan) followed by a single ISSUE record for each book currently on loan.
+ * A compacted journal therefore holds the complete state of the loans, and replays to the same state whatever loans the imported data began with (i.e. a snapshot, which holds the loans of the library it was saved from).
+ * A journal can also be moved to a new path (see moveTo), so that the journal follows the library when a snapshot of it is saved.
+ * <p>
+ * The LibraryJournal class is made package private as it is intended for use only by instances of the Library class (the journal of the library belongs to the library).
+ */
+class LibraryJournal implements Closeable {
+    static final byte ISSUE = 1;
+    static final byte RETURN = 2;
+    static final byte CLEAR = 3;
+    static final String JOURNAL_SUFFIX = ".journal";
+    private static final int JOURNAL_MAGIC = 0x4C4A4E4C;
+    private static final int JOURNAL_VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 9;
+    private static final int GROUP_COMMIT_RECORDS = 512;
+    private static final long SYNC_INTERVAL_MS = 200;
+
+    private final Object writeLock;
+    private Path path;
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private final ScheduledExecutorService syncer;
+    private FileChannel channel;
+    private int pendingRecords;
+    private boolean syncRequested;
+    private IOException failure;
+    private boolean belongs;
+
+    /**
+     * The LibraryJournal method is a constructor which opens (or creates) the journal at the specified path for appending.
+     * A new journal is given the fingerprint of the specified books and users. An existing journal is only prepared for appending if its fingerprint matches them: any record which was only partly written is removed from the end of the file, and the events already in the journal should be replayed with the replay method before any new event is appended.
+     * An existing journal whose fingerprint does not match is left untouched, and refused by replay.
+     *
+     * @param journalPath specifies the path of the journal file.
+     * @param bookshelf   specifies the books of the data imported.
+     * @param userdata    specifies the users of the data imported.
+     * @throws IOException if the journal cannot be opened or is not a journal.
+     */
+    LibraryJournal(String journalPath, LibraryBookshelf bookshelf, LibraryUserdata userdata) throws IOException {
+        path = Paths.get(journalPath);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer expected = header(bookshelf, userdata);
+        if (channel.size() == 0) {
+            channel.write(expected);
+            channel.force(false);
+            belongs = true;
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 8 || header.getInt(0) != JOURNAL_MAGIC || header.getInt(4) != JOURNAL_VERSION) {
+                channel.close();
+                throw new IOException(journalPath + " is not a journal of the library.");
+            }
+            belongs = header.equals(expected);
+            if (belongs) {
+                //Discard a record which was only partly written.
+                long complete = HEADER_SIZE + (channel.size() - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+                channel.truncate(complete);
+            }
+        }
+        channel.position(channel.size());
+        writeLock = new Object();
+        pending = ByteBuffer.allocate(GROUP_COMMIT_RECORDS * RECORD_SIZE);
+        spare = ByteBuffer.allocate(GROUP_COMMIT_RECORDS * RECORD_SIZE);
+        pendingRecords = 0;
+        syncRequested = false;
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LibraryJournal sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::syncQuietly, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The fingerprint method returns a hash of the ids of the books and users of the library together with the title and author of each book and the name of each user, so that a journal can tell whether it belongs to the data imported (see the class description).
+     * Each book and user is visited by id, so the hash does not depend on their sorted order or on the number of shards.
+     *
+     * @param bookshelf specifies the books of the library.
+     * @param userdata  specifies the users of the library.
+     * @return returns the hash.
+     */
+    static long fingerprint(LibraryBookshelf bookshelf, LibraryUserdata userdata) {
+        long hash = 0;
+        for (int id = 0; id < bookshelf.getNextBookId(); id++) {
+            Book book = bookshelf.getBookById(id);
+            if (book == null) {
+                hash = mix(hash, -1);
+            } else {
+                hash = mix(mix(mix(hash, book.getTitle().hashCode()), book.getAuthorForename().hashCode()), book.getAuthorSurname().hashCode());
+            }
+        }
+        for (int id = 0; id < userdata.getNextUserId(); id++) {
+            User user = userdata.getUserById(id);
+            if (user == null) {
+                hash = mix(hash, -1);
+            } else {
+                hash = mix(mix(hash, user.getForename().hashCode()), user.getSurname().hashCode());
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The replay method reapplies every event of the journal to the library, in the order the events were made.
+     * Each event must succeed as it did when it was journaled (see Library.replayEvent); if one does not, the journal does not belong to the data of the library and replay stops.
+     *
+     * @param library specifies the library to replay the events on, which must not be journaling to this journal yet.
+     * @return returns 1 if every event was replayed, returns -2 if the fingerprint of the journal does not match the data of the library or an event could not be replayed.
+     * @throws IOException if the journal cannot be read.
+     */
+    byte replay(Library library) throws IOException {
+        if (!belongs) {
+            return -2;
+        }
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(path));
+        records.position(HEADER_SIZE);
+        while (records.remaining() >= RECORD_SIZE) {
+            byte kind = records.get();
+            int bookId = records.getInt();
+            int userId = records.getInt();
+            if (!library.replayEvent(kind, bookId, userId)) {
+                return -2;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * The append method adds an event to the journal. The event is written to the disk with the next group of events (see the class description); once a full group of events is waiting the background sync thread is asked to write it straight away.
+     * If the other buffer is still being written when a full group is waiting, the append waits (without holding the lock of the journal) until it has been written.
+     *
+     * @param kind   specifies the kind of event, ISSUE or RETURN.
+     * @param bookId specifies the id of the book issued or returned.
+     * @param userId specifies the id of the user the book was issued to or returned from.
+     * @throws IOException if the journal (or an earlier group of events) could not be written, or the thread was interrupted while waiting for a buffer.
+     */
+    synchronized void append(byte kind, int bookId, int userId) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        while (pendingRecords == GROUP_COMMIT_RECORDS) {
+            requestSync();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the journal to be written.");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        pending.put(kind).putInt(bookId).putInt(userId);
+        pendingRecords++;
+        if (pendingRecords == GROUP_COMMIT_RECORDS) {
+            requestSync();
+        }
+    }
+
+    /**
+     * The appendAll method adds the events of a batch of operations to the journal (see Library.issueBooksToUsers), taking the lock of the journal once for the whole batch.
+     *
+     * @param kind     specifies the kind of every event, ISSUE or RETURN.
+     * @param bookIds  specifies the id of the book of each operation.
+     * @param userIds  specifies the id of the user of each operation.
+     * @param statuses specifies the status of each operation, only operations with the status 1 (applied) are journaled.
+     * @throws IOException if the journal (or an earlier group of events) could not be written.
+     */
+    synchronized void appendAll(byte kind, int[] bookIds, int[] userIds, byte[] statuses) throws IOException {
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == 1) {
+                append(kind, bookIds[i], userIds[i]);
+            }
+        }
+    }
+
+    /**
+     * The sync method writes every waiting event to the journal and syncs the journal to the disk.
+     * The buffer of waiting events is swapped for the spare buffer under the lock of the journal, then written and synced under 'writeLock' alone, so events can be appended to the other buffer meanwhile.
+     * The lock of the journal must not be held by the caller (writeLock is always taken before it).
+     *
+     * @throws IOException if the journal could not be written.
+     */
+    void sync() throws IOException {
+        synchronized (writeLock) {
+            ByteBuffer full;
+            synchronized (this) {
+                if (pendingRecords == 0 || !channel.isOpen()) {
+                    return;
+                }
+                full = pending;
+                pending = spare;
+                spare = null;
+                pendingRecords = 0;
+                notifyAll();
+            }
+            try {
+                writeFully(channel, full);
+                channel.force(false);
+            } finally {
+                full.clear();
+                synchronized (this) {
+                    spare = full;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * The compact method replaces the journal with one holding a CLEAR event followed by a single ISSUE event for each book currently on loan, which replays to the same state as the whole history of the journal.
+     * The header of the compacted journal holds the fingerprint of the books and users of the library as they are now, so a journal can be compacted against ids which have changed (see moveTo, which Library.reimportDataFromFile uses through Library.saveSnapshot).
+     * The compacted journal is first written to a temporary file beside the journal, which then replaces the journal, so the journal is never left half written.
+     *
+     * The books on loan are found by sweeping the loan column of the bookshelf (see LibraryBookshelf.getLoanColumn), in order of their ids.
+     *
+     * @param bookshelf specifies the books of the library.
+     * @param userdata  specifies the users of the library.
+     * @throws IOException if the journal could not be written.
+     */
+    void compact(LibraryBookshelf bookshelf, LibraryUserdata userdata) throws IOException {
+        moveTo(path.toString(), bookshelf, userdata);
+    }
+
+    /**
+     * The moveTo method compacts the journal (see compact) into a new path, from then on appending to the journal at that path, and removes the journal at the old path.
+     * This is used when a snapshot of the library is saved (see Library.saveSnapshot), so that the library restarted from the snapshot finds its journal beside it.
+     *
+     * @param journalPath specifies the new path of the journal (which may be its current path).
+     * @param bookshelf   specifies the books of the library.
+     * @param userdata    specifies the users of the library.
+     * @throws IOException if the journal could not be written.
+     */
+    void moveTo(String journalPath, LibraryBookshelf bookshelf, LibraryUserdata userdata) throws IOException {
+        synchronized (writeLock) {
+            sync();
+            synchronized (this) {
+                compactTo(journalPath, bookshelf, userdata);
+            }
+        }
+    }
+
+    /**
+     * The compactTo method writes the compacted journal to a new path and switches to it (see moveTo), once every waiting event has been written, holding both locks of the journal.
+     */
+    private void compactTo(String journalPath, LibraryBookshelf bookshelf, LibraryUserdata userdata) throws IOException {
+        Path destination = Paths.get(journalPath);
+        Path temporary = Paths.get(journalPath + ".tmp");
+        IdColumn loanColumn = bookshelf.getLoanColumn();
+        int limit = bookshelf.getNextBookId();
+        try (FileChannel compacted = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.put(header(bookshelf, userdata));
+            buffer.put(CLEAR).putInt(-1).putInt(-1);
+            for (int bookId = loanColumn.nextSet(0, limit); bookId != -1; bookId = loanColumn.nextSet(bookId + 1, limit)) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    writeFully(compacted, buffer);
+                }
+                buffer.put(ISSUE).putInt(bookId).putInt(loanColumn.get(bookId));
+            }
+            writeFully(compacted, buffer);
+            compacted.force(false);
+        }
+        channel.close();
+        Files.move(temporary, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (!Files.isSameFile(path, destination)) {
+            Files.deleteIfExists(path);
+        }
+        path = destination;
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    /**
+     * The close method writes every waiting event to the journal, stops the background sync and closes the journal. Any event appended after it has been closed is refused with an IOException.
+     *
+     * @throws IOException if the journal could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            syncer.shutdown();
+            try {
+                sync();
+            } finally {
+                channel.close();
+                synchronized (this) {
+                    //An append after the journal has been closed (or waiting for it to be written) fails rather than waiting forever.
+                    if (failure == null) {
+                        failure = new IOException("The journal " + path + " has been closed.");
+                    }
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * The requestSync method asks the background sync thread to write the waiting events now, rather than at the next SYNC_INTERVAL_MS, unless it has already been asked.
+     */
+    private synchronized void requestSync() {
+        if (!syncRequested && !syncer.isShutdown()) {
+            syncRequested = true;
+            syncer.execute(this::syncQuietly);
+        }
+    }
+
+    /**
+     * The syncQuietly method is run in the background every SYNC_INTERVAL_MS milliseconds, and whenever a full group of events is waiting (see requestSync). A failure is kept and reported by the next append, since there is no caller to report it to.
+     */
+    private void syncQuietly() {
+        synchronized (this) {
+            syncRequested = false;
+            if (failure != null) {
+                return;
+            }
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The header method returns the header of a journal of the specified books and users (see the class description), ready to be written.
+     */
+    private static ByteBuffer header(LibraryBookshelf bookshelf, LibraryUserdata userdata) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(JOURNAL_MAGIC).putInt(JOURNAL_VERSION);
+        header.putInt(bookshelf.getNextBookId()).putInt(userdata.getNextUserId());
+        header.putLong(fingerprint(bookshelf, userdata));
+        header.flip();
+        return header;
+    }
+
+    /**
+     * The mix method adds a value to a running 64-bit hash.
+     */
+    private static long mix(long hash, int value) {
+        long mixed = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 29);
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,298 @@
+package library;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The LibraryLineReader class reads a file line by line through a FileChannel into a large reusable buffer, for use by the LibraryFileReader in place of a Scanner.
+ * Lines are never turned into String objects as a whole: the current line is only a range of bytes in the buffer, numbers are parsed from those bytes directly (without exceptions), and Strings are only created for the parts of the line which are kept (i.e. a title or a name).
+ * <p>
+ * The reader follows the conventions of the Scanner methods it replaced (a Scanner reading a FileReader, with nextLine and hasNext), so that the LibraryFileReader accepts and rejects the same files, with the differences listed below:
+ * lines end at "\n", "\r\n" or "\r"; and hasNext is false once only whitespace remains in the file, whitespace being the ASCII characters matched by the Scanner's delimiter "\p{javaWhitespace}+" (see isSeparator).
+ * <p>
+ * The reader works on bytes rather than characters, so it differs from the Scanner in the characters which take more than one byte to encode:
+ * a Scanner also ends a line at U+0085, U+2028 and U+2029, whereas the reader treats them as part of the line; and a Scanner treats other Unicode whitespace (i.e. U+2003) as whitespace, whereas the reader treats it as a character other than whitespace when deciding hasNext.
+ * These characters do not occur in the files the library writes or in files typed by hand, and the lines and names read from a file which does not contain them are exactly those a Scanner would read.
+ * <p>
+ * Bytes are decoded with the default charset of the platform (Charset.defaultCharset, as the FileReader the reader replaced did), which is UTF-8 from Java 18 and otherwise set by the platform or the file.encoding property.
+ * That charset must be one in which line endings and ASCII whitespace are the single bytes of their ASCII codes (i.e. UTF-8, ISO-8859-1 or windows-1252, but not UTF-16), or lines will not be found.
+ * <p>
+ * The LibraryLineReader class is made package private as it is intended for use only by instances of the LibraryFileReader class.
+ */
+class LibraryLineReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private final FileChannel channel;
+    private final Charset charset;
+    private ByteBuffer buffer;
+    private byte[] bytes;
+    private int position;
+    private int limit;
+    private boolean endOfFile;
+    private long bufferOffset;
+    private int lineStart;
+    private int lineEnd;
+
+    /**
+     * The LibraryLineReader method is a constructor which opens the file at the specified path for reading.
+     *
+     * @param filepath specifies the path of the file to read.
+     * @throws IOException if the file cannot be opened (i.e. it does not exist).
+     */
+    LibraryLineReader(String filepath) throws IOException {
+        this(filepath, 0);
+    }
+
+    /**
+     * The LibraryLineReader method is a constructor which opens the file at the specified path for reading from the specified offset (which should be the start of a line).
+     * Any number of readers may read the same file at once, i.e. to read different parts of the file in parallel.
+     *
+     * @param filepath specifies the path of the file to read.
+     * @param offset   specifies the offset in bytes of the first line to read.
+     * @throws IOException if the file cannot be opened (i.e. it does not exist).
+     */
+    LibraryLineReader(String filepath, long offset) throws IOException {
+        channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ);
+        channel.position(offset);
+        bufferOffset = offset;
+        charset = Charset.defaultCharset();
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        bytes = buffer.array();
+        position = 0;
+        limit = 0;
+        endOfFile = false;
+    }
+
+    /**
+     * The hasNext method evaluates whether any character other than whitespace remains in the file (as Scanner.hasNext does, see isSeparator).
+     *
+     * @return returns true if another token remains.
+     * @throws IOException if the file cannot be read.
+     */
+    boolean hasNext() throws IOException {
+        int i = position;
+        while (true) {
+            for (; i < limit; i++) {
+                if (!isSeparator(bytes[i])) {
+                    return true;
+                }
+            }
+            int consumed = i - position;
+            if (!fill()) {
+                return false;
+            }
+            i = position + consumed;
+        }
+    }
+
+    /**
+     * The nextLine method advances to the next line of the file. The line can then be inspected with lineLength, byteAt, parseIntOver0 and lineString.
+     *
+     * @return returns true if there was another line, returns false if the end of the file has been reached.
+     * @throws IOException if the file cannot be read.
+     */
+    boolean nextLine() throws IOException {
+        int i = position;
+        while (true) {
+            for (; i < limit; i++) {
+                if (bytes[i] == '\n' || bytes[i] == '\r') {
+                    break;
+                }
+            }
+            if (i < limit) {
+                //A "\r" at the end of the buffer may be the first half of "\r\n".
+                if (bytes[i] == '\r' && i + 1 == limit && !endOfFile) {
+                    int consumed = i - position;
+                    fill();
+                    i = position + consumed;
+                    continue;
+                }
+                lineStart = position;
+                lineEnd = i;
+                position = (bytes[i] == '\r' && i + 1 < limit && bytes[i + 1] == '\n') ? i + 2 : i + 1;
+                return true;
+            }
+            int consumed = i - position;
+            if (!fill()) {
+                if (position == limit) {
+                    return false;
+                }
+                lineStart = position;
+                lineEnd = limit;
+                position = limit;
+                return true;
+            }
+            i = position + consumed;
+        }
+    }
+
+    /**
+     * The lineLength method returns the number of bytes of the current line (excluding the line ending).
+     *
+     * @return returns the length of the current line.
+     */
+    int lineLength() {
+        return lineEnd - lineStart;
+    }
+
+    /**
+     * The lineOffset method returns the offset in bytes of the start of the current line within the file.
+     *
+     * @return returns the offset of the current line.
+     */
+    long lineOffset() {
+        return bufferOffset + lineStart;
+    }
+
+    /**
+     * The byteAt method returns a byte of the current line.
+     *
+     * @param index specifies the offset of the byte within the current line.
+     * @return returns the byte at that offset.
+     */
+    byte byteAt(int index) {
+        return bytes[lineStart + index];
+    }
+
+    /**
+     * The lastIndexOf method returns the offset of the last occurrence of a byte within the current line.
+     *
+     * @param b specifies the byte to find.
+     * @return returns the offset of the last occurrence, or -1 if the byte does not occur.
+     */
+    int lastIndexOf(byte b) {
+        for (int i = lineEnd - 1; i >= lineStart; i--) {
+            if (bytes[i] == b) {
+                return i - lineStart;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The lineString method decodes part of the current line as a String.
+     *
+     * @param from specifies the offset of the first byte (inclusive).
+     * @param to   specifies the offset of the last byte (exclusive).
+     * @return returns the decoded String.
+     */
+    String lineString(int from, int to) {
+        return new String(bytes, lineStart + from, to - from, charset);
+    }
+
+    /**
+     * The linePooledString method decodes part of the current line as a String through a StringPool, so a name which has been read before is not decoded again but the pooled String returned.
+     *
+     * @param from specifies the offset of the first byte (inclusive).
+     * @param to   specifies the offset of the last byte (exclusive).
+     * @param pool specifies the pool (i.e. StringPool.NAMES).
+     * @return returns the pooled String.
+     */
+    String linePooledString(int from, int to, StringPool pool) {
+        return pool.intern(bytes, lineStart + from, to - from, charset);
+    }
+
+    /**
+     * The parseIntOver0 method evaluates whether the current line is an integer over 0, as accepted by Integer.parseInt (an optional sign followed by decimal digits which fit in an int).
+     * Unlike Integer.parseInt no exception is thrown (or String created) for lines which are not integers.
+     *
+     * @return returns the value of the integer if it is over 0, else returns -1.
+     */
+    int parseIntOver0() {
+        int i = lineStart;
+        boolean negative = false;
+        if (i < lineEnd && (bytes[i] == '+' || bytes[i] == '-')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        if (i == lineEnd) {
+            return -1;
+        }
+        long value = 0;
+        for (; i < lineEnd; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = 10 * value + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                return -1;
+            }
+        }
+        if (negative || value == 0 || value > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return (int) value;
+    }
+
+    /**
+     * The isSeparator method evaluates whether a byte is one of the ASCII characters matched by the regular expression "\\p{javaWhitespace}", the default delimiter of a Scanner (see Character.isWhitespace).
+     * These are the whitespace characters of isWhitespace along with the four information separators U+001C to U+001F.
+     *
+     * @param b specifies the byte to evaluate.
+     * @return returns true if the byte is a separator.
+     */
+    static boolean isSeparator(byte b) {
+        return isWhitespace(b) || (b >= 0x1C && b <= 0x1F);
+    }
+
+    /**
+     * The isWhitespace method evaluates whether a byte is one of the whitespace characters matched by the regular expression "\\s" (space, tab, line feed, vertical tab, form feed and carriage return), as used to split a line into words (see LibraryFileReader.splitOnWhitespace).
+     *
+     * @param b specifies the byte to evaluate.
+     * @return returns true if the byte is whitespace.
+     */
+    static boolean isWhitespace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+
+    /**
+     * The close method closes the underlying file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The fill method reads more of the file into the buffer, keeping the unread bytes from 'position' onwards (the buffer grows if a single line does not fit).
+     *
+     * @return returns true if more bytes were read, returns false if the end of the file has been reached.
+     * @throws IOException if the file cannot be read.
+     */
+    private boolean fill() throws IOException {
+        if (endOfFile) {
+            return false;
+        }
+        int remaining = limit - position;
+        if (position == 0 && limit == bytes.length) {
+            ByteBuffer larger = ByteBuffer.allocate(2 * bytes.length);
+            larger.put(bytes, 0, limit);
+            buffer = larger;
+            bytes = buffer.array();
+        } else {
+            System.arraycopy(bytes, position, bytes, 0, remaining);
+        }
+        bufferOffset += position;
+        position = 0;
+        limit = remaining;
+        buffer.clear();
+        buffer.position(limit);
+        int read = channel.read(buffer);
+        while (read == 0) {
+            read = channel.read(buffer);
+        }
+        if (read < 0) {
+            endOfFile = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+}
@@ -0,0 +1,154 @@
+package library;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+
+/**
+ * The LibraryListing class writes listings of books and users (see LibraryIO.printAllBooks and LibraryIO.printAllUsers) a page at a time, or in full when asked to.
+ * Rows are rendered into a reusable StringBuilder (numbers are appended as digits, never as Strings), and once BLOCK_CHARS characters are waiting they are encoded with the default charset into a reusable buffer and written through a channel as one large block,
+ * rather than every part of every row being printed separately. Nothing is written to the channel until a block is full or the listing is flushed.
+ * <p>
+ * A page is given by the index of its first row and the number of rows (an offset and a limit). The rows are found with ShardedSortedList.iterator(int), which starts at the offset without walking the rows before it,
+ * and each list method returns the index of the row after the last one written, so the caller can keep that index as a cursor and ask for the next page from it.
+ * <p>
+ * The LibraryListing class is made package private as it is intended for use only by the user interface of the library (see LibraryIO).
+ */
+class LibraryListing {
+    private static final int BLOCK_CHARS = 1 << 15;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final StringBuilder rows;
+    private final ByteBuffer bytes;
+
+    /**
+     * The LibraryListing method is a constructor which prepares a listing written to an output stream (i.e. System.out).
+     *
+     * @param out specifies the stream to write the listing to.
+     */
+    LibraryListing(OutputStream out) {
+        channel = Channels.newChannel(out);
+        encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        rows = new StringBuilder(BLOCK_CHARS + 256);
+        bytes = ByteBuffer.allocate(4 * BLOCK_CHARS);
+    }
+
+    /**
+     * The listBooks method writes a page of books, one row per book in the format "Book ID. Author Surname, Author Forename. Title. On Loan[?].".
+     *
+     * @param books  specifies the books of the bookshelf.
+     * @param offset specifies the index of the first book of the page.
+     * @param limit  specifies the largest number of books on the page.
+     * @return returns the index of the book after the last book written (the cursor of the next page), which is the number of books if the last page has been written.
+     */
+    int listBooks(ShardedSortedList<Book> books, int offset, int limit) {
+        int end = (int) Math.min(books.size(), (long) offset + limit);
+        if (offset >= end) {
+            return Math.min(offset, books.size());
+        }
+        int index = offset;
+        for (Iterator<Book> it = books.iterator(offset); index < end; index++) {
+            Book book = it.next();
+            rows.append(index + 1).append(". ")
+                    .append(book.getAuthorSurname()).append(", ")
+                    .append(book.getAuthorForename()).append(". ")
+                    .append(book.getTitle()).append('.')
+                    .append(book.isOnLoan() ? " Yes." : " No.")
+                    .append(System.lineSeparator());
+            writeIfFull();
+        }
+        return end;
+    }
+
+    /**
+     * The listUsers method writes a page of users, one row per user in the format "User ID. Surname, Forename. Books Loaned.".
+     *
+     * @param users  specifies the users of the userdata.
+     * @param offset specifies the index of the first user of the page.
+     * @param limit  specifies the largest number of users on the page.
+     * @return returns the index of the user after the last user written (the cursor of the next page), which is the number of users if the last page has been written.
+     */
+    int listUsers(ShardedSortedList<User> users, int offset, int limit) {
+        int end = (int) Math.min(users.size(), (long) offset + limit);
+        if (offset >= end) {
+            return Math.min(offset, users.size());
+        }
+        int index = offset;
+        for (Iterator<User> it = users.iterator(offset); index < end; index++) {
+            User user = it.next();
+            rows.append(index + 1).append(". ")
+                    .append(user.getSurname()).append(", ")
+                    .append(user.getForename()).append(". ")
+                    .append(user.getBooksLoaned()).append('.')
+                    .append(System.lineSeparator());
+            writeIfFull();
+        }
+        return end;
+    }
+
+    /**
+     * The flush method writes every row still waiting in the buffer. It must be called once a page has been listed, before anything else is printed.
+     */
+    void flush() {
+        write();
+    }
+
+    /**
+     * The writeIfFull method writes the waiting rows once at least BLOCK_CHARS characters are waiting.
+     */
+    private void writeIfFull() {
+        if (rows.length() >= BLOCK_CHARS) {
+            write();
+        }
+    }
+
+    /**
+     * The write method encodes the waiting rows into the buffer and writes the buffer to the channel each time it fills, then empties the waiting rows.
+     *
+     * @throws UncheckedIOException if the listing cannot be written.
+     */
+    private void write() {
+        if (rows.length() == 0) {
+            return;
+        }
+        try {
+            CharBuffer chars = CharBuffer.wrap(rows);
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(chars, bytes, true);
+                if (result.isOverflow()) {
+                    drain();
+                }
+            } while (result.isOverflow());
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+            drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rows.setLength(0);
+        }
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
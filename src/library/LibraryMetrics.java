@@ -0,0 +1,462 @@
+package library;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * The LibraryMetrics class counts and times the operations of the library (imports, searches, issues, returns and notices), and publishes the counts through JMX so they can be read while the library is running (i.e. with jconsole, or a scraper connected to the platform MBeanServer).
+ * There is one LibraryMetrics for the whole application, METRICS, which the classes of the library record into; register publishes it as the MBean OBJECT_NAME.
+ * <p>
+ * Recording never allocates and never takes a lock, as it is done on every issue, return and search: counts are kept in LongAdders (which spread threads recording at once over separate cells), and distributions in Histograms of AtomicLongs.
+ * A Histogram has eight buckets for each power of two, so its percentiles are within an eighth of the true value, and it remembers the exact mean and maximum.
+ * <p>
+ * Every attribute of the MBean is a Long, counted from the start of the application. The attributes of a Histogram 'X' are XCount, XMean, XP50, XP90, XP99 and XMax; latencies are in nanoseconds.
+ * <p>
+ * The LibraryMetrics class is made package private as it is intended for use only by the classes of the library (it is read through JMX, not called).
+ */
+class LibraryMetrics implements DynamicMBean {
+    static final String OBJECT_NAME = "Library:type=Metrics";
+    static final LibraryMetrics METRICS = new LibraryMetrics();
+
+    private final LongAdder importsSucceeded = new LongAdder();
+    private final LongAdder importsFailedCount = new LongAdder();
+    private final LongAdder importsFailedSyntax = new LongAdder();
+    private final LongAdder importsFailedIO = new LongAdder();
+    private final LongAdder importedRecords = new LongAdder();
+    private final AtomicLong lastImportRecordsPerSecond = new AtomicLong();
+    private final Histogram importNanos = new Histogram();
+
+    private final Histogram searchBooksNanos = new Histogram();
+    private final Histogram searchBooksHits = new Histogram();
+    private final Histogram searchBooksQueryLength = new Histogram();
+    private final Histogram searchUsersNanos = new Histogram();
+    private final Histogram searchUsersHits = new Histogram();
+    private final Histogram searchUsersQueryLength = new Histogram();
+
+    private final LongAdder issuesSucceeded = new LongAdder();
+    private final LongAdder issuesAlreadyOnLoan = new LongAdder();
+    private final LongAdder issuesLimitReached = new LongAdder();
+    private final LongAdder issuesUnknown = new LongAdder();
+    private final Histogram issueNanos = new Histogram();
+    private final LongAdder returnsSucceeded = new LongAdder();
+    private final LongAdder returnsNotOnLoan = new LongAdder();
+    private final LongAdder returnsUnknown = new LongAdder();
+    private final Histogram returnNanos = new Histogram();
+    private final LongAdder holdsPlaced = new LongAdder();
+    private final LongAdder holdsFulfilled = new LongAdder();
+    private final LongAdder holdsSkipped = new LongAdder();
+
+    private final LongAdder noticesQueued = new LongAdder();
+    private final LongAdder noticesRejected = new LongAdder();
+    private final LongAdder noticesWritten = new LongAdder();
+    private final LongAdder noticesFailed = new LongAdder();
+    private final Histogram noticeNanos = new Histogram();
+
+    private final LinkedHashMap<String, LongSupplier> attributes = new LinkedHashMap<>();
+    private final LinkedHashMap<String, String> descriptions = new LinkedHashMap<>();
+
+    /**
+     * The LibraryMetrics method is a constructor which names every attribute of the MBean. It is private as there is only one LibraryMetrics, METRICS.
+     */
+    private LibraryMetrics() {
+        attribute("ImportsSucceeded", "Imports which succeeded (status 1).", importsSucceeded::sum);
+        attribute("ImportsFailedCount", "Imports which failed as a number of books or users was wrong (status -1).", importsFailedCount::sum);
+        attribute("ImportsFailedSyntax", "Imports which failed as the file was not in the right format (status -2).", importsFailedSyntax::sum);
+        attribute("ImportsFailedIO", "Imports which failed as the file could not be read.", importsFailedIO::sum);
+        attribute("ImportedRecords", "Books and users imported by imports which succeeded.", importedRecords::sum);
+        attribute("LastImportRecordsPerSecond", "Books and users imported per second by the last import which succeeded.", lastImportRecordsPerSecond::get);
+        histogram("ImportNanos", "The time taken by imports", importNanos);
+        histogram("SearchBooksNanos", "The time taken by searches of the books", searchBooksNanos);
+        histogram("SearchBooksHits", "The number of books found by searches of the books", searchBooksHits);
+        histogram("SearchBooksQueryLength", "The length of the text of searches of the books", searchBooksQueryLength);
+        histogram("SearchUsersNanos", "The time taken by searches of the users", searchUsersNanos);
+        histogram("SearchUsersHits", "The number of users found by searches of the users", searchUsersHits);
+        histogram("SearchUsersQueryLength", "The length of the text of searches of the users", searchUsersQueryLength);
+        attribute("IssuesSucceeded", "Books issued (status 1).", issuesSucceeded::sum);
+        attribute("IssuesAlreadyOnLoan", "Issues refused as the book was already on loan (status -1).", issuesAlreadyOnLoan::sum);
+        attribute("IssuesLimitReached", "Issues refused as the user had reached their limit of books (status -2).", issuesLimitReached::sum);
+        attribute("IssuesUnknown", "Issues of a batch refused as there was no such book or user (status -3).", issuesUnknown::sum);
+        histogram("IssueNanos", "The time taken by single issues", issueNanos);
+        attribute("ReturnsSucceeded", "Books returned.", returnsSucceeded::sum);
+        attribute("ReturnsNotOnLoan", "Returns refused as the book was not on loan to the user.", returnsNotOnLoan::sum);
+        attribute("ReturnsUnknown", "Returns of a batch refused as there was no such book or user (status -3).", returnsUnknown::sum);
+        histogram("ReturnNanos", "The time taken by single returns", returnNanos);
+        attribute("HoldsPlaced", "Users added to the queue of a book on loan.", holdsPlaced::sum);
+        attribute("HoldsFulfilled", "Books handed on return to the next user waiting for them.", holdsFulfilled::sum);
+        attribute("HoldsSkipped", "Users passed over when a book was returned, as they had reached their limit of books or were no longer users.", holdsSkipped::sum);
+        attribute("NoticesQueued", "Notices queued to be written.", noticesQueued::sum);
+        attribute("NoticesRejected", "Notices refused as the queue of the notice writer was full or closed.", noticesRejected::sum);
+        attribute("NoticesWritten", "Notices written.", noticesWritten::sum);
+        attribute("NoticesFailed", "Notices which could not be written.", noticesFailed::sum);
+        histogram("NoticeNanos", "The time from queueing a notice to it being written", noticeNanos);
+    }
+
+    /**
+     * The register method publishes METRICS on the platform MBeanServer as OBJECT_NAME. Registering more than once has no further effect.
+     *
+     * @return returns true if the metrics are published, returns false if they could not be (i.e. if JMX is not permitted).
+     */
+    static boolean register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(METRICS, new ObjectName(OBJECT_NAME));
+            return true;
+        } catch (InstanceAlreadyExistsException e) {
+            return true;
+        } catch (JMException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The recordImport method records an import of data, see Library.importDataFromFile.
+     *
+     * @param status  specifies the status returned by the import (see LibraryFileReader.importDataFromFile).
+     * @param records specifies the number of books and users held once the import succeeded.
+     * @param nanos   specifies the time taken by the import.
+     */
+    void recordImport(byte status, long records, long nanos) {
+        importNanos.record(nanos);
+        if (status == 1) {
+            importsSucceeded.increment();
+            importedRecords.add(records);
+            lastImportRecordsPerSecond.set(nanos > 0 ? records * 1000000000L / nanos : records);
+        } else if (status == -1) {
+            importsFailedCount.increment();
+        } else {
+            importsFailedSyntax.increment();
+        }
+    }
+
+    /**
+     * The recordImportFailure method records an import which could not read its file.
+     */
+    void recordImportFailure() {
+        importsFailedIO.increment();
+    }
+
+    /**
+     * The recordSearchBooks method records a search of the books, see LibraryBookshelf.searchBooks.
+     *
+     * @param queryLength specifies the length of the text searched for.
+     * @param hits        specifies the number of books found.
+     * @param nanos       specifies the time taken by the search.
+     */
+    void recordSearchBooks(int queryLength, int hits, long nanos) {
+        searchBooksQueryLength.record(queryLength);
+        searchBooksHits.record(hits);
+        searchBooksNanos.record(nanos);
+    }
+
+    /**
+     * The recordSearchUsers method records a search of the users, see LibraryUserdata.searchUsers.
+     *
+     * @param queryLength specifies the length of the text searched for.
+     * @param hits        specifies the number of users found.
+     * @param nanos       specifies the time taken by the search.
+     */
+    void recordSearchUsers(int queryLength, int hits, long nanos) {
+        searchUsersQueryLength.record(queryLength);
+        searchUsersHits.record(hits);
+        searchUsersNanos.record(nanos);
+    }
+
+    /**
+     * The recordIssue method records a single issue, see Library.issueBookToUser.
+     *
+     * @param status specifies the status returned by the issue.
+     * @param nanos  specifies the time taken by the issue.
+     */
+    void recordIssue(byte status, long nanos) {
+        countIssue(status);
+        issueNanos.record(nanos);
+    }
+
+    /**
+     * The recordIssues method records the items of a batch of issues, see Library.issueBooksToUsers. Items which were undone (status 0) are not counted.
+     *
+     * @param statuses specifies the status of each item.
+     */
+    void recordIssues(byte[] statuses) {
+        for (byte status : statuses) {
+            countIssue(status);
+        }
+    }
+
+    /**
+     * The recordReturn method records a single return, see Library.returnBookFromUser.
+     *
+     * @param returned specifies whether the book was returned.
+     * @param nanos    specifies the time taken by the return.
+     */
+    void recordReturn(boolean returned, long nanos) {
+        countReturn(returned ? (byte) 1 : (byte) -1);
+        returnNanos.record(nanos);
+    }
+
+    /**
+     * The recordReturns method records the items of a batch of returns, see Library.returnBooksFromUsers. Items which were undone (status 0) are not counted.
+     *
+     * @param statuses specifies the status of each item.
+     */
+    void recordReturns(byte[] statuses) {
+        for (byte status : statuses) {
+            countReturn(status);
+        }
+    }
+
+    /**
+     * The recordHoldPlaced method records a user added to the queue of a book, see Library.placeHold.
+     */
+    void recordHoldPlaced() {
+        holdsPlaced.increment();
+    }
+
+    /**
+     * The recordHoldHandover method records a returned book being offered to the users waiting for it, see Library.returnBookFromUser.
+     *
+     * @param fulfilled specifies whether the book was handed to a user waiting for it.
+     * @param skipped   specifies the number of users waiting who were passed over.
+     */
+    void recordHoldHandover(boolean fulfilled, int skipped) {
+        if (fulfilled) {
+            holdsFulfilled.increment();
+        }
+        holdsSkipped.add(skipped);
+    }
+
+    /**
+     * The recordNoticeQueued method records a notice offered to the notice writer, see LibraryNoticeWriter.submit.
+     *
+     * @param queued specifies whether the notice was queued.
+     */
+    void recordNoticeQueued(boolean queued) {
+        if (queued) {
+            noticesQueued.increment();
+        } else {
+            noticesRejected.increment();
+        }
+    }
+
+    /**
+     * The recordNoticeWritten method records a notice once the notice writer has written it, or failed to.
+     *
+     * @param written specifies whether the notice was written.
+     * @param nanos   specifies the time from queueing the notice to it being written.
+     */
+    void recordNoticeWritten(boolean written, long nanos) {
+        if (written) {
+            noticesWritten.increment();
+        } else {
+            noticesFailed.increment();
+        }
+        noticeNanos.record(nanos);
+    }
+
+    private void countIssue(byte status) {
+        if (status == 1) {
+            issuesSucceeded.increment();
+        } else if (status == -1) {
+            issuesAlreadyOnLoan.increment();
+        } else if (status == -2) {
+            issuesLimitReached.increment();
+        } else if (status == -3) {
+            issuesUnknown.increment();
+        }
+    }
+
+    private void countReturn(byte status) {
+        if (status == 1) {
+            returnsSucceeded.increment();
+        } else if (status == -1) {
+            returnsNotOnLoan.increment();
+        } else if (status == -3) {
+            returnsUnknown.increment();
+        }
+    }
+
+    /**
+     * The getAttribute method returns the value of an attribute (see the class description).
+     *
+     * @param name specifies the name of the attribute.
+     * @return returns the value of the attribute, a Long.
+     * @throws AttributeNotFoundException if there is no such attribute.
+     */
+    @Override
+    public Object getAttribute(String name) throws AttributeNotFoundException {
+        LongSupplier attribute = attributes.get(name);
+        if (attribute == null) {
+            throw new AttributeNotFoundException(name);
+        }
+        return attribute.getAsLong();
+    }
+
+    /**
+     * The getAttributes method returns the values of the named attributes, leaving out any which do not exist.
+     */
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            LongSupplier attribute = attributes.get(name);
+            if (attribute != null) {
+                list.add(new Attribute(name, attribute.getAsLong()));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * The setAttribute method always fails, as every attribute is read only.
+     */
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read only");
+    }
+
+    /**
+     * The setAttributes method sets nothing, as every attribute is read only.
+     */
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    /**
+     * The invoke method always fails, as the MBean has no operations.
+     */
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /**
+     * The getMBeanInfo method describes every attribute of the MBean.
+     */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        MBeanAttributeInfo[] infos = new MBeanAttributeInfo[attributes.size()];
+        int i = 0;
+        for (Map.Entry<String, String> description : descriptions.entrySet()) {
+            infos[i++] = new MBeanAttributeInfo(description.getKey(), Long.class.getName(), description.getValue(), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Counts and times of the operations of the library.", infos, null, new MBeanOperationInfo[0], null);
+    }
+
+    private void attribute(String name, String description, LongSupplier value) {
+        attributes.put(name, value);
+        descriptions.put(name, description);
+    }
+
+    private void histogram(String name, String description, Histogram histogram) {
+        attribute(name + "Count", description + ": the number recorded.", histogram::count);
+        attribute(name + "Mean", description + ": the mean.", histogram::mean);
+        attribute(name + "P50", description + ": the median.", () -> histogram.percentile(0.5));
+        attribute(name + "P90", description + ": the 90th percentile.", () -> histogram.percentile(0.9));
+        attribute(name + "P99", description + ": the 99th percentile.", () -> histogram.percentile(0.99));
+        attribute(name + "Max", description + ": the maximum.", histogram::max);
+    }
+
+    /**
+     * The Histogram class records the distribution of values of at least 0 (i.e. latencies) in buckets: a bucket for each value below SUB_BUCKETS, then SUB_BUCKETS buckets of equal width for each power of two above it.
+     */
+    private static class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 << SUB_BITS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * The record method records a value (a negative value is recorded as 0).
+         *
+         * @param value specifies the value.
+         */
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(bucketOf(value));
+            count.increment();
+            sum.add(value);
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / n;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * The percentile method returns the largest value of the bucket holding the specified fraction of the values recorded (but never more than the maximum recorded).
+         *
+         * @param fraction specifies the fraction, between 0 and 1.
+         * @return returns the percentile, or 0 if nothing has been recorded.
+         */
+        long percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(fraction * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return Math.min(largestOf(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long largestOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long smallest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return smallest + (1L << shift) - 1;
+        }
+    }
+}
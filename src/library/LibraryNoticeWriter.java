@@ -0,0 +1,277 @@
+package library;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * The LibraryNoticeWriter class writes return notices in the background, so that the thread which asks for a notice (i.e. the user interface) never waits for the disk.
+ * Notices are placed on a bounded queue by the submit method and taken from it in batches by a single writer thread, which renders the notices from their templates (see NoticeTemplate) into one reusable buffer and writes each file of the batch through a FileChannel.
+ * Rendering allocates nothing per notice: the text of a notice is never built as a String, the buffer is only written out once it is full or the notices of a file have all been rendered.
+ * <p>
+ * Notices are written in one of two ways, chosen when the LibraryNoticeWriter is created:
+ * (1) Per user: each notice is appended to the file "[kind of notice] [user id].txt" in a directory (i.e. "return notice 7.txt" or "hold ready notice 7.txt", see NoticeTemplate.getName), so each user has a file of their own notices of each kind.
+ * (2) Spool: every notice is appended to a single spool file, which is rolled over (renamed to "[spool file].[n]") once it grows beyond SPOOL_ROLL_BYTES.
+ * <p>
+ * The queue holds at most QUEUE_CAPACITY notices. When it is full submit does not wait but returns false (backpressure), so the caller can decide whether to try again later.
+ * Once a notice has been written, or could not be written, the callback given with the notice is run on the writer thread with the file written to and any IOException.
+ * A notice which cannot be written, or a callback which throws, never stops the writer thread (see writeBatch and written), so the queue is always drained.
+ * <p>
+ * The LibraryNoticeWriter class is made package private as it is intended for use only by instances of the Library class (the notices of the library are written by the library).
+ */
+class LibraryNoticeWriter implements Closeable {
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_BATCH = 256;
+    private static final long SPOOL_ROLL_BYTES = 8L << 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final Notice END = new Notice(null, null, null, null);
+
+    private final String path;
+    private final boolean spool;
+    private final BlockingQueue<Notice> queue;
+    private final Thread writer;
+    private ByteBuffer buffer;
+    private boolean closed;
+
+    /**
+     * The LibraryNoticeWriter method is a constructor which starts the writer thread.
+     *
+     * @param path  specifies the directory to write notices to (per user), or the spool file to write notices to (spool).
+     * @param spool specifies whether notices are written to a single spool file rather than a file per user.
+     */
+    LibraryNoticeWriter(String path, boolean spool) {
+        this.path = path;
+        this.spool = spool;
+        queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        closed = false;
+        writer = new Thread(this::writeNotices, "LibraryNoticeWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * The submit method places a notice on the queue to be written, without waiting.
+     *
+     * @param template  specifies the template of the notice (i.e. LibraryFileWriter.RETURN_NOTICE).
+     * @param user      specifies the user to address the notice to (whose id names the file of that user).
+     * @param book      specifies the book the notice is about.
+     * @param onWritten specifies the callback to run once the notice has been written, with the file written to and null, or with the file and the IOException which prevented it being written.
+     * @return returns true if the notice was queued, returns false if the queue is full or the writer has been closed.
+     * @throws IllegalArgumentException if the user or the book is null (the notice could not be rendered).
+     */
+    synchronized boolean submit(NoticeTemplate template, User user, Book book, BiConsumer<String, IOException> onWritten) {
+        if (template == null || user == null || book == null) {
+            throw new IllegalArgumentException("A notice must have a template, a user to address it to and a book.");
+        }
+        if (closed) {
+            LibraryMetrics.METRICS.recordNoticeQueued(false);
+            return false;
+        }
+        boolean queued = queue.offer(new Notice(template, user, book, onWritten));
+        LibraryMetrics.METRICS.recordNoticeQueued(queued);
+        return queued;
+    }
+
+    /**
+     * The getPath method returns the directory or spool file notices are written to.
+     *
+     * @return returns the path of the notices.
+     */
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * The close method stops accepting notices, waits for every notice already queued to be written and stops the writer thread.
+     * If the writer thread has stopped (which it only does on an Error) the notices still queued are not written, and close does not wait for them.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                while (!queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                    if (!writer.isAlive()) {
+                        break;
+                    }
+                }
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The writeNotices method is run by the writer thread: it waits for a notice, takes every other notice waiting (up to MAX_BATCH), and writes them as a batch, until the writer is closed.
+     */
+    private void writeNotices() {
+        ArrayList<Notice> batch = new ArrayList<>(MAX_BATCH);
+        boolean ending = false;
+        while (!ending) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            if (batch.remove(END)) {
+                //Notices are never queued after END, but write any taken with it.
+                ending = true;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * The writeBatch method groups a batch of notices by the file they are written to, and renders the notices of each file into the buffer, writing the buffer to the file whenever it fills and once more at the end.
+     * A RuntimeException thrown while a file is written (i.e. by a template) is reported to the callbacks of the notices of that file as the cause of an IOException, like a failure to write the file, so the writer thread keeps writing the notices which follow.
+     *
+     * @param batch specifies the notices to write.
+     */
+    private void writeBatch(ArrayList<Notice> batch) {
+        LinkedHashMap<String, ArrayList<Notice>> byFile = new LinkedHashMap<>();
+        for (Notice notice : batch) {
+            String file;
+            try {
+                file = fileOf(notice);
+            } catch (RuntimeException e) {
+                written(notice, null, new IOException("The file of the notice could not be named.", e));
+                continue;
+            }
+            byFile.computeIfAbsent(file, name -> new ArrayList<>()).add(notice);
+        }
+        for (Map.Entry<String, ArrayList<Notice>> file : byFile.entrySet()) {
+            IOException failure = null;
+            try {
+                if (spool) {
+                    rollSpool();
+                }
+                try (FileChannel out = FileChannel.open(Paths.get(file.getKey()), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    buffer.clear();
+                    for (Notice notice : file.getValue()) {
+                        while (!notice.template.render(buffer, notice.user, notice.book)) {
+                            if (buffer.position() == 0) {
+                                //A single notice larger than the buffer.
+                                buffer = ByteBuffer.allocate(2 * buffer.capacity());
+                            } else {
+                                writeFully(out);
+                            }
+                        }
+                    }
+                    writeFully(out);
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                buffer.clear();
+                failure = new IOException("The notices could not be written to " + file.getKey() + ".", e);
+            }
+            for (Notice notice : file.getValue()) {
+                written(notice, file.getKey(), failure);
+            }
+        }
+    }
+
+    /**
+     * The written method records that a notice has been written (or could not be) and runs its callback. A RuntimeException thrown by the callback is not passed on, so it cannot stop the writer thread.
+     *
+     * @param notice  specifies the notice.
+     * @param file    specifies the file the notice was written to (null if it could not be named).
+     * @param failure specifies the IOException which prevented the notice being written, or null if it was written.
+     */
+    private static void written(Notice notice, String file, IOException failure) {
+        LibraryMetrics.METRICS.recordNoticeWritten(failure == null, System.nanoTime() - notice.queued);
+        if (notice.onWritten != null) {
+            try {
+                notice.onWritten.accept(file, failure);
+            } catch (RuntimeException e) {
+                //The callback belongs to the caller of submit, its failure does not concern the other notices.
+            }
+        }
+    }
+
+    /**
+     * The fileOf method returns the file a notice is written to.
+     */
+    private String fileOf(Notice notice) {
+        if (spool) {
+            return path;
+        }
+        return new File(path, notice.template.getName() + " " + notice.user.getId() + ".txt").getPath();
+    }
+
+    /**
+     * The writeFully method writes the rendered contents of the buffer to a file and empties the buffer.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    private void writeFully(FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * The rollSpool method renames the spool file to the first free name "[spool file].[n]" once it has grown beyond SPOOL_ROLL_BYTES, so that notices are written to a new spool file.
+     *
+     * @throws IOException if the spool file could not be renamed.
+     */
+    private void rollSpool() throws IOException {
+        File spoolFile = new File(path);
+        if (spoolFile.length() < SPOOL_ROLL_BYTES) {
+            return;
+        }
+        int n = 1;
+        while (new File(path + "." + n).exists()) {
+            n++;
+        }
+        if (!spoolFile.renameTo(new File(path + "." + n))) {
+            throw new IOException("The spool file " + path + " could not be rolled over.");
+        }
+    }
+
+    /**
+     * The Notice class holds a notice waiting to be written: its template, the user and book it is rendered for, and when it was queued (for LibraryMetrics).
+     */
+    private static class Notice {
+        private final NoticeTemplate template;
+        private final User user;
+        private final Book book;
+        private final BiConsumer<String, IOException> onWritten;
+        private final long queued;
+
+        private Notice(NoticeTemplate template, User user, Book book, BiConsumer<String, IOException> onWritten) {
+            this.template = template;
+            this.user = user;
+            this.book = book;
+            this.onWritten = onWritten;
+            this.queued = System.nanoTime();
+        }
+    }
+}
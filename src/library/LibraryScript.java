@@ -0,0 +1,379 @@
+package library;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The LibraryScript class runs the library without a user interface: it reads a script of commands (from a file or standard input), performs each command on the Library without any prompts, and prints one machine-readable result per command.
+ * This allows bulk operations to be performed and recorded traffic to be replayed to measure the throughput of the library (see LibraryIO.main, which runs a script when started with "--script [file]").
+ * <p>
+ * Each line of a script is one command, its words separated by whitespace. Blank lines and lines beginning with '#' are ignored. Books and users are referred to by their permanent ids (see Book.getId and User.getId), not the positions displayed by LibraryIO, so a script means the same thing however many books are added.
+ * The commands are:
+ * import [path], journal [path], snapshot [path] - import data, open the journal, or save a snapshot (which moves an open journal beside it, see Library.saveSnapshot).
+ * reimport [path] [snapshot path] - apply only the books and users added to or removed from the file since it was imported, saving a snapshot to the snapshot path if a journal is open (see Library.reimportDataFromFile, which refuses with -3 if a journal is open and no snapshot path is given).
+ * issue [book id] [user id], return [book id] [user id] - issue or return a single book (a book returned which users are waiting for is issued to the next of them, whose id is given in the details).
+ * hold [book id] [user id], cancel-hold [book id] [user id], holds [book id] - wait for a book on loan (the details give the place in the queue), stop waiting, or list the users waiting (see Library.placeHold).
+ * issue-batch [book id]:[user id] ..., return-batch [book id]:[user id] ... - issue or return a batch of books (add the word "all" before the items for all-or-nothing, see Library.issueBooksToUsers).
+ * search books [text], search users [text] - search the books or users.
+ * list books [offset] [limit], list users [offset] [limit] - list a page of the books or users (see LibraryListing).
+ * account [user id] - the books on loan to a user.
+ * notices [path] [dir|spool], notice [book id] - open the notice writer, and ask for a return notice to the user a book is on loan to (hold ready notices are written by it as well, to files of their own).
+ * check - check the loans of the users against the loans of the books (see Library.checkLoans).
+ * <p>
+ * The result of each command is a line of tab separated fields: "result", the line number, the command, the status, the latency of the command in nanoseconds, and details of the result (i.e. the number of search hits).
+ * The status is the status code of the operation (as returned by the Library, 1 is success) or "error" if the command could not be performed (the details then give the reason); the latency covers only the operation on the Library, not reading the script or printing the result.
+ * Rows listed by the list command are printed before its result. Once the script has finished a "summary" line is printed for each command which was run: the command, the number run, the total time in milliseconds, the operations per second, and the mean, median, 99th percentile and maximum latency in microseconds.
+ * <p>
+ * The LibraryScript class is made package private as it is intended for use only by the user interface of the library (see LibraryIO).
+ */
+class LibraryScript {
+    private final Library library;
+    private final PrintWriter out;
+    private final LibraryListing listing;
+    private final LinkedHashMap<String, Latencies> latencies;
+    private final AtomicInteger noticesWritten;
+    private final AtomicInteger noticesFailed;
+    private int errors;
+
+    /**
+     * The LibraryScript method is a constructor which prepares a script to be run on a library.
+     *
+     * @param library specifies the library to perform the commands on.
+     * @param output  specifies the stream to print the results to (i.e. System.out).
+     */
+    LibraryScript(Library library, OutputStream output) {
+        this.library = library;
+        out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(output), 1 << 16));
+        listing = new LibraryListing(output);
+        latencies = new LinkedHashMap<>();
+        noticesWritten = new AtomicInteger();
+        noticesFailed = new AtomicInteger();
+        errors = 0;
+        library.setHoldNoticeCallback(this::countNotice);
+    }
+
+    /**
+     * The run method performs every command of a script in order, then waits for any return notices to be written and prints the summary of the script.
+     *
+     * @param script specifies the script to read commands from.
+     * @return returns the number of commands which could not be performed (whose status was "error").
+     * @throws IOException if the script cannot be read.
+     */
+    int run(BufferedReader script) throws IOException {
+        String line;
+        int lineNumber = 0;
+        while ((line = script.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            execute(lineNumber, line);
+        }
+        library.closeNoticeWriter();
+        if (noticesWritten.get() + noticesFailed.get() > 0) {
+            out.println("notices\t" + noticesWritten.get() + "\t" + noticesFailed.get());
+        }
+        for (Map.Entry<String, Latencies> command : latencies.entrySet()) {
+            out.println("summary\t" + command.getKey() + "\t" + command.getValue().summary());
+        }
+        out.flush();
+        return errors;
+    }
+
+    /**
+     * The execute method performs a single command and prints its result.
+     *
+     * @param lineNumber specifies the line of the script the command is on.
+     * @param line       specifies the command.
+     */
+    private void execute(int lineNumber, String line) {
+        String[] words = line.split("\\s+");
+        String command = words[0];
+        String status;
+        String details = "";
+        long start = System.nanoTime();
+        long end;
+        try {
+            switch (command) {
+                case "import":
+                    status = Byte.toString(library.importDataFromFile(argument(line, command)));
+                    end = System.nanoTime();
+                    details = "books=" + library.getBookshelf().getNumberOfBooks() + " users=" + library.getUserdata().getNumberOfUsers();
+                    break;
+                case "reimport": {
+                    int[] changes = new int[6];
+                    if (words.length < 2) {
+                        throw new IllegalArgumentException("expected an argument after " + command);
+                    }
+                    String snapshotPath = words.length > 2 ? words[2] : null;
+                    start = System.nanoTime();
+                    status = Byte.toString(library.reimportDataFromFile(words[1], snapshotPath, changes));
+                    end = System.nanoTime();
+                    details = "books=" + library.getBookshelf().getNumberOfBooks() + " users=" + library.getUserdata().getNumberOfUsers()
+                            + " books+=" + changes[0] + " books-=" + changes[1] + " books-kept=" + changes[2]
+                            + " users+=" + changes[3] + " users-=" + changes[4] + " users-kept=" + changes[5];
+                    break;
+                }
+                case "journal":
+                    status = Byte.toString(library.openJournal(argument(line, command)));
+                    end = System.nanoTime();
+                    break;
+                case "snapshot":
+                    status = library.saveSnapshot(argument(line, command)) ? "1" : "-1";
+                    end = System.nanoTime();
+                    break;
+                case "issue": {
+                    int bookId = intArgument(words, 1);
+                    int userId = intArgument(words, 2);
+                    start = System.nanoTime();
+                    status = Byte.toString(library.issueBookToUser(bookId, userId));
+                    end = System.nanoTime();
+                    break;
+                }
+                case "return": {
+                    int bookId = intArgument(words, 1);
+                    int userId = intArgument(words, 2);
+                    start = System.nanoTime();
+                    status = exists(bookId, userId) ? (library.returnBookFromUser(bookId, userId) ? "1" : "-1") : "-3";
+                    end = System.nanoTime();
+                    if (status.equals("1") && library.getBookshelf().getBookById(bookId).isOnLoan()) {
+                        details = "handed=" + library.getBookshelf().getBookById(bookId).getOnLoanTo();
+                    }
+                    break;
+                }
+                case "hold": {
+                    int bookId = intArgument(words, 1);
+                    int userId = intArgument(words, 2);
+                    start = System.nanoTime();
+                    int position = library.placeHold(bookId, userId);
+                    end = System.nanoTime();
+                    status = position > 0 ? "1" : Integer.toString(position);
+                    if (position > 0) {
+                        details = "position=" + position;
+                    }
+                    break;
+                }
+                case "cancel-hold": {
+                    int bookId = intArgument(words, 1);
+                    int userId = intArgument(words, 2);
+                    start = System.nanoTime();
+                    status = library.cancelHold(bookId, userId) ? "1" : "-1";
+                    end = System.nanoTime();
+                    break;
+                }
+                case "holds": {
+                    int bookId = intArgument(words, 1);
+                    start = System.nanoTime();
+                    int[] waiting = library.getHolds(bookId);
+                    end = System.nanoTime();
+                    status = "1";
+                    details = "users=" + Arrays.toString(waiting).replace(" ", "");
+                    break;
+                }
+                case "issue-batch":
+                case "return-batch": {
+                    boolean allOrNothing = words.length > 1 && words[1].equals("all");
+                    int first = allOrNothing ? 2 : 1;
+                    int[] bookIds = new int[words.length - first];
+                    int[] userIds = new int[words.length - first];
+                    for (int i = first; i < words.length; i++) {
+                        int colon = words[i].indexOf(':');
+                        if (colon == -1) {
+                            throw new IllegalArgumentException("expected [book id]:[user id] but found " + words[i]);
+                        }
+                        bookIds[i - first] = Integer.parseInt(words[i].substring(0, colon));
+                        userIds[i - first] = Integer.parseInt(words[i].substring(colon + 1));
+                    }
+                    start = System.nanoTime();
+                    byte[] statuses = command.equals("issue-batch")
+                            ? library.issueBooksToUsers(bookIds, userIds, allOrNothing)
+                            : library.returnBooksFromUsers(bookIds, userIds, allOrNothing);
+                    end = System.nanoTime();
+                    int applied = 0;
+                    StringBuilder itemStatuses = new StringBuilder();
+                    for (byte itemStatus : statuses) {
+                        applied += itemStatus == 1 ? 1 : 0;
+                        itemStatuses.append(itemStatuses.length() == 0 ? "" : ",").append(itemStatus);
+                    }
+                    status = applied == statuses.length ? "1" : "-1";
+                    details = "applied=" + applied + " statuses=" + itemStatuses;
+                    break;
+                }
+                case "search": {
+                    String kind = words.length > 1 ? words[1] : "";
+                    String text = argument(argument(line, command), kind);
+                    int hits;
+                    start = System.nanoTime();
+                    if (kind.equals("books")) {
+                        hits = library.getBookshelf().searchBooks(text).size();
+                    } else if (kind.equals("users")) {
+                        hits = library.getUserdata().searchUsers(text).size();
+                    } else {
+                        throw new IllegalArgumentException("expected books or users but found " + kind);
+                    }
+                    end = System.nanoTime();
+                    status = "1";
+                    details = "hits=" + hits;
+                    break;
+                }
+                case "list": {
+                    String kind = words.length > 1 ? words[1] : "";
+                    int offset = intArgument(words, 2);
+                    int limit = intArgument(words, 3);
+                    int next;
+                    out.flush();
+                    start = System.nanoTime();
+                    if (kind.equals("books")) {
+                        next = listing.listBooks(library.getBookshelf().getBooks(), offset, limit);
+                    } else if (kind.equals("users")) {
+                        next = listing.listUsers(library.getUserdata().getUsers(), offset, limit);
+                    } else {
+                        throw new IllegalArgumentException("expected books or users but found " + kind);
+                    }
+                    listing.flush();
+                    end = System.nanoTime();
+                    status = "1";
+                    details = "next=" + next;
+                    break;
+                }
+                case "account": {
+                    int userId = intArgument(words, 1);
+                    start = System.nanoTime();
+                    ArrayList<Book> books = library.getBooksLoanedToUser(userId);
+                    end = System.nanoTime();
+                    if (books == null) {
+                        status = "-3";
+                    } else {
+                        status = "1";
+                        StringBuilder bookIds = new StringBuilder();
+                        for (Book book : books) {
+                            bookIds.append(bookIds.length() == 0 ? "" : ",").append(book.getId());
+                        }
+                        details = "books=" + bookIds;
+                    }
+                    break;
+                }
+                case "notices": {
+                    String path = words.length > 1 ? words[1] : "";
+                    if (path.isEmpty()) {
+                        throw new IllegalArgumentException("expected the path to write notices to");
+                    }
+                    boolean spool = words.length > 2 && words[2].equals("spool");
+                    library.openNoticeWriter(path, spool);
+                    end = System.nanoTime();
+                    status = "1";
+                    break;
+                }
+                case "notice": {
+                    int bookId = intArgument(words, 1);
+                    start = System.nanoTime();
+                    //A notice which is not queued because the writer is busy has the status 0 (it may be tried again).
+                    status = Byte.toString(library.writeReturnNotice(bookId, this::countNotice));
+                    end = System.nanoTime();
+                    break;
+                }
+                case "check":
+                    status = library.checkLoans() ? "1" : "-1";
+                    end = System.nanoTime();
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown command");
+            }
+        } catch (IOException | RuntimeException e) {
+            //IllegalStateException (i.e. a notice before "notices") and NumberFormatException are both RuntimeExceptions.
+            end = System.nanoTime();
+            status = "error";
+            details = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            errors++;
+        }
+        latencies.computeIfAbsent(command, c -> new Latencies()).add(end - start);
+        out.println("result\t" + lineNumber + "\t" + command + "\t" + status + "\t" + (end - start) + "\t" + details);
+    }
+
+    /**
+     * The exists method evaluates whether a book and a user exist, as the operations of the Library on a single book expect them to.
+     */
+    private boolean exists(int bookId, int userId) {
+        return library.getBookshelf().getBookById(bookId) != null && library.getUserdata().getUserById(userId) != null;
+    }
+
+    /**
+     * The argument method returns the rest of a line after its first word (i.e. a path, which may contain spaces).
+     *
+     * @throws IllegalArgumentException if there is nothing after the first word.
+     */
+    private static String argument(String line, String word) {
+        String rest = line.substring(Math.min(line.length(), word.length())).trim();
+        if (rest.isEmpty()) {
+            throw new IllegalArgumentException("expected an argument after " + word);
+        }
+        return rest;
+    }
+
+    /**
+     * The countNotice method counts a notice once the notice writer has written it, or failed to (it is run on the writer thread).
+     */
+    private void countNotice(String file, IOException failure) {
+        if (failure == null) {
+            noticesWritten.incrementAndGet();
+        } else {
+            noticesFailed.incrementAndGet();
+        }
+    }
+
+    /**
+     * The intArgument method returns a word of a command as an integer.
+     *
+     * @throws IllegalArgumentException if the word is missing or not an integer.
+     */
+    private static int intArgument(String[] words, int index) {
+        if (index >= words.length) {
+            throw new IllegalArgumentException("expected " + index + " arguments");
+        }
+        return Integer.parseInt(words[index]);
+    }
+
+    /**
+     * The Latencies class collects the latencies of every run of a command, so that their percentiles can be summarised.
+     */
+    private static class Latencies {
+        private long[] nanos = new long[64];
+        private int size = 0;
+
+        private void add(long latency) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, 2 * size);
+            }
+            nanos[size++] = latency;
+        }
+
+        /**
+         * The summary method returns the tab separated fields of a summary line (see the class description of LibraryScript).
+         */
+        private String summary() {
+            long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long latency : sorted) {
+                total += latency;
+            }
+            double opsPerSecond = total == 0 ? 0 : size * 1e9 / total;
+            return size + "\t" + String.format(Locale.ROOT, "%.3f", total / 1e6) + "\t" + String.format(Locale.ROOT, "%.0f", opsPerSecond)
+                    + "\t" + String.format(Locale.ROOT, "%.3f", total / 1e3 / size)
+                    + "\t" + String.format(Locale.ROOT, "%.3f", sorted[(size - 1) / 2] / 1e3)
+                    + "\t" + String.format(Locale.ROOT, "%.3f", sorted[(int) Math.min(size - 1, (long) Math.ceil(0.99 * size) - 1)] / 1e3)
+                    + "\t" + String.format(Locale.ROOT, "%.3f", sorted[size - 1] / 1e3);
+        }
+    }
+}
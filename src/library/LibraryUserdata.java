@@ -0,0 +1,370 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The LibraryUserdata class is responsible for management of all the users at the library.
+ * Those users are inserted in order into a SortedArrayList which keeps them sorted in O(log n) per insertion (see SortedArrayList class for further details).
+ * The index of each user in that Sorted Array List 'users' +1 is equal to the userId interpreted by the user interface; this position is only used for display as it changes whenever a user is added.
+ * Each user is also given a permanent id (see User.getId) when it is added, and users are held in the IntObjectHashMap 'usersById' so a user can be found by their id in O(1).
+ * The users may be partitioned across a number of shards by their surname (see ShardedSortedList), so that a search is shared between the shards and run on many threads at once; positions are those of the single sorted list of every user whatever the number of shards.
+ * The forename and surname of every user are held in the PrefixTrie 'nameTrie' so that users can be found by the start of either name, ignoring case (see searchUsersByPrefix).
+ * The number of books loaned by every user is held densely by user id in the IdColumn 'loanedColumn' rather than in each User (see User.getBooksLoaned), so the loans of every user are totalled with a single sweep (see getTotalBooksLoaned).
+ * Operations which change the state of a user (issueBookToUser, returnBookFromUser .etc.) must only make reference to the permanent id of the user (and never the userId expressed in LibraryIO).
+ * Methods of the LibraryUserdata class have been made package-private as they are only intended to be used by instances of the Library object (the Library holds the LibraryUserdata [the userdata of the library).
+ */
+class LibraryUserdata {
+    static final byte MAX_BOOKS_LOANED = 3;
+    private ShardedSortedList<User> users;
+    private IntObjectHashMap<User> usersById;
+    private PrefixTrie nameTrie;
+    private final IdColumn loanedColumn;
+    private int nextUserId;
+
+    /**
+     * LibraryUserdata is the constructor method for instances of the LibraryUserdata class, which holds every user in a single shard.
+     */
+    LibraryUserdata() {
+        this(1);
+    }
+
+    /**
+     * LibraryUserdata is the constructor method for instances of the LibraryUserdata class.
+     * The LibraryUserdata class contains a ShardedSortedList of User objects, partitioned across shards by their surname, and a map of those User objects by their id.
+     *
+     * @param shards specifies the number of shards to partition the users across.
+     */
+    LibraryUserdata(int shards) {
+        users = new ShardedSortedList<>(shards, user -> ShardedSortedList.hashIgnoreCase(user.getSurname()));
+        usersById = new IntObjectHashMap<>();
+        nameTrie = new PrefixTrie();
+        loanedColumn = new IdColumn(0);
+        nextUserId = 0;
+    }
+
+
+    /**
+     * The addUser method adds a book to the SortedArrayList 'users'.
+     *
+     * @param user specifies the book object to be added to 'users'.
+     */
+    boolean addUser(User user) {
+        registerUser(user);
+        users.add(user);
+        return true;
+    }
+
+    /**
+     * The addSortedUsers method adds a run of users which has already been sorted to the SortedArrayList 'users' in a single step.
+     *
+     * @param sortedUsers specifies the users to be added to 'users' in ascending order.
+     */
+    void addSortedUsers(User[] sortedUsers) {
+        for (User user : sortedUsers) {
+            registerUser(user);
+        }
+        users.addAllSorted(sortedUsers, sortedUsers.length);
+    }
+
+    /**
+     * The restoreSortedUsers method restores the users of an empty userdata from a snapshot of the library (see LibraryFileReader.importSnapshot).
+     * Unlike addSortedUsers the users keep the ids they were given when they were first added, and they are not added to 'nameTrie', which is restored from the snapshot as a whole (see getNameTrie).
+     *
+     * @param sortedUsers specifies the users of the snapshot in ascending order, each with its id and number of books loaned already set.
+     * @param nextUserId  specifies the id to give the next user added to the userdata.
+     */
+    void restoreSortedUsers(User[] sortedUsers, int nextUserId) {
+        for (User user : sortedUsers) {
+            usersById.put(user.getId(), user);
+            user.setLoanedColumn(loanedColumn);
+        }
+        users.addAllSorted(sortedUsers, sortedUsers.length);
+        this.nextUserId = nextUserId;
+    }
+
+    /**
+     * The getNameTrie method returns the PrefixTrie 'nameTrie' so that it can be written to or read from a snapshot of the library.
+     *
+     * @return returns the name trie of the userdata.
+     */
+    PrefixTrie getNameTrie() {
+        return nameTrie;
+    }
+
+    /**
+     * The getNextUserId method returns the id which will be given to the next user added to the userdata.
+     *
+     * @return returns the next user id.
+     */
+    int getNextUserId() {
+        return nextUserId;
+    }
+
+    /**
+     * The registerUser method gives a user the next permanent id and adds them to 'usersById' and 'nameTrie'.
+     * Each name is recorded in 'nameTrie' against the id of the user shifted left by one bit, with the lowest bit holding the field of that name (SearchHit.SURNAME or SearchHit.FORENAME).
+     *
+     * @param user specifies the user object being added to the userdata.
+     */
+    private void registerUser(User user) {
+        user.setId(nextUserId++);
+        user.setLoanedColumn(loanedColumn);
+        usersById.put(user.getId(), user);
+        nameTrie.add(user.getSurname(), user.getId() << 1 | SearchHit.SURNAME);
+        nameTrie.add(user.getForename(), user.getId() << 1 | SearchHit.FORENAME);
+    }
+
+    /**
+     * The removeUsers method removes a set of users from the userdata (i.e. the users no longer held by the file of a re-import, see LibraryFileReader.reimportDataFromFile).
+     * The users are removed from 'users' in a single pass (see SortedArrayList.removeIf), and from 'usersById' and 'nameTrie' one at a time. The ids of the users removed are never given to another user.
+     *
+     * @param removedUsers specifies the users to remove, none of whom may have books on loan.
+     */
+    void removeUsers(ArrayList<User> removedUsers) {
+        int[] ids = new int[removedUsers.size()];
+        for (int i = 0; i < ids.length; i++) {
+            User user = removedUsers.get(i);
+            usersById.remove(user.getId());
+            nameTrie.remove(user.getSurname(), user.getId() << 1 | SearchHit.SURNAME);
+            nameTrie.remove(user.getForename(), user.getId() << 1 | SearchHit.FORENAME);
+            ids[i] = user.getId();
+        }
+        Arrays.sort(ids);
+        IdBitmap removedIds = IdBitmap.of(ids);
+        users.removeIf(user -> removedIds.contains(user.getId()));
+    }
+
+    /**
+     * The clearUsers method clears the SortedArrayList of user objects.
+     */
+    void clearUsers() {
+        users.clear();
+        usersById.clear();
+        nameTrie.clear();
+        loanedColumn.clear();
+        nextUserId = 0;
+    }
+
+    /**
+     * The getTotalBooksLoaned method returns the number of books loaned by every user together, with a single sweep of 'loanedColumn' (see IdColumn.sum) rather than visiting every user.
+     *
+     * @return returns the total number of books loaned.
+     */
+    long getTotalBooksLoaned() {
+        return loanedColumn.sum(nextUserId);
+    }
+
+    /**
+     * The getUser method returns the user object from the SortedArrayList 'users' given the specified index.
+     *
+     * @param userIndex specifies the index of the users to return from 'users'.
+     * @return returns the instance of the User class within the SortedArrayList.
+     */
+    User getUser(int userIndex) {
+        return users.get(userIndex);
+    }
+
+    /**
+     * The getUserById method returns the user object with the specified permanent id.
+     *
+     * @param userId specifies the id of the user to return.
+     * @return returns the instance of the User class with that id, or null if there is no such user.
+     */
+    User getUserById(int userId) {
+        return usersById.get(userId);
+    }
+
+    /**
+     * The getUserIndex method returns the index of a user in the SortedArrayList 'users' (their display position).
+     *
+     * @param userId specifies the id of the user.
+     * @return returns the index of the user, or -1 if there is no such user.
+     */
+    int getUserIndex(int userId) {
+        User user = usersById.get(userId);
+        return user == null ? -1 : users.indexOf(user);
+    }
+
+
+    /**
+     * The getUsers method returns all users as the ShardedSortedList 'users'.
+     *
+     * @return returns the ShardedSortedList 'users'.
+     */
+    ShardedSortedList<User> getUsers() {
+        return users;
+    }
+
+    /**
+     * The getNumberOfUsers method the number of all users stored within the SortedArrayList 'users'.
+     *
+     * @return returns the size of SortedArrayList 'users'.
+     */
+    int getNumberOfUsers() {
+        return users.size();
+    }
+
+
+    /**
+     * The searchUsers method takes an input string and searches for the existence of that input string in the surname or forename of each user using the indexOf method.
+     * The method constructs an ArrayList of search hits in the order of 'users' and returns that ArrayList. Each user is returned once, even if they match on both names.
+     * Each search hit carries the user, their id, their index in 'users', and the field and offset of the match (see SearchHit), so the caller never needs to search again to find the index of a result.
+     * If the users are partitioned across shards each shard is searched on a thread of its own (see ShardedSortedList.fanOut), and the search hits of the shards are merged into the order of 'users' (see SearchHit.merge).
+     *
+     * @param inputDetails specifies the input details to search by.
+     * @return returns an ArrayList of the search hits.
+     */
+    ArrayList<SearchHit<User>> searchUsers(String inputDetails) {
+        long start = System.nanoTime();
+        ArrayList<SearchHit<User>> results = findUsers(inputDetails);
+        LibraryMetrics.METRICS.recordSearchUsers(inputDetails.length(), results.size(), System.nanoTime() - start);
+        return results;
+    }
+
+    /**
+     * The findUsers method is the body of searchUsers, which also records the search in LibraryMetrics.
+     */
+    private ArrayList<SearchHit<User>> findUsers(String inputDetails) {
+        return SearchHit.merge(users.fanOut(shard -> scanUsers(users.shard(shard), inputDetails)), users);
+    }
+
+    /**
+     * The scanUsers method inspects every user of a shard of 'users'.
+     *
+     * @param shard        specifies the shard of 'users' to search.
+     * @param inputDetails specifies the input details to search by.
+     * @return returns the search hits of the shard in its order, indexed by their position within the shard.
+     */
+    private ArrayList<SearchHit<User>> scanUsers(SortedArrayList<User> shard, String inputDetails) {
+        ArrayList<SearchHit<User>> results = new ArrayList<>();
+        int index = 0;
+        for (User user : shard) {
+            int offset = user.getSurname().indexOf(inputDetails);
+            if (offset != -1) {
+                results.add(new SearchHit<>(user, user.getId(), index, SearchHit.SURNAME, offset));
+            } else {
+                offset = user.getForename().indexOf(inputDetails);
+                if (offset != -1) {
+                    results.add(new SearchHit<>(user, user.getId(), index, SearchHit.FORENAME, offset));
+                }
+            }
+            index++;
+        }
+        return results;
+    }
+
+    /**
+     * The searchUsersByPrefix method finds every user whose surname or forename begins with the input string, ignoring case, using 'nameTrie'.
+     * The method constructs an ArrayList of search hits in the order of 'users' and returns that ArrayList. Each user is returned once; if both of their names begin with the input string the hit records their surname.
+     *
+     * @param prefix specifies the start of the name to search by.
+     * @return returns an ArrayList of the search hits.
+     */
+    ArrayList<SearchHit<User>> searchUsersByPrefix(String prefix) {
+        IntObjectHashMap<SearchHit<User>> hitsById = new IntObjectHashMap<>();
+        int[] values = nameTrie.valuesWithPrefix(prefix);
+        for (int value : values) {
+            int userId = value >>> 1;
+            byte field = (byte) (value & 1);
+            SearchHit<User> previous = hitsById.get(userId);
+            if (previous == null || (field == SearchHit.SURNAME && previous.getField() != SearchHit.SURNAME)) {
+                hitsById.put(userId, new SearchHit<>(usersById.get(userId), userId, -1, field, 0));
+            }
+        }
+        //Split the search hits by the shard holding each user, so that each shard orders only its own users.
+        ArrayList<ArrayList<SearchHit<User>>> shardHits = new ArrayList<>(users.getShardCount());
+        for (int s = 0; s < users.getShardCount(); s++) {
+            shardHits.add(new ArrayList<>());
+        }
+        for (int value : values) {
+            SearchHit<User> hit = hitsById.remove(value >>> 1);
+            if (hit != null) {
+                shardHits.get(users.shardOf(hit.getItem())).add(hit);
+            }
+        }
+        return SearchHit.merge(users.fanOut(shard -> {
+            SearchHit.sortAndIndex(shardHits.get(shard), users.shard(shard));
+            return shardHits.get(shard);
+        }), users);
+    }
+
+    /**
+     * The completeUserNames method returns the first names (surnames or forenames, in alphabetical order ignoring case) which begin with the input string.
+     *
+     * @param prefix specifies the start of the name to complete.
+     * @param limit  specifies the maximum number of names to return.
+     * @return returns up to 'limit' names beginning with the input string.
+     */
+    ArrayList<String> completeUserNames(String prefix, int limit) {
+        return nameTrie.complete(prefix, limit);
+    }
+
+    /**
+     * The issueBookToUser is intended to be used when a book is issued to a user.
+     * For the time being the maximum defined number of books for any user is 3 (MAX_BOOKS_LOANED).
+     * The system checks the number of loaned books represented a byte since this is the maximum defined number of books.
+     * The system returns false of the user has already loaned 3 books since this is the maximum defined number of books.
+     * If the user has not exceeded this limitation then the book is added to the loan index of the user and the number of loaned books is incremented by one to signify the user has taken out a new books.
+     * The check, the loan index and the count are changed in a single atomic operation (see User.addLoan), so the limit holds even when books are issued to the same user by many threads at once.
+     *
+     * @param userId the id of the user.
+     * @param bookId the id of the book issued.
+     * @return returns true if loaning the book to the user was successful, returns false if the operation was unsuccessful (including if there is no such user).
+     */
+    boolean issueBookToUser(int userId, int bookId) {
+        User user = usersById.get(userId);
+        return user != null && issueBookToUser(user, bookId);
+    }
+
+    /**
+     * The issueBookToUser method issues a book to a user who has already been found (i.e. by a batch of operations), see issueBookToUser(int, int).
+     *
+     * @param user   the user.
+     * @param bookId the id of the book issued.
+     * @return returns true if loaning the book to the user was successful, returns false if the operation was unsuccessful.
+     */
+    boolean issueBookToUser(User user, int bookId) {
+        return user.addLoan(bookId, MAX_BOOKS_LOANED);
+    }
+
+    /**
+     * The restoreBookToUser method is intended to be used when a loan is replayed from the journal of the library (see Library.replayEvent) or restored from a snapshot.
+     * The limit on the number of books loaned is not checked: events of different books are not journaled in the order they were made, so a loan may be replayed before the return which made room for it (the final number of books loaned is still correct).
+     *
+     * @param userId the id of the user.
+     * @param bookId the id of the book loaned.
+     */
+    void restoreBookToUser(int userId, int bookId) {
+        User user = usersById.get(userId);
+        user.addLoan(bookId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The issueBookToUser is intended to be used when a book is returned from a user.
+     * The system returns false if the user does not hold the book.
+     * If the user holds the book then it is removed from the loan index of the user and the number of books the user has loaned is decremented by 1.
+     *
+     * @param userId the id of the user.
+     * @param bookId the id of the book returned.
+     * @return returns true if returning the book from the user was successful, returns false if the operation was unsuccessful (including if there is no such user).
+     */
+    boolean returnBookFromUser(int userId, int bookId) {
+        User user = usersById.get(userId);
+        return user != null && returnBookFromUser(user, bookId);
+    }
+
+    /**
+     * The returnBookFromUser method returns a book from a user who has already been found (i.e. by a batch of operations), see returnBookFromUser(int, int).
+     *
+     * @param user   the user.
+     * @param bookId the id of the book returned.
+     * @return returns true if returning the book from the user was successful, returns false if the operation was unsuccessful.
+     */
+    boolean returnBookFromUser(User user, int bookId) {
+        //Cannot return a book the user does not hold.
+        return user.removeLoan(bookId);
+    }
+
+
+}
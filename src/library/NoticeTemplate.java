@@ -0,0 +1,194 @@
+package library;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * The NoticeTemplate class is a notice (i.e. a return notice) which is parsed once into segments and can then be rendered for any user and book without building any Strings.
+ * A template is text containing placeholders in braces, each naming a field of the user or book the notice is for: {forename}, {surname}, {title}, {authorForename} and {authorSurname}.
+ * Each template has a name (i.e. "return notice"), which names the file the notices of a user are written to (see LibraryNoticeWriter), so each kind of notice has files of its own.
+ * Line endings ("\n") in the template are replaced with the line separator of the system when the template is compiled (as PrintWriter.println does).
+ * <p>
+ * Compiling a template splits it into literal segments, which are encoded to UTF-8 bytes once, and placeholders, which are held as the number of their field.
+ * Rendering copies the literal bytes and encodes each field straight from the user or book into the array of a ByteBuffer (which can then be written to a FileChannel), so rendering a notice allocates nothing.
+ * <p>
+ * The NoticeTemplate class is made package private as it is intended for use only by the classes of the library which write notices (see LibraryFileWriter and LibraryNoticeWriter).
+ */
+class NoticeTemplate {
+    private static final String[] FIELDS = {"forename", "surname", "title", "authorForename", "authorSurname"};
+    private static final int FORENAME = 0;
+    private static final int SURNAME = 1;
+    private static final int TITLE = 2;
+    private static final int AUTHOR_FORENAME = 3;
+    private static final int AUTHOR_SURNAME = 4;
+
+    private final String name;
+    private final byte[][] literals;
+    private final int[] fields;
+
+    /**
+     * The NoticeTemplate method is a constructor which compiles a template (see the class description).
+     *
+     * @param name     specifies the name of the kind of notice (i.e. "return notice").
+     * @param template specifies the text of the template.
+     * @throws IllegalArgumentException if the template contains an unclosed brace or an unknown placeholder.
+     */
+    NoticeTemplate(String name, String template) {
+        this.name = name;
+        template = template.replace("\n", System.lineSeparator());
+        ArrayList<byte[]> literalSegments = new ArrayList<>();
+        ArrayList<Integer> fieldSegments = new ArrayList<>();
+        int start = 0;
+        int open;
+        //The template alternates literal, field, literal ... ending with a literal (which may be empty).
+        while ((open = template.indexOf('{', start)) != -1) {
+            int close = template.indexOf('}', open);
+            if (close == -1) {
+                throw new IllegalArgumentException("Unclosed placeholder in template at " + open + ".");
+            }
+            literalSegments.add(template.substring(start, open).getBytes(StandardCharsets.UTF_8));
+            fieldSegments.add(fieldOf(template.substring(open + 1, close)));
+            start = close + 1;
+        }
+        literalSegments.add(template.substring(start).getBytes(StandardCharsets.UTF_8));
+        literals = literalSegments.toArray(new byte[0][]);
+        fields = new int[fieldSegments.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = fieldSegments.get(i);
+        }
+    }
+
+    /**
+     * The getName method returns the name of the kind of notice.
+     *
+     * @return returns the name of the template.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * The render method renders the notice for a user and book into a buffer, which must be backed by an array (i.e. created by ByteBuffer.allocate).
+     * If the notice does not fit in the space remaining in the buffer then nothing is rendered (the position of the buffer is unchanged), so the caller can write out the buffer and render the notice again.
+     *
+     * @param out  specifies the buffer to render the notice into.
+     * @param user specifies the user the notice is addressed to.
+     * @param book specifies the book the notice is about.
+     * @return returns true if the notice was rendered, returns false if it did not fit in the buffer.
+     */
+    boolean render(ByteBuffer out, User user, Book book) {
+        byte[] bytes = out.array();
+        int limit = out.arrayOffset() + out.limit();
+        int position = out.arrayOffset() + out.position();
+        for (int i = 0; i < fields.length && position != -1; i++) {
+            position = putBytes(bytes, position, limit, literals[i]);
+            position = putUtf8(bytes, position, limit, valueOf(fields[i], user, book));
+        }
+        position = putBytes(bytes, position, limit, literals[fields.length]);
+        if (position == -1) {
+            return false;
+        }
+        out.position(position - out.arrayOffset());
+        return true;
+    }
+
+    /**
+     * The valueOf method returns the value of a field for a user and book.
+     */
+    private static String valueOf(int field, User user, Book book) {
+        switch (field) {
+            case FORENAME:
+                return user.getForename();
+            case SURNAME:
+                return user.getSurname();
+            case TITLE:
+                return book.getTitle();
+            case AUTHOR_FORENAME:
+                return book.getAuthorForename();
+            default:
+                return book.getAuthorSurname();
+        }
+    }
+
+    /**
+     * The fieldOf method returns the number of a field from the name of its placeholder.
+     *
+     * @throws IllegalArgumentException if there is no field of that name.
+     */
+    private static int fieldOf(String name) {
+        for (int field = 0; field < FIELDS.length; field++) {
+            if (FIELDS[field].equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown placeholder {" + name + "} in template.");
+    }
+
+    /**
+     * The putBytes method copies the bytes of a literal segment into an array.
+     *
+     * @return returns the position after the bytes, or -1 if they do not fit before 'limit' (or 'position' is already -1).
+     */
+    private static int putBytes(byte[] bytes, int position, int limit, byte[] literal) {
+        if (position == -1 || limit - position < literal.length) {
+            return -1;
+        }
+        System.arraycopy(literal, 0, bytes, position, literal.length);
+        return position + literal.length;
+    }
+
+    /**
+     * The putUtf8 method encodes a String into an array as UTF-8 one character at a time, without creating an encoder or a byte array (a lone surrogate is encoded as '?', as String.getBytes does).
+     *
+     * @return returns the position after the encoded String, or -1 if it does not fit before 'limit' (or 'position' is already -1).
+     */
+    private static int putUtf8(byte[] bytes, int position, int limit, String value) {
+        if (position == -1) {
+            return -1;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            //At most 4 bytes are written for each character (or pair of characters).
+            if (limit - position < 4 && limit - position < utf8Length(c)) {
+                return -1;
+            }
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xC0 | c >> 6);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                bytes[position++] = '?';
+            } else {
+                bytes[position++] = (byte) (0xE0 | c >> 12);
+                bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * The utf8Length method returns the number of bytes a character is encoded as (4 for the first of a pair of surrogates, which encode together).
+     */
+    private static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        } else if (c < 0x800) {
+            return 2;
+        } else if (Character.isHighSurrogate(c)) {
+            return 4;
+        } else if (Character.isSurrogate(c)) {
+            return 1;
+        }
+        return 3;
+    }
+}
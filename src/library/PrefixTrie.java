@@ -0,0 +1,350 @@
+package library;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * The PrefixTrie class is a case-insensitive trie of words (i.e. the forenames and surnames of users) which finds every word beginning with a given prefix.
+ * Each word is case-folded before it is added, so a prefix matches regardless of case.
+ * <p>
+ * The trie is held compactly in parallel arrays rather than as node objects: each node has a character, a first child and a next sibling (siblings are kept in ascending order of character), and a node which ends a word refers to an entry holding that word and the values added with it.
+ * Finding the node of a prefix walks one level of the trie per character of the prefix, and the words beginning with that prefix are all held below that node, so a prefix query costs O(prefix length + size of the results).
+ * Words are visited in ascending (case-folded) order, so the first N completions of a prefix can be returned without visiting the rest.
+ * Since the trie is held in arrays it can be written to and read from a snapshot of the library as those arrays (see writeTo and readFrom), without adding each word again.
+ * <p>
+ * The PrefixTrie class is made package private as it is intended for use only by the classes of the library (i.e. to search the users of the LibraryUserdata).
+ */
+class PrefixTrie {
+    private static final int ROOT = 0;
+    private char[] characters;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] entryOf;
+    private int nodeCount;
+    private ArrayList<Entry> entries;
+
+    /**
+     * PrefixTrie is the constructor method for instances of the PrefixTrie class, which begins as an empty trie.
+     */
+    PrefixTrie() {
+        clear();
+    }
+
+    /**
+     * The add method adds a word to the trie along with an int value (i.e. the id of the user the word belongs to).
+     * The same word may be added many times with different values.
+     *
+     * @param word  specifies the word to add.
+     * @param value specifies the value to record against that word.
+     */
+    void add(String word, int value) {
+        int node = ROOT;
+        for (int i = 0; i < word.length(); i++) {
+            node = childOf(node, fold(word.charAt(i)), true);
+        }
+        if (entryOf[node] == -1) {
+            entryOf[node] = entries.size();
+            entries.add(new Entry(word));
+        }
+        entries.get(entryOf[node]).append(value);
+    }
+
+    /**
+     * The remove method removes a value recorded against a word (i.e. when the user the word belongs to is removed), and the word itself once no values are recorded against it.
+     * The nodes of the word are kept (a node without a word below it is passed over by every query), so that no other node is moved.
+     *
+     * @param word  specifies the word the value was added with.
+     * @param value specifies the value to remove.
+     * @return returns true if the value was removed, returns false if it was not recorded against the word.
+     */
+    boolean remove(String word, int value) {
+        int node = find(word);
+        if (node == -1 || entryOf[node] == -1) {
+            return false;
+        }
+        Entry entry = entries.get(entryOf[node]);
+        if (!entry.remove(value)) {
+            return false;
+        }
+        if (entry.size == 0) {
+            //Move the last entry into the place of the removed one, so 'entries' holds no empty entries.
+            int index = entryOf[node];
+            Entry last = entries.remove(entries.size() - 1);
+            if (last != entry) {
+                entries.set(index, last);
+                entryOf[find(last.word)] = index;
+            }
+            entryOf[node] = -1;
+        }
+        return true;
+    }
+
+    /**
+     * The forEachWord method performs an action for every word of the trie, as it was first added (i.e. to add the words to the string table of a snapshot, see writeTo).
+     *
+     * @param action specifies the action to perform.
+     */
+    void forEachWord(Consumer<String> action) {
+        for (Entry entry : entries) {
+            action.accept(entry.word);
+        }
+    }
+
+    /**
+     * The valuesWithPrefix method returns the values of every word beginning with the specified prefix, in ascending order of word.
+     *
+     * @param prefix specifies the prefix to search by (case-insensitive).
+     * @return returns the values recorded against the words beginning with the prefix.
+     */
+    int[] valuesWithPrefix(String prefix) {
+        int node = find(prefix);
+        if (node == -1) {
+            return new int[0];
+        }
+        int[] values = new int[16];
+        int count = 0;
+        int[] stack = new int[16];
+        int depth = 0;
+        if (entryOf[node] != -1) {
+            Entry entry = entries.get(entryOf[node]);
+            values = ensureCapacity(values, count + entry.size);
+            System.arraycopy(entry.values, 0, values, count, entry.size);
+            count += entry.size;
+        }
+        for (int child = firstChild[node]; child != -1; ) {
+            if (entryOf[child] != -1) {
+                Entry entry = entries.get(entryOf[child]);
+                values = ensureCapacity(values, count + entry.size);
+                System.arraycopy(entry.values, 0, values, count, entry.size);
+                count += entry.size;
+            }
+            //Depth-first: visit the children of this node before its next sibling.
+            if (firstChild[child] != -1) {
+                stack = ensureCapacity(stack, depth + 1);
+                stack[depth++] = nextSibling[child];
+                child = firstChild[child];
+            } else {
+                child = nextSibling[child];
+                while (child == -1 && depth > 0) {
+                    child = stack[--depth];
+                }
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * The complete method returns the first words (in ascending case-folded order) which begin with the specified prefix.
+     * Each word is returned as it was first added (i.e. with its original case).
+     *
+     * @param prefix specifies the prefix to complete (case-insensitive).
+     * @param limit  specifies the maximum number of words to return.
+     * @return returns up to 'limit' words beginning with the prefix.
+     */
+    ArrayList<String> complete(String prefix, int limit) {
+        ArrayList<String> completions = new ArrayList<>();
+        int node = find(prefix);
+        if (node == -1 || limit <= 0) {
+            return completions;
+        }
+        if (entryOf[node] != -1) {
+            completions.add(entries.get(entryOf[node]).word);
+        }
+        int[] stack = new int[16];
+        int depth = 0;
+        for (int child = firstChild[node]; child != -1 && completions.size() < limit; ) {
+            if (entryOf[child] != -1) {
+                completions.add(entries.get(entryOf[child]).word);
+            }
+            if (firstChild[child] != -1) {
+                stack = ensureCapacity(stack, depth + 1);
+                stack[depth++] = nextSibling[child];
+                child = firstChild[child];
+            } else {
+                child = nextSibling[child];
+                while (child == -1 && depth > 0) {
+                    child = stack[--depth];
+                }
+            }
+        }
+        return completions;
+    }
+
+    /**
+     * The clear method removes all words from the trie.
+     */
+    void clear() {
+        characters = new char[64];
+        firstChild = new int[64];
+        nextSibling = new int[64];
+        entryOf = new int[64];
+        entries = new ArrayList<>();
+        nodeCount = 0;
+        newNode('\0');
+    }
+
+    /**
+     * The writeTo method writes the arrays of the trie and its entries to a snapshot.
+     * Words are not written themselves, instead each word is written as the index given to it by the string table of the snapshot.
+     *
+     * @param out       specifies the stream of the snapshot.
+     * @param stringIds specifies the index of each word in the string table of the snapshot.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    void writeTo(DataOutputStream out, ToIntFunction<String> stringIds) throws IOException {
+        out.writeInt(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            out.writeChar(characters[node]);
+            out.writeInt(firstChild[node]);
+            out.writeInt(nextSibling[node]);
+            out.writeInt(entryOf[node]);
+        }
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeInt(stringIds.applyAsInt(entry.word));
+            out.writeInt(entry.size);
+            for (int i = 0; i < entry.size; i++) {
+                out.writeInt(entry.values[i]);
+            }
+        }
+    }
+
+    /**
+     * The readFrom method replaces the contents of the trie with the arrays written to a snapshot by writeTo.
+     *
+     * @param in      specifies the buffer holding the snapshot, positioned at the start of the trie.
+     * @param strings specifies the string table of the snapshot.
+     */
+    void readFrom(ByteBuffer in, String[] strings) {
+        nodeCount = in.getInt();
+        int capacity = Math.max(nodeCount, 64);
+        characters = new char[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        entryOf = new int[capacity];
+        for (int node = 0; node < nodeCount; node++) {
+            characters[node] = in.getChar();
+            firstChild[node] = in.getInt();
+            nextSibling[node] = in.getInt();
+            entryOf[node] = in.getInt();
+        }
+        int entryCount = in.getInt();
+        entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            Entry entry = new Entry(strings[in.getInt()]);
+            entry.size = in.getInt();
+            entry.values = new int[Math.max(entry.size, 2)];
+            for (int j = 0; j < entry.size; j++) {
+                entry.values[j] = in.getInt();
+            }
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * The find method walks the trie from the root along the characters of a prefix.
+     *
+     * @param prefix specifies the prefix to find.
+     * @return returns the node reached by the prefix, or -1 if no word begins with that prefix.
+     */
+    private int find(String prefix) {
+        int node = ROOT;
+        for (int i = 0; i < prefix.length() && node != -1; i++) {
+            node = childOf(node, fold(prefix.charAt(i)), false);
+        }
+        return node;
+    }
+
+    /**
+     * The childOf method finds the child of a node with the specified character, keeping siblings in ascending order when a child is created.
+     *
+     * @param node      specifies the parent node.
+     * @param character specifies the (case-folded) character of the child.
+     * @param create    specifies whether a missing child should be created.
+     * @return returns the child node, or -1 if it does not exist and was not created.
+     */
+    private int childOf(int node, char character, boolean create) {
+        int previous = -1;
+        int child = firstChild[node];
+        while (child != -1 && characters[child] < character) {
+            previous = child;
+            child = nextSibling[child];
+        }
+        if (child != -1 && characters[child] == character) {
+            return child;
+        }
+        if (!create) {
+            return -1;
+        }
+        int created = newNode(character);
+        nextSibling[created] = child;
+        if (previous == -1) {
+            firstChild[node] = created;
+        } else {
+            nextSibling[previous] = created;
+        }
+        return created;
+    }
+
+    private int newNode(char character) {
+        if (nodeCount == characters.length) {
+            int capacity = 2 * nodeCount;
+            characters = Arrays.copyOf(characters, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            entryOf = Arrays.copyOf(entryOf, capacity);
+        }
+        characters[nodeCount] = character;
+        firstChild[nodeCount] = -1;
+        nextSibling[nodeCount] = -1;
+        entryOf[nodeCount] = -1;
+        return nodeCount++;
+    }
+
+    /**
+     * The fold method case-folds a character (as String.equalsIgnoreCase does).
+     */
+    private static char fold(char character) {
+        return Character.toLowerCase(Character.toUpperCase(character));
+    }
+
+    private static int[] ensureCapacity(int[] array, int capacity) {
+        return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, 2 * array.length));
+    }
+
+    /**
+     * The Entry class holds a word as it was first added and the values added with that word.
+     */
+    private static class Entry {
+        private final String word;
+        private int[] values = new int[2];
+        private int size = 0;
+
+        private Entry(String word) {
+            this.word = word;
+        }
+
+        private void append(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        private boolean remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Instances of the SearchHit class are the results of a search of the LibraryBookshelf or LibraryUserdata.
+ * An object of the SearchHit class holds the book or user which matched, its permanent id, its index in the SortedArrayList or ShardedSortedList (its display position), the field the search matched on and the offset of the match within that field.
+ * All of this information is computed by the search itself, so the user interface never has to search again to find the index of a result.
+ * Where an item matches on more than one field, the field and offset recorded are those of the first field checked (surname, then forename, then title).
+ * <p>
+ * Methods of the SearchHit class have been made package-private as they are only intended to be used by the classes of the library.
+ *
+ * @param <E> Param E refers to the kind of item which matched, i.e. Book or User.
+ */
+class SearchHit<E> {
+    static final byte SURNAME = 0;
+    static final byte FORENAME = 1;
+    static final byte TITLE = 2;
+
+    private final E item;
+    private final int id;
+    private final byte field;
+    private final int offset;
+    private int index;
+
+    /**
+     * The SearchHit method is a constructor method used when constructing a new SearchHit object.
+     *
+     * @param item   specifies the book or user which matched.
+     * @param id     specifies the permanent id of that book or user.
+     * @param index  specifies the index of that book or user in its SortedArrayList, or -1 if it is not known yet.
+     * @param field  specifies the field the search matched on (SURNAME, FORENAME or TITLE).
+     * @param offset specifies the offset of the match within that field.
+     */
+    SearchHit(E item, int id, int index, byte field, int offset) {
+        this.item = item;
+        this.id = id;
+        this.index = index;
+        this.field = field;
+        this.offset = offset;
+    }
+
+    /**
+     * The getItem method returns the book or user which matched.
+     *
+     * @return returns the item of the search hit.
+     */
+    E getItem() {
+        return item;
+    }
+
+    /**
+     * The getId method returns the permanent id of the book or user which matched.
+     *
+     * @return returns the id of the item.
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * The getIndex method returns the index of the book or user which matched in its SortedArrayList. The bookId or userId displayed by the user interface is this index +1.
+     *
+     * @return returns the index of the item.
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * The setIndex method sets the index of the item once the search has found it. This operation should only be performed by the search which created the search hit.
+     */
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * The getField method returns the field the search matched on.
+     *
+     * @return returns SURNAME, FORENAME or TITLE.
+     */
+    byte getField() {
+        return field;
+    }
+
+    /**
+     * The sortAndIndex method sorts search hits into the order their items are held in a SortedArrayList and sets the index of each search hit.
+     * Items which compare as equal are held in a SortedArrayList in the order they were added, which is the order of their ids, so the search hits are sorted with the compareTo method and then by id.
+     * For each run of items which compare as equal the rank of the run is found once, and the SortedArrayList is then walked forward from that rank to find each item of the run in turn.
+     *
+     * @param hits specifies the search hits, each of which must refer to an item held in 'list'.
+     * @param list specifies the SortedArrayList holding the items.
+     * @param <T>  Param T refers to the kind of item held in the SortedArrayList.
+     */
+    static <T extends Comparable<T>> void sortAndIndex(ArrayList<SearchHit<T>> hits, SortedArrayList<T> list) {
+        hits.sort((a, b) -> {
+            int order = a.getItem().compareTo(b.getItem());
+            return order != 0 ? order : Integer.compare(a.getId(), b.getId());
+        });
+        int i = 0;
+        while (i < hits.size()) {
+            T first = hits.get(i).getItem();
+            int index = list.rank(first);
+            Iterator<T> items = list.iterator(index);
+            while (i < hits.size() && hits.get(i).getItem().compareTo(first) == 0) {
+                while (items.next() != hits.get(i).getItem()) {
+                    index++;
+                }
+                hits.get(i).setIndex(index);
+                index++;
+                i++;
+            }
+        }
+    }
+
+    /**
+     * The merge method merges the search hits of every shard of a ShardedSortedList into the order of the list (a k-way merge), and converts the index of each search hit from its position within its shard into its position in the list.
+     * The search hits of each shard must already be in the order of that shard and indexed within it (see sortAndIndex). Items of different shards never compare as equal, so the smallest next search hit of any shard is always the next in the order of the list.
+     * Items which compare as equal are always held by the same shard, so once the first search hit of a run is taken the rest of the run is taken with it.
+     * The number of smaller items in each other shard is found once for each run of items which compare as equal. It lies between the position after the last search hit taken from that shard and the position of its next search hit, so it is found by a binary search of only the items between them (see rankBetween), which needs no search at all when most items match.
+     *
+     * @param shardHits specifies the search hits of each shard, in order of shard.
+     * @param list      specifies the ShardedSortedList holding the items.
+     * @param <T>       Param T refers to the kind of item held in the ShardedSortedList.
+     * @return returns the search hits of every shard in the order of the list.
+     */
+    static <T extends Comparable<T>> ArrayList<SearchHit<T>> merge(ArrayList<ArrayList<SearchHit<T>>> shardHits, ShardedSortedList<T> list) {
+        if (shardHits.size() == 1) {
+            return shardHits.get(0);
+        }
+        int total = 0;
+        for (ArrayList<SearchHit<T>> hits : shardHits) {
+            total += hits.size();
+        }
+        ArrayList<SearchHit<T>> merged = new ArrayList<>(total);
+        int[] next = new int[shardHits.size()];
+        //Each shard has taken[s] items smaller than the item being merged (those up to its last search hit taken), and no more than the position of its next search hit.
+        int[] taken = new int[shardHits.size()];
+        while (merged.size() < total) {
+            int smallest = -1;
+            for (int s = 0; s < next.length; s++) {
+                if (next[s] < shardHits.get(s).size() && (smallest == -1
+                        || shardHits.get(s).get(next[s]).getItem().compareTo(shardHits.get(smallest).get(next[smallest]).getItem()) < 0)) {
+                    smallest = s;
+                }
+            }
+            ArrayList<SearchHit<T>> hits = shardHits.get(smallest);
+            T run = hits.get(next[smallest]).getItem();
+            int before = 0;
+            for (int s = 0; s < next.length; s++) {
+                if (s != smallest) {
+                    int bound = next[s] < shardHits.get(s).size() ? shardHits.get(s).get(next[s]).getIndex() : list.shard(s).size();
+                    before += rankBetween(list.shard(s), run, taken[s], bound);
+                }
+            }
+            //The whole run is in the same shard, so it is taken without comparing it with the other shards again.
+            SearchHit<T> hit;
+            do {
+                hit = hits.get(next[smallest]++);
+                hit.setIndex(before + hit.getIndex());
+                merged.add(hit);
+            } while (next[smallest] < hits.size() && hits.get(next[smallest]).getItem().compareTo(run) == 0);
+            taken[smallest] = hit.getIndex() - before + 1;
+        }
+        return merged;
+    }
+
+    /**
+     * The rankBetween method finds the number of items of a SortedArrayList which are smaller than an item, when it is already known to lie between two positions.
+     *
+     * @param list specifies the SortedArrayList.
+     * @param item specifies the item to rank.
+     * @param low  specifies the lowest the rank can be.
+     * @param high specifies the highest the rank can be.
+     * @param <T>  Param T refers to the kind of item held in the SortedArrayList.
+     * @return returns the rank of the item.
+     */
+    private static <T extends Comparable<T>> int rankBetween(SortedArrayList<T> list, T item, int low, int high) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list.get(mid).compareTo(item) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The getOffset method returns the offset of the match within the field the search matched on.
+     *
+     * @return returns the offset of the match.
+     */
+    int getOffset() {
+        return offset;
+    }
+}
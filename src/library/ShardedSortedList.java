@@ -0,0 +1,436 @@
+package library;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The ShardedSortedList class is a sorted list whose elements are partitioned across a number of SortedArrayList 'shards', so that work over every element (i.e. a search) can be shared between the shards and run on many threads at once (see fanOut).
+ * Each element is held by the shard given by the hash of its key (see shardOf), i.e. the surname of a book or user.
+ * <p>
+ * The ShardedSortedList reads as the single sorted list the shards would make together: get, indexOf and iterator all use the position of an element in that merged list, so positions (the ids displayed by the user interface) are the same whatever the number of shards.
+ * This relies on the key of elements which compare as equal being equal, so that equal elements are always held by the same shard: no element of one shard is then equal to an element of another, and the position of an element is its position in its own shard plus the number of smaller elements in each other shard (see globalIndex).
+ * Elements which compare as equal keep the order they were added in, as they would in a single SortedArrayList, since they are all added to the same shard.
+ * <p>
+ * The element at a position (see get and iterator(int)) is found by counting how many elements of each shard come before that position (see countsBefore), taking blocks of elements from the shards in steps which halve, which reads O(S log n) elements for S shards of n elements and keeps no state which a change to the list would have to update.
+ * <p>
+ * A ShardedSortedList of a single shard passes every method straight to that shard, so it costs nothing over a SortedArrayList.
+ *
+ * @param <E> Param E refers to the elements of a kind such that it can be contained within a SortedArrayList.
+ */
+class ShardedSortedList<E extends Comparable<E>> extends AbstractList<E> implements RandomAccess {
+    private final SortedArrayList<E>[] shards;
+    private final ToIntFunction<E> key;
+
+    /**
+     * ShardedSortedList is the constructor method for instances of the ShardedSortedList class, which begins as an empty list.
+     *
+     * @param shardCount specifies the number of shards, which must be at least 1.
+     * @param key        specifies the hash of the key of an element, which must be equal for elements which compare as equal (see hashIgnoreCase).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ShardedSortedList(int shardCount, ToIntFunction<E> key) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("There must be at least one shard.");
+        }
+        shards = new SortedArrayList[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            shards[s] = new SortedArrayList<>();
+        }
+        this.key = key;
+    }
+
+    /**
+     * The hashIgnoreCase method returns a hash of a String which is equal for Strings which are equal ignoring case, as compared by String.compareToIgnoreCase (each character is folded the same way), without creating a folded copy of the String.
+     *
+     * @param value specifies the String to hash.
+     * @return returns the hash of the String.
+     */
+    static int hashIgnoreCase(String value) {
+        int hash = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 128) {
+                //Most names are ASCII, whose letters fold to lower case without a lookup.
+                hash = 31 * hash + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+            } else {
+                hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(c));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The getShardCount method returns the number of shards of the list.
+     *
+     * @return returns the number of shards.
+     */
+    int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * The shard method returns a single shard of the list, so that work can be done on each shard separately (see fanOut). Positions within a shard are not positions of the list (see globalIndex).
+     *
+     * @param shard specifies the index of the shard.
+     * @return returns the SortedArrayList of the shard.
+     */
+    SortedArrayList<E> shard(int shard) {
+        return shards[shard];
+    }
+
+    /**
+     * The shardOf method returns the index of the shard which holds (or would hold) an element, from the hash of its key.
+     *
+     * @param e specifies the element.
+     * @return returns the index of the shard.
+     */
+    int shardOf(E e) {
+        if (shards.length == 1) {
+            return 0;
+        }
+        int hash = key.applyAsInt(e) * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * The globalIndex method converts the position of an element within its shard into its position in the list, by adding the number of elements of every other shard which are smaller than it (see SortedArrayList.rank).
+     *
+     * @param shard      specifies the index of the shard holding the element.
+     * @param e          specifies the element.
+     * @param localIndex specifies the position of the element within its shard.
+     * @return returns the position of the element in the list.
+     */
+    int globalIndex(int shard, E e, int localIndex) {
+        int index = localIndex;
+        for (int s = 0; s < shards.length; s++) {
+            if (s != shard) {
+                index += shards[s].rank(e);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The fanOut method runs a task once for each shard, the tasks of every shard but the first on the common ForkJoinPool while the calling thread runs the task of the first shard, and waits for all of them to complete.
+     * A list of a single shard runs its task on the calling thread alone.
+     *
+     * @param task specifies the task, given the index of the shard to work on.
+     * @param <R>  Param R refers to the result of the task.
+     * @return returns the result of the task of each shard, in order of shard.
+     */
+    <R> ArrayList<R> fanOut(IntFunction<R> task) {
+        ArrayList<R> results = new ArrayList<>(shards.length);
+        if (shards.length == 1) {
+            results.add(task.apply(0));
+            return results;
+        }
+        ArrayList<ForkJoinTask<R>> forked = new ArrayList<>(shards.length - 1);
+        for (int s = 1; s < shards.length; s++) {
+            int shard = s;
+            forked.add(ForkJoinPool.commonPool().submit(() -> task.apply(shard)));
+        }
+        results.add(task.apply(0));
+        for (ForkJoinTask<R> result : forked) {
+            results.add(result.join());
+        }
+        return results;
+    }
+
+    /**
+     * The add method adds an element to the shard which owns it (see shardOf).
+     *
+     * @param e specifies the element to add.
+     * @return returns true.
+     */
+    @Override
+    public boolean add(E e) {
+        modCount++;
+        return shards[shardOf(e)].add(e);
+    }
+
+    /**
+     * The addAllSorted method adds a run of elements which is already sorted, splitting it into the run of each shard (which is still sorted) and adding each run in a single step (see SortedArrayList.addAllSorted).
+     *
+     * @param sorted specifies the array of elements in ascending order (ties in the order they should appear).
+     * @param length specifies the number of elements of 'sorted' to add.
+     */
+    void addAllSorted(E[] sorted, int length) {
+        modCount++;
+        if (shards.length == 1) {
+            shards[0].addAllSorted(sorted, length);
+            return;
+        }
+        int[] owners = new int[length];
+        int[] counts = new int[shards.length];
+        for (int i = 0; i < length; i++) {
+            owners[i] = shardOf(sorted[i]);
+            counts[owners[i]]++;
+        }
+        ArrayList<E[]> runs = new ArrayList<>(shards.length);
+        for (int s = 0; s < shards.length; s++) {
+            runs.add(Arrays.copyOf(sorted, counts[s]));
+            counts[s] = 0;
+        }
+        for (int i = 0; i < length; i++) {
+            runs.get(owners[i])[counts[owners[i]]++] = sorted[i];
+        }
+        for (int s = 0; s < shards.length; s++) {
+            shards[s].addAllSorted(runs.get(s), runs.get(s).length);
+        }
+    }
+
+    /**
+     * The get method returns the element at the specified position of the list, the smallest of the elements of the shards which are not before that position (see locate).
+     *
+     * @param index specifies the position of the element to return.
+     * @return returns the element at that position.
+     * @throws IndexOutOfBoundsException if the index is not a position in the list.
+     */
+    @Override
+    public E get(int index) {
+        if (shards.length == 1) {
+            return shards[0].get(index);
+        }
+        long location = locate(index);
+        return shards[(int) (location >>> 32)].get((int) location);
+    }
+
+    /**
+     * The indexOf method returns the position of the specified object, found within the shard which owns it (see SortedArrayList.indexOf) then converted to its position in the list (see globalIndex).
+     *
+     * @param o specifies the object to find.
+     * @return returns the position of the object, or -1 if the object is not held in the list.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int indexOf(Object o) {
+        if (shards.length == 1) {
+            return shards[0].indexOf(o);
+        }
+        if (o == null || isEmpty()) {
+            return -1;
+        }
+        E e;
+        int shard;
+        try {
+            e = (E) o;
+            shard = shardOf(e);
+        } catch (ClassCastException ex) {
+            return -1;
+        }
+        int localIndex = shards[shard].indexOf(e);
+        return localIndex == -1 ? -1 : globalIndex(shard, e, localIndex);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    /**
+     * The rank method returns the number of elements which are smaller than the specified element (the position the first element equal to it has, or would have, in the list).
+     *
+     * @param e specifies the element to rank.
+     * @return returns the rank of the element.
+     */
+    int rank(E e) {
+        int rank = 0;
+        for (SortedArrayList<E> shard : shards) {
+            rank += shard.rank(e);
+        }
+        return rank;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (SortedArrayList<E> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * The clear method removes all elements from every shard.
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        for (SortedArrayList<E> shard : shards) {
+            shard.clear();
+        }
+    }
+
+    /**
+     * The removeIf method removes every element which satisfies the filter from every shard, each in a single pass (see SortedArrayList.removeIf).
+     *
+     * @param filter specifies the test of the elements to remove.
+     * @return returns true if any element was removed.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        boolean removed = false;
+        for (SortedArrayList<E> shard : shards) {
+            removed |= shard.removeIf(filter);
+        }
+        if (removed) {
+            modCount++;
+        }
+        return removed;
+    }
+
+    /**
+     * The iterator method returns an iterator over every element of the list in order (see iterator(int)).
+     *
+     * @return returns an iterator over the elements in ascending order.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * The iterator method returns an iterator over the elements of the list starting from the specified position.
+     * The iterator walks every shard from the first of its elements at or after that position (see countsBefore), and merges them by returning the smallest of the next element of each shard in turn (a k-way merge).
+     *
+     * @param index specifies the position of the first element the iterator returns.
+     * @return returns an iterator over the elements from that position in ascending order.
+     */
+    Iterator<E> iterator(int index) {
+        if (shards.length == 1) {
+            return shards[0].iterator(index);
+        }
+        int size = size();
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new MergeIterator(countsBefore(index));
+    }
+
+    /**
+     * The locate method finds the shard holding the element at a position of the list and the position of that element within the shard: once the elements before the position have been counted (see countsBefore), it is the smallest of the next element of each shard.
+     *
+     * @param index specifies the position of the element in the list.
+     * @return returns the index of the shard in the high 32 bits and the position within the shard in the low 32 bits.
+     * @throws IndexOutOfBoundsException if the index is not a position in the list.
+     */
+    private long locate(int index) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int[] counts = countsBefore(index);
+        int shard = -1;
+        E smallest = null;
+        for (int s = 0; s < shards.length; s++) {
+            if (counts[s] < shards[s].size()) {
+                E next = shards[s].get(counts[s]);
+                if (shard == -1 || next.compareTo(smallest) < 0) {
+                    shard = s;
+                    smallest = next;
+                }
+            }
+        }
+        return (long) shard << 32 | counts[shard];
+    }
+
+    /**
+     * The countsBefore method returns the number of elements of each shard which come before a position of the list.
+     * Blocks of 'step' elements are taken from the front of the shards, for steps which halve from the largest power of two up to the position down to 1. At each step the block taken is the one whose last element is the smallest, and only while the elements taken so far plus the most elements which can come before that last element (step - 1 more from each shard) are still before the position.
+     * Every element taken is then before the position, and at each step no more than S + 1 blocks are taken (the elements still to take were fewer than S steps of the step before), so the last step of 1 ends with exactly the elements before the position taken.
+     * The last element of the next block of each shard is read once per step and again only once a block of that shard is taken, so O(S log n) elements are read.
+     *
+     * @param index specifies the position, from 0 to the size of the list.
+     * @return returns the number of elements of each shard before that position, in order of shard.
+     */
+    private int[] countsBefore(int index) {
+        int[] counts = new int[shards.length];
+        ArrayList<E> ends = new ArrayList<>(shards.length);
+        int taken = 0;
+        for (int step = Integer.highestOneBit(Math.max(index, 1)); step > 0; step >>>= 1) {
+            ends.clear();
+            for (int s = 0; s < shards.length; s++) {
+                ends.add(blockEnd(s, counts[s], step));
+            }
+            while (index - taken > (long) shards.length * (step - 1)) {
+                int smallest = -1;
+                for (int s = 0; s < shards.length; s++) {
+                    E end = ends.get(s);
+                    if (end != null && (smallest == -1 || end.compareTo(ends.get(smallest)) < 0)) {
+                        smallest = s;
+                    }
+                }
+                if (smallest == -1) {
+                    break;
+                }
+                counts[smallest] += step;
+                taken += step;
+                ends.set(smallest, blockEnd(smallest, counts[smallest], step));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * The blockEnd method returns the last element of the block of 'step' elements of a shard which starts at a position of the shard, or null if the shard ends before it.
+     */
+    private E blockEnd(int shard, int start, int step) {
+        return (long) start + step <= shards[shard].size() ? shards[shard].get(start + step - 1) : null;
+    }
+
+    /**
+     * The MergeIterator walks each shard from a starting position and returns the smallest next element of any shard in turn.
+     * Elements of different shards never compare as equal, so the order of the merge is always the order of the list.
+     */
+    private class MergeIterator implements Iterator<E> {
+        private final ArrayList<Iterator<E>> iterators;
+        private final ArrayList<E> heads;
+
+        private MergeIterator(int[] starts) {
+            iterators = new ArrayList<>(shards.length);
+            heads = new ArrayList<>(shards.length);
+            for (int s = 0; s < shards.length; s++) {
+                Iterator<E> iterator = shards[s].iterator(starts[s]);
+                iterators.add(iterator);
+                heads.add(iterator.hasNext() ? iterator.next() : null);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (E head : heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public E next() {
+            int smallest = -1;
+            for (int s = 0; s < heads.size(); s++) {
+                E head = heads.get(s);
+                if (head != null && (smallest == -1 || head.compareTo(heads.get(smallest)) < 0)) {
+                    smallest = s;
+                }
+            }
+            if (smallest == -1) {
+                throw new NoSuchElementException();
+            }
+            E next = heads.get(smallest);
+            Iterator<E> iterator = iterators.get(smallest);
+            heads.set(smallest, iterator.hasNext() ? iterator.next() : null);
+            return next;
+        }
+    }
+}
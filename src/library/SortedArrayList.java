@@ -0,0 +1,493 @@
+package library;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * The SortedArrayList class is a list which keeps objects sorted such that they implement the Comparable interface.
+ * A SortedArrayList object is able to use any of the read methods of the List interface (get, size, iterator .etc.), and overrides the add method to perform sorting.
+ * The SortedArrayList performs sorting operations using the compareTo method on objects from the Comparable interface.
+ * As a result, those objects must implement the Comparable interface in order to be contained by a SortedArrayList.
+ * <p>
+ * Internally the elements are held in a list of small sorted ArrayList 'chunks' (each holding at most twice CHUNK_LOAD elements) rather than one large ArrayList.
+ * The last element of each chunk is kept in 'maxima' so that the chunk an element belongs to can be found by a binary search, and the size of each chunk is kept in a Fenwick tree 'positions' so that the chunk holding a given position can be found in O(log n).
+ * This means an insertion only ever shifts the elements of a single chunk, so add, get and indexOf all run in O(log n) (plus a bounded shift within one chunk) instead of the O(n) insertion sort previously used.
+ * The position of an element (its index) is still the position used by the user interface as an ID.
+ *
+ * @param <E> Param E refers to the elements of a kind such that it can be contained within a List object.
+ *            Similarly Param E also refers to objects of a kind such that it can be extended from a Comparable object. All objects of this kind must implement the Comparable interface.
+ */
+class SortedArrayList<E extends Comparable<E>> extends AbstractList<E> implements RandomAccess {
+    private static final int CHUNK_LOAD = 512;
+    private ArrayList<ArrayList<E>> chunks;
+    private ArrayList<E> maxima;
+    private int[] positions;
+    private int size;
+
+    /**
+     * SortedArrayList is the constructor method for instances of the SortedArrayList class, which begins as an empty list.
+     */
+    SortedArrayList() {
+        chunks = new ArrayList<>();
+        maxima = new ArrayList<>();
+        positions = new int[1];
+        size = 0;
+    }
+
+    /**
+     * The add method overrides the add method for List objects and adds elements in order.
+     * <p>
+     * The method takes in an element of a kind E (such that it implements the Comparable interface) and performs a binary search over the last element of each chunk to find the first chunk holding an element bigger than the element to add.
+     * A second binary search within that chunk finds the first element bigger than the element to add, and the element is inserted at that position (shifting only the elements of that chunk up by 1).
+     * If the value of the compareTo method is equal, then the order between those two elements is not necessarily relevant (since the comparison between the two elements is semantically equal), the operation adds the element after those elements.
+     * If the chunk grows beyond twice CHUNK_LOAD elements it is split in two.
+     *
+     * @param e the object of an element of a kind E to add to the SortedArrayList.
+     * @return returns true if the operation was successful.
+     */
+    @Override
+    public boolean add(E e) {
+        modCount++;
+        if (chunks.isEmpty()) {
+            ArrayList<E> chunk = new ArrayList<>();
+            chunk.add(e);
+            chunks.add(chunk);
+            maxima.add(e);
+            size = 1;
+            rebuildPositions();
+            return true;
+        }
+        int chunkIndex = upperBound(maxima, e);
+        if (chunkIndex == chunks.size()) {
+            chunkIndex--;
+        }
+        ArrayList<E> chunk = chunks.get(chunkIndex);
+        int offset = upperBound(chunk, e);
+        chunk.add(offset, e);
+        if (offset == chunk.size() - 1) {
+            maxima.set(chunkIndex, e);
+        }
+        size++;
+        if (chunk.size() > 2 * CHUNK_LOAD) {
+            splitChunk(chunkIndex);
+        } else {
+            updatePositions(chunkIndex, 1);
+        }
+        return true;
+    }
+
+    /**
+     * The addAllSorted method adds a run of elements which is already sorted (for example by Arrays.parallelSort) in a single step.
+     * If the SortedArrayList is empty no comparisons are performed; the run is cut directly into chunks of CHUNK_LOAD elements.
+     * Otherwise the run is merged with the elements already held in one linear pass (an element of the run is placed after any held element which compares as equal, as with the add method) and the merged elements are cut into new chunks, so adding a run of k elements to n costs O(n + k).
+     * A run which is small compared to the list (fewer than one element per CHUNK_LOAD held) is cheaper to add element by element, so its elements are added with the add method instead.
+     *
+     * @param sorted specifies the array of elements in ascending order (ties in the order they should appear).
+     * @param length specifies the number of elements of 'sorted' to add.
+     */
+    void addAllSorted(E[] sorted, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (length < size / CHUNK_LOAD) {
+            for (int i = 0; i < length; i++) {
+                add(sorted[i]);
+            }
+            return;
+        }
+        modCount++;
+        ArrayList<ArrayList<E>> held = chunks;
+        chunks = new ArrayList<>((size + length) / CHUNK_LOAD + 1);
+        maxima = new ArrayList<>((size + length) / CHUNK_LOAD + 1);
+        ArrayList<E> chunk = new ArrayList<>(2 * CHUNK_LOAD + 1);
+        int next = 0;
+        for (ArrayList<E> heldChunk : held) {
+            for (E e : heldChunk) {
+                while (next < length && sorted[next].compareTo(e) < 0) {
+                    chunk = appendToChunk(chunk, sorted[next++]);
+                }
+                chunk = appendToChunk(chunk, e);
+            }
+        }
+        while (next < length) {
+            chunk = appendToChunk(chunk, sorted[next++]);
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+            maxima.add(chunk.get(chunk.size() - 1));
+        }
+        size += length;
+        rebuildPositions();
+    }
+
+    /**
+     * The appendToChunk method appends an element to the chunk being filled by addAllSorted, starting a new chunk once that chunk holds CHUNK_LOAD elements.
+     *
+     * @param chunk specifies the chunk being filled.
+     * @param e     specifies the element to append, which is not smaller than any element already appended.
+     * @return returns the chunk the next element is appended to.
+     */
+    private ArrayList<E> appendToChunk(ArrayList<E> chunk, E e) {
+        chunk.add(e);
+        if (chunk.size() < CHUNK_LOAD) {
+            return chunk;
+        }
+        chunks.add(chunk);
+        maxima.add(e);
+        return new ArrayList<>(2 * CHUNK_LOAD + 1);
+    }
+
+    /**
+     * The get method returns the element at the specified position by finding the chunk which holds that position in the Fenwick tree 'positions'.
+     *
+     * @param index specifies the position of the element to return.
+     * @return returns the element at that position.
+     * @throws IndexOutOfBoundsException if the index is not a position in the SortedArrayList.
+     */
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        long location = locate(index);
+        return chunks.get((int) (location >>> 32)).get((int) location);
+    }
+
+    /**
+     * The remove method removes the element at the specified position. If the chunk holding that element becomes empty the chunk is discarded.
+     *
+     * @param index specifies the position of the element to remove.
+     * @return returns the element which was removed.
+     * @throws IndexOutOfBoundsException if the index is not a position in the SortedArrayList.
+     */
+    @Override
+    public E remove(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        modCount++;
+        long location = locate(index);
+        int chunkIndex = (int) (location >>> 32);
+        ArrayList<E> chunk = chunks.get(chunkIndex);
+        E removed = chunk.remove((int) location);
+        size--;
+        if (chunk.isEmpty()) {
+            chunks.remove(chunkIndex);
+            maxima.remove(chunkIndex);
+            rebuildPositions();
+        } else {
+            maxima.set(chunkIndex, chunk.get(chunk.size() - 1));
+            updatePositions(chunkIndex, -1);
+        }
+        return removed;
+    }
+
+    /**
+     * The rank method returns the number of elements which are sorted strictly before the specified element, i.e. the position the first element equal to it would hold.
+     *
+     * @param e specifies the element to rank.
+     * @return returns the rank of the element.
+     */
+    int rank(E e) {
+        int chunkIndex = lowerBound(maxima, e);
+        if (chunkIndex == chunks.size()) {
+            return size;
+        }
+        return prefix(chunkIndex) + lowerBound(chunks.get(chunkIndex), e);
+    }
+
+    /**
+     * The indexOf method returns the position of the specified object.
+     * Rather than comparing against every element, the rank of the object is found first and only the elements which compare as equal to it are checked with the equals method.
+     *
+     * @param o specifies the object to find.
+     * @return returns the position of the object, or -1 if the object is not held in the SortedArrayList.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int indexOf(Object o) {
+        if (o == null || size == 0) {
+            return -1;
+        }
+        E e;
+        try {
+            e = (E) o;
+            e.compareTo(maxima.get(0));
+        } catch (ClassCastException ex) {
+            return -1;
+        }
+        int chunkIndex = lowerBound(maxima, e);
+        if (chunkIndex == chunks.size()) {
+            return -1;
+        }
+        int position = prefix(chunkIndex);
+        int offset = lowerBound(chunks.get(chunkIndex), e);
+        for (; chunkIndex < chunks.size(); chunkIndex++, offset = 0) {
+            ArrayList<E> chunk = chunks.get(chunkIndex);
+            for (; offset < chunk.size(); offset++) {
+                E candidate = chunk.get(offset);
+                if (e.compareTo(candidate) != 0) {
+                    return -1;
+                }
+                if (o.equals(candidate)) {
+                    return position + offset;
+                }
+            }
+            position += chunk.size();
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The clear method removes all elements from the SortedArrayList.
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        chunks.clear();
+        maxima.clear();
+        positions = new int[1];
+        size = 0;
+    }
+
+    /**
+     * The removeIf method removes every element which satisfies the filter in a single pass over the chunks, rebuilding the Fenwick tree 'positions' once, so that removing many elements costs O(n) rather than a search and a shift per element.
+     * Chunks which are left empty are discarded; the order of the elements which remain is unchanged.
+     *
+     * @param filter specifies the test of the elements to remove.
+     * @return returns true if any element was removed.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        ArrayList<ArrayList<E>> keptChunks = new ArrayList<>(chunks.size());
+        ArrayList<E> keptMaxima = new ArrayList<>(chunks.size());
+        int removed = 0;
+        for (ArrayList<E> chunk : chunks) {
+            int before = chunk.size();
+            chunk.removeIf(filter);
+            removed += before - chunk.size();
+            if (!chunk.isEmpty()) {
+                keptChunks.add(chunk);
+                keptMaxima.add(chunk.get(chunk.size() - 1));
+            }
+        }
+        if (removed == 0) {
+            return false;
+        }
+        modCount++;
+        chunks = keptChunks;
+        maxima = keptMaxima;
+        size -= removed;
+        rebuildPositions();
+        return true;
+    }
+
+    /**
+     * The iterator method returns an iterator which walks the chunks directly, so that iterating over every element does not perform a Fenwick tree lookup per element.
+     *
+     * @return returns an iterator over the elements in ascending order.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new ChunkIterator(0);
+    }
+
+    /**
+     * The iterator method returns an iterator which walks the chunks directly starting from the specified position.
+     *
+     * @param index specifies the position of the first element the iterator returns.
+     * @return returns an iterator over the elements from that position in ascending order.
+     */
+    Iterator<E> iterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new ChunkIterator(index);
+    }
+
+    /**
+     * The ChunkIterator walks each chunk of the SortedArrayList in order and supports removal of the last element returned.
+     */
+    private class ChunkIterator implements Iterator<E> {
+        private int chunkIndex = 0;
+        private int offset = 0;
+        private int position;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        private ChunkIterator(int start) {
+            position = start;
+            if (start > 0 && start < size) {
+                long location = locate(start);
+                chunkIndex = (int) (location >>> 32);
+                offset = (int) location;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < size;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (position >= size) {
+                throw new NoSuchElementException();
+            }
+            while (offset >= chunks.get(chunkIndex).size()) {
+                chunkIndex++;
+                offset = 0;
+            }
+            lastReturned = position;
+            position++;
+            return chunks.get(chunkIndex).get(offset++);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            SortedArrayList.this.remove(lastReturned);
+            position = lastReturned;
+            lastReturned = -1;
+            if (position < size) {
+                long location = locate(position);
+                chunkIndex = (int) (location >>> 32);
+                offset = (int) location;
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * The splitChunk method splits a chunk which has grown too large into two halves and rebuilds the Fenwick tree.
+     *
+     * @param chunkIndex specifies the index of the chunk to split.
+     */
+    private void splitChunk(int chunkIndex) {
+        ArrayList<E> chunk = chunks.get(chunkIndex);
+        int half = chunk.size() / 2;
+        ArrayList<E> upper = new ArrayList<>(2 * CHUNK_LOAD + 1);
+        upper.addAll(chunk.subList(half, chunk.size()));
+        chunk.subList(half, chunk.size()).clear();
+        chunks.add(chunkIndex + 1, upper);
+        maxima.set(chunkIndex, chunk.get(chunk.size() - 1));
+        maxima.add(chunkIndex + 1, upper.get(upper.size() - 1));
+        rebuildPositions();
+    }
+
+    /**
+     * The locate method finds the chunk and offset of a position by descending the Fenwick tree.
+     *
+     * @param index specifies the position to locate.
+     * @return returns the chunk index in the upper 32 bits and the offset within that chunk in the lower 32 bits.
+     */
+    private long locate(int index) {
+        int chunkIndex = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(chunks.size()); step > 0; step >>= 1) {
+            int next = chunkIndex + step;
+            if (next <= chunks.size() && positions[next] <= remaining) {
+                chunkIndex = next;
+                remaining -= positions[next];
+            }
+        }
+        return ((long) chunkIndex << 32) | remaining;
+    }
+
+    /**
+     * The prefix method returns the number of elements held in the chunks before the specified chunk.
+     *
+     * @param chunkIndex specifies the index of the chunk.
+     * @return returns the total size of the chunks 0 to chunkIndex - 1.
+     */
+    private int prefix(int chunkIndex) {
+        int total = 0;
+        for (int i = chunkIndex; i > 0; i -= i & -i) {
+            total += positions[i];
+        }
+        return total;
+    }
+
+    /**
+     * The updatePositions method adjusts the recorded size of a chunk in the Fenwick tree.
+     *
+     * @param chunkIndex specifies the index of the chunk.
+     * @param delta      specifies the change in size of that chunk.
+     */
+    private void updatePositions(int chunkIndex, int delta) {
+        for (int i = chunkIndex + 1; i < positions.length; i += i & -i) {
+            positions[i] += delta;
+        }
+    }
+
+    /**
+     * The rebuildPositions method rebuilds the Fenwick tree from the chunk sizes in O(number of chunks). This is only required when chunks are split or discarded.
+     */
+    private void rebuildPositions() {
+        positions = new int[chunks.size() + 1];
+        for (int i = 1; i < positions.length; i++) {
+            positions[i] += chunks.get(i - 1).size();
+            int parent = i + (i & -i);
+            if (parent < positions.length) {
+                positions[parent] += positions[i];
+            }
+        }
+    }
+
+    /**
+     * The upperBound method returns the position of the first element of a sorted list which is bigger than the specified element.
+     */
+    private static <T extends Comparable<T>> int upperBound(ArrayList<T> list, T e) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (e.compareTo(list.get(middle)) < 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The lowerBound method returns the position of the first element of a sorted list which is not smaller than the specified element.
+     */
+    private static <T extends Comparable<T>> int lowerBound(ArrayList<T> list, T e) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (list.get(middle).compareTo(e) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
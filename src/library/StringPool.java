@@ -0,0 +1,179 @@
+package library;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The StringPool class deduplicates Strings which repeat many times (i.e. the names of authors, as a prolific author appears on hundreds of books, and the names of users), so that every Book or User with the same name holds the same String instead of a copy of its own.
+ * Since equal names are then the same object, comparing names (see Book.compareTo and User.compareTo) first checks whether they are the same object, which is far cheaper than comparing their characters.
+ * <p>
+ * The pool is bounded: it is a table of a fixed number of slots, and each String is kept in the slot given by its hash, so the pool never holds more Strings than its number of slots.
+ * Which String a slot keeps is decided by a second chance policy: a pooled String is marked as referenced each time it is found, and a String whose slot holds a different String only replaces it if that String has not been referenced since it was pooled (or since it was last spared).
+ * A referenced String is spared once instead, losing its mark, and the new String is returned without being pooled. So a name seen once never evicts a name which keeps being found (i.e. a prolific author), it only evicts names which have not been found again, and a name which stops being found is replaced after being spared once.
+ * <p>
+ * Names can be pooled straight from the bytes of a file (see LibraryLineReader.linePooledString) without decoding them into a String first, so a name which is already pooled costs no String at all.
+ * Bytes which are all ASCII, in a charset which decodes ASCII bytes to the same characters (i.e. UTF-8 or ISO-8859-1), are hashed and compared as the characters they decode to, so a name pooled from bytes and the same name pooled as a String share a single slot and a single entry.
+ * Other bytes are decoded and pooled as a String.
+ * Strings longer than MAX_LENGTH (i.e. titles, which rarely repeat) are never pooled.
+ * <p>
+ * The pool may be used by many threads at once (i.e. the threads of an import): slots are read and replaced atomically and the String of an entry never changes once it is in a slot, so no locks are needed.
+ * The referenced mark of an entry is written without synchronisation, so a thread may miss a mark set by another thread, which only costs a name being pooled a little later than it could have been.
+ * Two threads pooling the same String at once may each keep their own copy, which only costs the memory the pool would have saved.
+ * <p>
+ * The StringPool class is made package private as it is intended for use only by the classes of the library (see NAMES, which Book and User use).
+ */
+class StringPool {
+    static final int MAX_LENGTH = 64;
+    static final StringPool NAMES = new StringPool(1 << 16);
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private Charset asciiCharset;
+
+    /**
+     * The StringPool method is a constructor which creates an empty pool.
+     *
+     * @param capacity specifies the number of slots of the pool, which must be a power of two.
+     */
+    StringPool(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException();
+        }
+        slots = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+    /**
+     * The intern method returns the pooled String equal to the specified String, pooling it if there is none and its slot may be replaced.
+     *
+     * @param value specifies the String (may be null).
+     * @return returns the pooled String, or the specified String if it is too long to pool or was not pooled.
+     */
+    String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        int slot = spread(value.hashCode()) & mask;
+        Entry entry = slots.get(slot);
+        if (entry != null && (entry.value == value || entry.value.equals(value))) {
+            entry.referenced = true;
+            return entry.value;
+        }
+        admit(slot, entry, value);
+        return value;
+    }
+
+    /**
+     * The intern method returns the pooled String decoded from the specified bytes, decoding the bytes (and pooling the String if its slot may be replaced) only if there is none.
+     *
+     * @param bytes   specifies the array holding the bytes.
+     * @param offset  specifies the offset of the first byte.
+     * @param length  specifies the number of bytes.
+     * @param charset specifies the charset to decode the bytes with.
+     * @return returns the pooled String, or a new String if the bytes are too long to pool or were not pooled.
+     */
+    String intern(byte[] bytes, int offset, int length, Charset charset) {
+        if (length > MAX_LENGTH) {
+            return new String(bytes, offset, length, charset);
+        }
+        //The hash of the characters ASCII bytes decode to, as String.hashCode computes it.
+        int hash = 0;
+        boolean ascii = true;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+            ascii &= bytes[i] >= 0;
+        }
+        if (!ascii || !decodesAscii(charset)) {
+            return intern(new String(bytes, offset, length, charset));
+        }
+        int slot = spread(hash) & mask;
+        Entry entry = slots.get(slot);
+        if (entry != null && entry.matches(bytes, offset, length)) {
+            entry.referenced = true;
+            return entry.value;
+        }
+        String value = new String(bytes, offset, length, charset);
+        admit(slot, entry, value);
+        return value;
+    }
+
+    /**
+     * The clear method empties the pool (Strings already returned are not affected).
+     */
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    /**
+     * The admit method pools a String which was not found in its slot, unless the String the slot holds has been referenced, in which case that String is spared once (its mark is cleared) and the new String is not pooled.
+     */
+    private void admit(int slot, Entry entry, String value) {
+        if (entry != null && entry.referenced) {
+            entry.referenced = false;
+        } else {
+            slots.set(slot, new Entry(value));
+        }
+    }
+
+    /**
+     * The decodesAscii method evaluates whether a charset decodes every ASCII byte to the character of the same code, remembering the last charset which does (the charset of a reader does not change).
+     */
+    private boolean decodesAscii(Charset charset) {
+        if (charset == asciiCharset) {
+            return true;
+        }
+        byte[] ascii = new byte[128];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        String decoded = new String(ascii, charset);
+        if (decoded.length() != ascii.length) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length; i++) {
+            if (decoded.charAt(i) != i) {
+                return false;
+            }
+        }
+        asciiCharset = charset;
+        return true;
+    }
+
+    /**
+     * The spread method mixes the high bits of a hash into its low bits, so that hashes which differ only in their high bits use different slots.
+     */
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * The Entry class is a pooled String, with a mark of whether it has been found since it was pooled or last spared (see admit).
+     */
+    private static class Entry {
+        private final String value;
+        private boolean referenced;
+
+        private Entry(String value) {
+            this.value = value;
+            referenced = false;
+        }
+
+        /**
+         * The matches method evaluates whether the String of the entry is the characters the specified ASCII bytes decode to.
+         */
+        private boolean matches(byte[] bytes, int offset, int length) {
+            if (value.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
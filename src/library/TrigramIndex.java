@@ -0,0 +1,245 @@
+package library;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The TrigramIndex class is an inverted index from every run of three consecutive characters (a trigram) of some text to the ids of the objects whose text contains that trigram.
+ * Any text containing a query string must contain every trigram of that query, so the ids of the objects which could match a query are found by intersecting the posting lists of the query's trigrams instead of inspecting every object.
+ * The index only narrows down the candidates: trigrams are packed into an int key, so characters above U+03FF may share a key with other trigrams, and the candidates must always be verified (i.e. with the contains method) by the caller.
+ * Queries shorter than three characters cannot be answered by the index and must be answered by the caller some other way.
+ * <p>
+ * Each posting list holds ids in the order they were added. Ids must be added in ascending order (as the LibraryBookshelf assigns them) so the posting lists are sorted and can be intersected by merging.
+ * Ids are removed in batches (see removeAll), so that a list shared by many of the ids removed is changed once rather than once per id.
+ * The index can be written to and read from a snapshot of the library (see writeTo and readFrom), in which each posting list is held as the differences between its ascending ids, encoded in as few bytes as they need.
+ * <p>
+ * The TrigramIndex class is made package private as it is intended for use only by the classes of the library (i.e. to search the books of the LibraryBookshelf).
+ */
+class TrigramIndex {
+    static final int GRAM_LENGTH = 3;
+    private IntObjectHashMap<PostingList> postings;
+
+    /**
+     * TrigramIndex is the constructor method for instances of the TrigramIndex class, which begins as an empty index.
+     */
+    TrigramIndex() {
+        postings = new IntObjectHashMap<>();
+    }
+
+    /**
+     * The add method adds every trigram of the specified text to the index under the specified id.
+     * The same id may be added with several texts (i.e. each field of a book), each trigram is only recorded once per id.
+     *
+     * @param id   specifies the id of the object the text belongs to, which must not be less than any id already added.
+     * @param text specifies the text to index.
+     */
+    void add(int id, String text) {
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            int key = keyOf(text, i);
+            PostingList list = postings.get(key);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(key, list);
+            }
+            list.append(id);
+        }
+    }
+
+    /**
+     * The removeAll method removes a set of ids from the index (i.e. the books removed by a re-import, see LibraryBookshelf.removeBooks).
+     * The ids are first gathered by trigram, so that each posting list holding any of them is changed once for the whole set (rather than once per id), and only the lists of the trigrams of the specified texts are visited.
+     *
+     * @param sortedIds specifies the ids to remove, in ascending order.
+     * @param texts     specifies the texts each id was added with (item i for the id sortedIds[i]).
+     */
+    void removeAll(int[] sortedIds, String[][] texts) {
+        IntObjectHashMap<PostingList> removals = new IntObjectHashMap<>();
+        for (int i = 0; i < sortedIds.length; i++) {
+            for (String text : texts[i]) {
+                for (int j = 0; j + GRAM_LENGTH <= text.length(); j++) {
+                    int key = keyOf(text, j);
+                    PostingList removed = removals.get(key);
+                    if (removed == null) {
+                        removed = new PostingList();
+                        removals.put(key, removed);
+                    }
+                    removed.append(sortedIds[i]);
+                }
+            }
+        }
+        for (int key : removals.keys()) {
+            PostingList list = postings.get(key);
+            if (list == null) {
+                continue;
+            }
+            list.removeAll(removals.get(key));
+            if (list.size == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * The candidates method returns the ids of all objects whose text contains every trigram of the query.
+     *
+     * @param query specifies the query string, which must be at least GRAM_LENGTH characters long.
+     * @return returns the ascending ids of the candidate objects (which must still be verified).
+     */
+    int[] candidates(String query) {
+        int gramCount = query.length() - GRAM_LENGTH + 1;
+        PostingList[] lists = new PostingList[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            lists[i] = postings.get(keyOf(query, i));
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        //Intersect the shortest lists first so the intermediate result is as small as possible.
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int resultSize = result.length;
+        for (int i = 1; i < lists.length && resultSize > 0; i++) {
+            resultSize = intersect(result, resultSize, lists[i]);
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+
+    /**
+     * The clear method removes all ids from the index.
+     */
+    void clear() {
+        postings.clear();
+    }
+
+    /**
+     * The writeTo method writes every posting list of the index to a snapshot.
+     *
+     * @param out specifies the stream of the snapshot.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        int[] keys = postings.keys();
+        out.writeInt(keys.length);
+        for (int key : keys) {
+            PostingList list = postings.get(key);
+            out.writeInt(key);
+            out.writeInt(list.size);
+            int previous = 0;
+            for (int i = 0; i < list.size; i++) {
+                writeVarInt(out, list.ids[i] - previous);
+                previous = list.ids[i];
+            }
+        }
+    }
+
+    /**
+     * The readFrom method replaces the contents of the index with the posting lists written to a snapshot by writeTo.
+     *
+     * @param in specifies the buffer holding the snapshot, positioned at the start of the index.
+     */
+    void readFrom(ByteBuffer in) {
+        postings.clear();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            int key = in.getInt();
+            PostingList list = new PostingList();
+            list.size = in.getInt();
+            list.ids = new int[Math.max(list.size, 4)];
+            int previous = 0;
+            for (int j = 0; j < list.size; j++) {
+                previous += readVarInt(in);
+                list.ids[j] = previous;
+            }
+            postings.put(key, list);
+        }
+    }
+
+    /**
+     * The intersect method keeps only the ids of 'result' which also appear in the posting list, writing them to the front of 'result'.
+     *
+     * @return returns the number of ids kept.
+     */
+    private static int intersect(int[] result, int resultSize, PostingList list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < resultSize && j < list.size; i++) {
+            while (j < list.size && list.ids[j] < result[i]) {
+                j++;
+            }
+            if (j < list.size && list.ids[j] == result[i]) {
+                result[kept++] = result[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * The writeVarInt method writes a non-negative int in 7 bit groups, lowest first, setting the top bit of every byte but the last.
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * The readVarInt method reads an int written by writeVarInt.
+     */
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * The keyOf method packs the trigram starting at the specified position into an int, using the low 10 bits of each character.
+     */
+    private static int keyOf(String text, int start) {
+        return (text.charAt(start) & 0x3FF) << 20 | (text.charAt(start + 1) & 0x3FF) << 10 | (text.charAt(start + 2) & 0x3FF);
+    }
+
+    /**
+     * The PostingList class is a growable array of the ascending ids which contain a trigram.
+     */
+    private static class PostingList {
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        private void append(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = id;
+        }
+
+        private void removeAll(PostingList removed) {
+            //Both lists are ascending: each id removed is found by a binary search after the last one found, and the runs of ids between them are moved down with System.arraycopy.
+            int from = 0;
+            int kept = 0;
+            for (int i = 0; i < removed.size; i++) {
+                int found = Arrays.binarySearch(ids, from, size, removed.ids[i]);
+                if (found < 0) {
+                    continue;
+                }
+                System.arraycopy(ids, from, ids, kept, found - from);
+                kept += found - from;
+                from = found + 1;
+            }
+            System.arraycopy(ids, from, ids, kept, size - from);
+            size = kept + size - from;
+        }
+    }
+}
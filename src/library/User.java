@@ -0,0 +1,191 @@
+package library;
+
+import java.util.Arrays;
+
+/**
+ * Instances of the User class are user objects held within the LibraryUserdata and used throughout the application.
+ * An object of the user class will thus hold information pertaining to the users. This includes the name of the user and details about the number of books they have loaned.
+ * The id field is the permanent id of the user, assigned by the LibraryUserdata when the user is added to it. Unlike the index of the user in the SortedArrayList it does not change when other users are added.
+ * The loans array is the loan index of the user: its first booksLoaned items are the ids of the books the user holds, so the books a user holds are found without searching the bookshelf.
+ * The number of books loaned is not a field of the user but is kept by the LibraryUserdata in the IdColumn 'loanedColumn', indexed by the id of the user, so that the loans of every user can be swept without visiting every user (a user who has not been added to a userdata has loaned no books).
+ * The loans array and the number of books loaned are changed together while holding the lock of the user (see addLoan and removeLoan), so that books can be issued to and returned from the same user by many threads at once without a loan being lost or the limit being exceeded.
+ * Each value of the column is volatile so that it can be read without the lock.
+ * The User class implements a comparator such that case-sensitive information is ignored when evaluated by the compareTo method.
+ * Methods of the User class have been made package-private as they are only intended to be used by instances of the LibraryUserdata class (the LibraryUserdata holds the Users in the Library).
+ */
+class User implements Comparable<User> {
+    private String forename;
+    private String surname;
+    private int id;
+    private int[] loans;
+    private IdColumn loanedColumn;
+
+    /**
+     * The User method is a constructor method used when constructing a new User object.
+     *
+     * @param forename specifies the forename of the user.
+     * @param surname  specifies the surname of the user.
+     *                 The names are pooled (see StringPool.NAMES), so users who share a name share the same String.
+     */
+    User(String forename, String surname) {
+        this.forename = StringPool.NAMES.intern(forename);
+        this.surname = StringPool.NAMES.intern(surname);
+        id = -1;
+        loanedColumn = null;
+    }
+
+
+    /**
+     * The method compareTo overrides a method of the Comparable interface implemented.
+     * By returning "compareToIgnoreCase", this method declares if the surname of this object is less than the surname of the object specified by the parameter is equal to a value less the 0, then the surname of this object is lexicographically sorted before the object specified in the parameter.
+     * In this case if the surname is an equal string (ignoring case) then the 'forename' field decides this order.
+     * Both fields are compared ignoring case so that the ordering is consistent (transitive), which is required for the same users to be sorted into the same order whether they are added one at a time or sorted in bulk.
+     *
+     * @param o refers to the object to compare to.
+     * @return returns negative if the value of the author surname of this object is lexicographically sorted before the author surname of the object 'o'.
+     */
+    @Override
+    public int compareTo(User o) {
+        //Pooled names which are equal are the same String (see StringPool), so most equal names are found without comparing characters.
+        int surnameOrder = surname == o.surname ? 0 : surname.compareToIgnoreCase(o.surname);
+        if (surnameOrder == 0) {
+            return forename == o.forename ? 0 : forename.compareToIgnoreCase(o.forename);
+        }
+        return surnameOrder;
+    }
+
+    /**
+     * The getForename method returns the forename of the user.
+     *
+     * @return returns the forename of the user.
+     */
+    String getForename() {
+        return forename;
+    }
+
+    /**
+     * The getSurname method returns the surname of the user.
+     *
+     * @return returns the surname of the user.
+     */
+    String getSurname() {
+        return surname;
+    }
+
+    /**
+     * The getId method returns the permanent id of the user.
+     *
+     * @return returns the id of the user, or -1 if the user has not been added to a userdata.
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * The setId method sets the permanent id of the user. This operation should only be performed by instances of the LibraryUserdata class.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * The setLoanedColumn method sets the column holding the number of books loaned by the user (see the class description). This operation should only be performed by instances of the LibraryUserdata class, once the user has their id.
+     */
+    void setLoanedColumn(IdColumn loanedColumn) {
+        this.loanedColumn = loanedColumn;
+    }
+
+    /**
+     * The getNameBySurname method returns the surname followed by the name as a formatted string format...
+     *
+     * @return returns the 'surname' and 'forename' fields as formatted "Surname, Forename".
+     */
+    String getNameBySurname() {
+        return surname + ", " + forename;
+    }
+
+    /**
+     * The getBooksLoaned method returns the number of books loaned by the user.
+     *
+     * @return returns the number of books loaned by the user.
+     */
+    byte getBooksLoaned() {
+        return (byte) booksLoaned();
+    }
+
+    /**
+     * The booksLoaned method returns the number of books loaned by the user from 'loanedColumn'.
+     */
+    private int booksLoaned() {
+        return loanedColumn == null ? 0 : loanedColumn.get(id);
+    }
+
+    /**
+     * The getLoans method returns the ids of the books the user holds, in the order they were loaned (a book returned early moves the last book loaned into its place).
+     *
+     * @return returns a copy of the loan index of the user.
+     */
+    synchronized int[] getLoans() {
+        int booksLoaned = booksLoaned();
+        if (booksLoaned == 0) {
+            return new int[0];
+        }
+        return Arrays.copyOf(loans, booksLoaned);
+    }
+
+    /**
+     * The holdsLoan method evaluates whether a book is in the loan index of the user.
+     *
+     * @param bookId specifies the id of the book.
+     * @return returns true if the user holds the book.
+     */
+    synchronized boolean holdsLoan(int bookId) {
+        int booksLoaned = booksLoaned();
+        for (int i = 0; i < booksLoaned; i++) {
+            if (loans[i] == bookId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The addLoan method adds a book to the loan index of the user and increments booksLoaned by 1, unless booksLoaned has already reached the specified limit. This operation should only be performed by instances of the LibraryUserdata class.
+     *
+     * @param bookId specifies the id of the book loaned.
+     * @param limit  specifies the maximum value of booksLoaned.
+     * @return returns true if the book was added, returns false if booksLoaned had already reached the limit.
+     */
+    synchronized boolean addLoan(int bookId, int limit) {
+        int booksLoaned = booksLoaned();
+        if (booksLoaned >= limit) {
+            return false;
+        }
+        if (loans == null) {
+            loans = new int[LibraryUserdata.MAX_BOOKS_LOANED];
+        } else if (loans.length == booksLoaned) {
+            loans = Arrays.copyOf(loans, 2 * loans.length);
+        }
+        loans[booksLoaned] = bookId;
+        loanedColumn.set(id, booksLoaned + 1);
+        return true;
+    }
+
+    /**
+     * The removeLoan method removes a book from the loan index of the user and decrements booksLoaned by 1. This operation should only be performed by instances of the LibraryUserdata class.
+     *
+     * @param bookId specifies the id of the book returned.
+     * @return returns true if the book was removed, returns false if the user does not hold that book.
+     */
+    synchronized boolean removeLoan(int bookId) {
+        int booksLoaned = booksLoaned();
+        for (int i = 0; i < booksLoaned; i++) {
+            if (loans[i] == bookId) {
+                loans[i] = loans[booksLoaned - 1];
+                loanedColumn.set(id, booksLoaned - 1);
+                return true;
+            }
+        }
+        return false;
+    }
+}
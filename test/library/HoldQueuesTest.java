@@ -0,0 +1,70 @@
+package library;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The HoldQueuesTest class checks the queue of each book against an ArrayDeque, with queues long enough for their rings to grow and wrap around.
+ */
+public class HoldQueuesTest {
+    @Test
+    public void queuesAreFirstInFirstOut() {
+        Random random = new Random(1);
+        HoldQueues holds = new HoldQueues();
+        List<ArrayDeque<Integer>> reference = newQueues(8);
+        for (int i = 0; i < 20000; i++) {
+            int book = random.nextInt(reference.size());
+            int operation = random.nextInt(5);
+            if (operation < 2) {
+                int user = random.nextInt(100);
+                int position = holds.add(book, user);
+                if (reference.get(book).contains(user)) {
+                    assertEquals(-1, position);
+                } else {
+                    reference.get(book).add(user);
+                    assertEquals(reference.get(book).size(), position);
+                }
+            } else if (operation < 4) {
+                Integer expected = reference.get(book).poll();
+                assertEquals(expected == null ? -1 : expected, holds.poll(book));
+            } else {
+                int user = random.nextInt(100);
+                assertEquals(reference.get(book).remove(user), holds.remove(book, user));
+            }
+            assertArrayEquals(reference.get(book).stream().mapToInt(Integer::intValue).toArray(), holds.toArray(book));
+        }
+    }
+
+    @Test
+    public void emptyQueuesAreDiscarded() {
+        HoldQueues holds = new HoldQueues();
+        assertEquals(-1, holds.poll(3));
+        assertEquals(0, holds.toArray(3).length);
+        assertEquals(1, holds.add(3, 10));
+        assertEquals(2, holds.add(3, 11));
+        assertTrue(holds.remove(3, 10));
+        assertFalse(holds.remove(3, 10));
+        assertEquals(11, holds.poll(3));
+        assertEquals(-1, holds.poll(3));
+        assertEquals(1, holds.add(3, 10));
+        holds.clear();
+        assertEquals(0, holds.toArray(3).length);
+    }
+
+    private static List<ArrayDeque<Integer>> newQueues(int books) {
+        List<ArrayDeque<Integer>> queues = new ArrayList<>(books);
+        for (int book = 0; book < books; book++) {
+            queues.add(new ArrayDeque<>());
+        }
+        return queues;
+    }
+}
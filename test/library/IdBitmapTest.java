@@ -0,0 +1,132 @@
+package library;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The IdBitmapTest class checks an IdBitmap against a TreeSet, with containers dense enough to become bitmaps and sparse enough to stay arrays, and as they convert back and forth.
+ */
+public class IdBitmapTest {
+    private static int[] toArray(TreeSet<Integer> set) {
+        return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * The randomIds method adds ids to both sets: a dense run in the first container (a bitmap), a sparse scattering in the second (an array) and a few far beyond.
+     */
+    private static void randomIds(Random random, IdBitmap bitmap, TreeSet<Integer> reference, int count) {
+        for (int i = 0; i < count; i++) {
+            int id;
+            switch (random.nextInt(3)) {
+                case 0:
+                    id = random.nextInt(20000);
+                    break;
+                case 1:
+                    id = 65536 + random.nextInt(65536);
+                    break;
+                default:
+                    id = random.nextInt(1 << 24);
+            }
+            assertEquals(reference.add(id), bitmap.add(id));
+        }
+    }
+
+    @Test
+    public void addRemoveAndContainsMatchTreeSet() {
+        Random random = new Random(1);
+        IdBitmap bitmap = new IdBitmap();
+        TreeSet<Integer> reference = new TreeSet<>();
+        randomIds(random, bitmap, reference, 30000);
+        assertEquals(reference.size(), bitmap.cardinality());
+        assertArrayEquals(toArray(reference), bitmap.toArray());
+        //Remove most ids of the dense container, so it becomes an array again.
+        for (int id = 0; id < 20000; id++) {
+            if (id % 10 != 0) {
+                assertEquals(reference.remove(id), bitmap.remove(id));
+            }
+        }
+        for (int id = 0; id < 140000; id++) {
+            assertEquals(reference.contains(id), bitmap.contains(id));
+        }
+        assertEquals(reference.size(), bitmap.cardinality());
+        assertArrayEquals(toArray(reference), bitmap.toArray());
+        bitmap.clear();
+        assertEquals(0, bitmap.cardinality());
+        assertFalse(bitmap.contains(reference.first()));
+    }
+
+    @Test
+    public void andAndAndNotMatchSetOperations() {
+        Random random = new Random(2);
+        IdBitmap left = new IdBitmap();
+        IdBitmap right = new IdBitmap();
+        TreeSet<Integer> leftReference = new TreeSet<>();
+        TreeSet<Integer> rightReference = new TreeSet<>();
+        randomIds(random, left, leftReference, 20000);
+        randomIds(random, right, rightReference, 20000);
+
+        TreeSet<Integer> both = new TreeSet<>(leftReference);
+        both.retainAll(rightReference);
+        assertArrayEquals(toArray(both), left.and(right).toArray());
+        TreeSet<Integer> leftOnly = new TreeSet<>(leftReference);
+        leftOnly.removeAll(rightReference);
+        assertArrayEquals(toArray(leftOnly), left.andNot(right).toArray());
+        //The operands are unchanged.
+        assertArrayEquals(toArray(leftReference), left.toArray());
+        assertArrayEquals(toArray(rightReference), right.toArray());
+    }
+
+    @Test
+    public void ofHoldsTheSortedIds() {
+        int[] ids = {0, 3, 65535, 65536, 70000, 1 << 20};
+        IdBitmap bitmap = IdBitmap.of(ids);
+        assertArrayEquals(ids, bitmap.toArray());
+        assertTrue(bitmap.contains(65536));
+        assertFalse(bitmap.contains(65537));
+    }
+
+    @Test
+    public void ofBuildsEachContainerFromItsRun() {
+        Random random = new Random(3);
+        TreeSet<Integer> reference = new TreeSet<>();
+        randomIds(random, new IdBitmap(), reference, 30000);
+        int[] ids = toArray(reference);
+        IdBitmap bitmap = IdBitmap.of(ids);
+        assertEquals(reference.size(), bitmap.cardinality());
+        assertArrayEquals(ids, bitmap.toArray());
+        //The dense container was built as a bitmap, and still converts back to an array as ids are removed.
+        for (int id = 0; id < 20000; id++) {
+            if (id % 10 != 0) {
+                assertEquals(reference.remove(id), bitmap.remove(id));
+            }
+        }
+        assertArrayEquals(toArray(reference), bitmap.toArray());
+        assertArrayEquals(new int[]{1, 2, 70000}, IdBitmap.of(new int[]{1, 1, 2, 70000, 70000}).toArray());
+        assertEquals(0, IdBitmap.of(new int[0]).cardinality());
+    }
+
+    @Test
+    public void filterKeepsIdsInOrOutOfTheSet() {
+        Random random = new Random(4);
+        IdBitmap bitmap = new IdBitmap();
+        TreeSet<Integer> reference = new TreeSet<>();
+        randomIds(random, bitmap, reference, 20000);
+        TreeSet<Integer> probes = new TreeSet<>();
+        randomIds(random, new IdBitmap(), probes, 20000);
+        probes.addAll(reference.headSet(5000));
+
+        TreeSet<Integer> in = new TreeSet<>(probes);
+        in.retainAll(reference);
+        TreeSet<Integer> out = new TreeSet<>(probes);
+        out.removeAll(reference);
+        assertArrayEquals(toArray(in), bitmap.filter(toArray(probes), true));
+        assertArrayEquals(toArray(out), bitmap.filter(toArray(probes), false));
+    }
+}
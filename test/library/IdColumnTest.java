@@ -0,0 +1,60 @@
+package library;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The IdColumnTest class checks the values, counts, sums and sweeps of an IdColumn against a plain array, across several pages.
+ */
+public class IdColumnTest {
+    @Test
+    public void matchesArrayAcrossPages() {
+        Random random = new Random(1);
+        int limit = 200000;
+        int[] reference = new int[limit];
+        Arrays.fill(reference, -1);
+        IdColumn column = new IdColumn(-1);
+        for (int i = 0; i < 20000; i++) {
+            int id = random.nextInt(limit);
+            int value = random.nextInt(4) == 0 ? -1 : random.nextInt(3);
+            reference[id] = value;
+            column.set(id, value);
+        }
+        int count = 0;
+        long sum = 0;
+        for (int id = 0; id < limit; id++) {
+            assertEquals(reference[id], column.get(id));
+            if (reference[id] != -1) {
+                count++;
+                sum += reference[id];
+            }
+        }
+        assertEquals(count, column.count(limit));
+        //The sum includes the default value of every id which has none.
+        assertEquals(sum - (limit - count), column.sum(limit));
+
+        int found = -1;
+        for (int id = 0; id < limit; id++) {
+            if (reference[id] != -1) {
+                found = column.nextSet(found + 1, limit);
+                assertEquals(id, found);
+            }
+        }
+        assertEquals(-1, column.nextSet(found + 1, limit));
+    }
+
+    @Test
+    public void unsetIdsHaveTheDefaultValue() {
+        IdColumn column = new IdColumn(7);
+        assertEquals(7, column.get(1 << 20));
+        column.set(3, 1);
+        column.clear();
+        assertEquals(7, column.get(3));
+        assertEquals(0, column.count(100));
+        assertEquals(-1, column.nextSet(0, 100));
+    }
+}
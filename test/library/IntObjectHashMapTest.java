@@ -0,0 +1,60 @@
+package library;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The IntObjectHashMapTest class checks an IntObjectHashMap against a HashMap over random puts and removes, including keys which collide in the table and the backward shift of removal.
+ */
+public class IntObjectHashMapTest {
+    @Test
+    public void matchesHashMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(1);
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        HashMap<Integer, String> reference = new HashMap<>();
+        for (int i = 0; i < 200000; i++) {
+            //Keys are multiples of 1024 as well as small and negative numbers, so that many keys share a probe sequence.
+            int key = random.nextBoolean() ? random.nextInt(2000) - 1000 : random.nextInt(500) * 1024;
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(reference.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        for (int key = -1000; key < 1000; key++) {
+            assertEquals(reference.get(key), map.get(key));
+            assertEquals(reference.containsKey(key), map.containsKey(key));
+        }
+        for (int key = 0; key < 500 * 1024; key += 1024) {
+            assertEquals(reference.get(key), map.get(key));
+        }
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(reference.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    public void clearRemovesEveryKey() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        for (int key = 0; key < 100; key++) {
+            map.put(key, "v" + key);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(5));
+        assertNull(map.get(5));
+        assertNull(map.put(5, "five"));
+        assertTrue(map.containsKey(5));
+    }
+}
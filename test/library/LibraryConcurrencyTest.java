@@ -0,0 +1,148 @@
+package library;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The LibraryConcurrencyTest class issues and returns books from many threads at once, singly and in batches, with holds being placed and handed over, and then checks that the striped locks of the Library kept the loans consistent:
+ * no user ever holds more than the limit of books, the loan index of every user agrees with the loans of the books (see Library.checkLoans and User.getLoans), and the journal replays to the same loans.
+ * The books and users are few, so that the threads contend for the same books, users and lock stripes.
+ */
+public class LibraryConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20000;
+    private static final int BOOKS = 300;
+    private static final int USERS = 40;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loansStayConsistentUnderContention() throws Exception {
+        String data = folder.newFile("library.txt").getPath();
+        String journal = data + LibraryJournal.JOURNAL_SUFFIX;
+        LibraryDataGenerator.generate(data, BOOKS, USERS, 1);
+        Library library = new Library();
+        assertEquals(1, library.importDataFromFile(data));
+        assertEquals(1, library.openJournal(journal));
+
+        AtomicBoolean overLimit = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        ArrayList<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(t);
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    operate(library, random);
+                    User user = library.getUserdata().getUserById(random.nextInt(USERS));
+                    if (user.getBooksLoaned() > 3 || user.getLoans().length > 3) {
+                        overLimit.set(true);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES));
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+
+        assertFalse(overLimit.get());
+        assertTrue(library.checkLoans());
+        int[] held = new int[USERS];
+        for (int bookId = 0; bookId < BOOKS; bookId++) {
+            Book book = library.getBookshelf().getBookById(bookId);
+            if (book.isOnLoan()) {
+                held[book.getOnLoanTo()]++;
+                assertTrue(library.getUserdata().getUserById(book.getOnLoanTo()).holdsLoan(bookId));
+                for (int waiting : library.getHolds(bookId)) {
+                    assertTrue(waiting != book.getOnLoanTo());
+                }
+            } else {
+                //A book which is returned is handed to the users waiting for it, so nobody waits for a book on the shelf.
+                assertEquals(0, library.getHolds(bookId).length);
+            }
+        }
+        for (int userId = 0; userId < USERS; userId++) {
+            User user = library.getUserdata().getUserById(userId);
+            assertEquals(held[userId], user.getBooksLoaned());
+            assertEquals(held[userId], user.getLoans().length);
+            for (int bookId : user.getLoans()) {
+                assertEquals(userId, library.getBookshelf().getBookById(bookId).getOnLoanTo());
+            }
+        }
+        assertEquals(library.getBookshelf().getNumberOfBooksOnLoan(), library.getUserdata().getTotalBooksLoaned());
+
+        library.closeJournal();
+        Library restarted = new Library();
+        assertEquals(1, restarted.importDataFromFile(data));
+        assertEquals(1, restarted.openJournal(journal));
+        assertEquals(LibraryFileWriterTest.describe(library), LibraryFileWriterTest.describe(restarted));
+        assertTrue(restarted.checkLoans());
+        restarted.closeJournal();
+    }
+
+    /**
+     * The operate method performs one random operation on the library: an issue, a return, a batch of either, or placing or cancelling a hold.
+     */
+    private static void operate(Library library, Random random) {
+        int bookId = random.nextInt(BOOKS);
+        int userId = random.nextInt(USERS);
+        switch (random.nextInt(6)) {
+            case 0:
+                library.issueBookToUser(bookId, userId);
+                break;
+            case 1: {
+                int onLoanTo = library.getBookshelf().getBookById(bookId).getOnLoanTo();
+                if (onLoanTo != -1) {
+                    library.returnBookFromUser(bookId, onLoanTo);
+                }
+                break;
+            }
+            case 2: {
+                int[] bookIds = new int[1 + random.nextInt(4)];
+                int[] userIds = new int[bookIds.length];
+                for (int i = 0; i < bookIds.length; i++) {
+                    bookIds[i] = random.nextInt(BOOKS);
+                    userIds[i] = random.nextInt(USERS);
+                }
+                library.issueBooksToUsers(bookIds, userIds, random.nextBoolean());
+                break;
+            }
+            case 3: {
+                int[] bookIds = new int[1 + random.nextInt(4)];
+                int[] userIds = new int[bookIds.length];
+                for (int i = 0; i < bookIds.length; i++) {
+                    bookIds[i] = random.nextInt(BOOKS);
+                    int onLoanTo = library.getBookshelf().getBookById(bookIds[i]).getOnLoanTo();
+                    userIds[i] = onLoanTo == -1 ? userId : onLoanTo;
+                }
+                library.returnBooksFromUsers(bookIds, userIds, random.nextBoolean());
+                break;
+            }
+            case 4:
+                library.placeHold(bookId, userId);
+                break;
+            default:
+                library.cancelHold(bookId, userId);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package library;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The LibraryFileWriterTest class checks that a snapshot of a library (see LibraryFileWriter.writeSnapshot) imports as the same library: the same books and users under the same ids, the same loans, and the same search results.
+ */
+public class LibraryFileWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The describe method lists every book and user of a library by id, with their loans, so two libraries can be compared as a whole.
+     */
+    static ArrayList<String> describe(Library library) {
+        ArrayList<String> description = new ArrayList<>();
+        LibraryBookshelf bookshelf = library.getBookshelf();
+        for (int id = 0; id < bookshelf.getNextBookId(); id++) {
+            Book book = bookshelf.getBookById(id);
+            description.add(book == null ? "book " + id + " none" : "book " + id + " " + book.getTitle() + "/" + book.getAuthorForename() + "/" + book.getAuthorSurname() + " on loan to " + book.getOnLoanTo());
+        }
+        LibraryUserdata userdata = library.getUserdata();
+        for (int id = 0; id < userdata.getNextUserId(); id++) {
+            User user = userdata.getUserById(id);
+            if (user == null) {
+                description.add("user " + id + " none");
+            } else {
+                int[] loans = user.getLoans();
+                Arrays.sort(loans);
+                description.add("user " + id + " " + user.getForename() + "/" + user.getSurname() + " loans " + Arrays.toString(loans));
+            }
+        }
+        return description;
+    }
+
+    /**
+     * The issueRandomBooks method issues random books to random users, then returns some of them.
+     */
+    static void issueRandomBooks(Library library, Random random, int pairs) {
+        int books = library.getBookshelf().getNumberOfBooks();
+        int users = library.getUserdata().getNumberOfUsers();
+        ArrayList<int[]> issued = new ArrayList<>();
+        for (int i = 0; i < pairs; i++) {
+            int bookId = random.nextInt(books);
+            int userId = random.nextInt(users);
+            if (library.issueBookToUser(bookId, userId) == 1) {
+                issued.add(new int[]{bookId, userId});
+            }
+        }
+        for (int i = 0; i < issued.size(); i += 3) {
+            assertTrue(library.returnBookFromUser(issued.get(i)[0], issued.get(i)[1]));
+        }
+    }
+
+    @Test
+    public void snapshotImportsAsTheSameLibrary() throws IOException {
+        String data = folder.newFile("library.txt").getPath();
+        LibraryDataGenerator.generate(data, 800, 300, 1);
+        for (int shards : new int[]{1, 3}) {
+            Library library = new Library(shards);
+            assertEquals(1, library.importDataFromFile(data));
+            issueRandomBooks(library, new Random(shards), 400);
+
+            String snapshot = folder.getRoot().toPath().resolve("library-" + shards + ".snapshot").toString();
+            assertTrue(library.saveSnapshot(snapshot));
+            Library restored = new Library(shards);
+            assertEquals(1, restored.importDataFromFile(snapshot));
+            assertEquals(describe(library), describe(restored));
+            assertTrue(restored.checkLoans());
+            assertEquals(library.getBookshelf().getNumberOfBooksOnLoan(), restored.getBookshelf().getNumberOfBooksOnLoan());
+
+            for (String query : new String[]{"the", "Volume", "an", "zz"}) {
+                assertEquals(ids(library.getBookshelf().searchBooks(query)), ids(restored.getBookshelf().searchBooks(query)));
+            }
+            for (int userId = 0; userId < 300; userId += 37) {
+                String surname = library.getUserdata().getUserById(userId).getSurname();
+                assertEquals(ids(library.getUserdata().searchUsers(surname)), ids(restored.getUserdata().searchUsers(surname)));
+                String prefix = surname.substring(0, 2);
+                assertEquals(ids(library.getUserdata().searchUsersByPrefix(prefix)), ids(restored.getUserdata().searchUsersByPrefix(prefix)));
+            }
+        }
+    }
+
+    /**
+     * The ids method returns the ids and positions of the hits of a search, in the order they were found.
+     */
+    static <T> ArrayList<String> ids(ArrayList<SearchHit<T>> hits) {
+        ArrayList<String> ids = new ArrayList<>();
+        for (SearchHit<T> hit : hits) {
+            ids.add(hit.getId() + "@" + hit.getIndex());
+        }
+        return ids;
+    }
+}
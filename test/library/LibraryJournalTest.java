@@ -0,0 +1,199 @@
+package library;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The LibraryJournalTest class checks that the loans and returns journaled by a library are restored when the same data is imported again and the journal is reopened, including after the journal has been compacted, after a partly written record and after the journal has moved to a snapshot (also as part of a re-import), and that a journal is refused by other data.
+ */
+public class LibraryJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopenedJournalRestoresLoans() throws IOException {
+        String data = folder.newFile("library.txt").getPath();
+        String journal = folder.getRoot().toPath().resolve("library.journal").toString();
+        LibraryDataGenerator.generate(data, 500, 200, 2);
+        Random random = new Random(2);
+
+        Library library = new Library();
+        assertEquals(1, library.importDataFromFile(data));
+        assertEquals(1, library.openJournal(journal));
+        LibraryFileWriterTest.issueRandomBooks(library, random, 300);
+        library.closeJournal();
+        ArrayList<String> expected = LibraryFileWriterTest.describe(library);
+
+        //Reopening replays the journal (and compacts it), so the loans survive more than one restart.
+        for (int restart = 0; restart < 2; restart++) {
+            Library restarted = new Library();
+            assertEquals(1, restarted.importDataFromFile(data));
+            assertEquals(1, restarted.openJournal(journal));
+            assertEquals(expected, LibraryFileWriterTest.describe(restarted));
+            assertTrue(restarted.checkLoans());
+            LibraryFileWriterTest.issueRandomBooks(restarted, random, 100);
+            restarted.closeJournal();
+            expected = LibraryFileWriterTest.describe(restarted);
+        }
+    }
+
+    @Test
+    public void partlyWrittenRecordIsDiscarded() throws IOException {
+        String data = folder.newFile("library.txt").getPath();
+        String journal = folder.getRoot().toPath().resolve("library.journal").toString();
+        LibraryDataGenerator.generate(data, 100, 50, 3);
+
+        Library library = new Library();
+        assertEquals(1, library.importDataFromFile(data));
+        assertEquals(1, library.openJournal(journal));
+        assertEquals(1, library.issueBookToUser(4, 7));
+        library.closeJournal();
+        ArrayList<String> expected = LibraryFileWriterTest.describe(library);
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            file.seek(file.length());
+            file.write(new byte[]{LibraryJournal.RETURN, 0, 0});
+        }
+
+        Library restarted = new Library();
+        assertEquals(1, restarted.importDataFromFile(data));
+        assertEquals(1, restarted.openJournal(journal));
+        assertEquals(expected, LibraryFileWriterTest.describe(restarted));
+        restarted.closeJournal();
+    }
+
+    @Test
+    public void journalOfOtherDataIsRejected() throws IOException {
+        String data = folder.newFile("library.txt").getPath();
+        String other = folder.newFile("other.txt").getPath();
+        String journal = folder.getRoot().toPath().resolve("library.journal").toString();
+        //The same numbers of books and users, with different names.
+        LibraryDataGenerator.generate(data, 100, 50, 4);
+        LibraryDataGenerator.generate(other, 100, 50, 5);
+
+        Library library = new Library();
+        assertEquals(1, library.importDataFromFile(data));
+        assertEquals(1, library.openJournal(journal));
+        assertEquals(1, library.issueBookToUser(60, 40));
+        library.closeJournal();
+        byte[] written = Files.readAllBytes(Paths.get(journal));
+
+        Library otherLibrary = new Library();
+        assertEquals(1, otherLibrary.importDataFromFile(other));
+        assertEquals(-2, otherLibrary.openJournal(journal));
+        assertFalse(otherLibrary.getBookshelf().getBookById(60).isOnLoan());
+        assertArrayEquals(written, Files.readAllBytes(Paths.get(journal)));
+    }
+
+    @Test
+    public void journalMovesToSnapshot() throws IOException {
+        String data = folder.newFile("library.txt").getPath();
+        String journal = data + LibraryJournal.JOURNAL_SUFFIX;
+        String snapshot = folder.getRoot().toPath().resolve("library.snapshot").toString();
+        LibraryDataGenerator.generate(data, 300, 100, 6);
+        Random random = new Random(6);
+
+        Library library = new Library();
+        assertEquals(1, library.importDataFromFile(data));
+        assertEquals(1, library.openJournal(journal));
+        LibraryFileWriterTest.issueRandomBooks(library, random, 100);
+        assertTrue(library.saveSnapshot(snapshot));
+        assertFalse(Files.exists(Paths.get(journal)));
+        //Loans made after the snapshot was saved are journaled beside it.
+        LibraryFileWriterTest.issueRandomBooks(library, random, 100);
+        library.closeJournal();
+        ArrayList<String> expected = LibraryFileWriterTest.describe(library);
+
+        //The snapshot already holds the loans made before it, and its journal replays over them on every restart.
+        for (int restart = 0; restart < 2; restart++) {
+            Library restarted = new Library();
+            assertEquals(1, restarted.importDataFromFile(snapshot));
+            assertEquals(1, restarted.openJournal(snapshot + LibraryJournal.JOURNAL_SUFFIX));
+            assertEquals(expected, LibraryFileWriterTest.describe(restarted));
+            assertTrue(restarted.checkLoans());
+            restarted.closeJournal();
+        }
+    }
+
+    @Test
+    public void reimportMovesJournalToSnapshot() throws IOException {
+        String data = folder.newFile("library.txt").getPath();
+        String journal = data + LibraryJournal.JOURNAL_SUFFIX;
+        String snapshot = folder.getRoot().toPath().resolve("library.snapshot").toString();
+        LibraryDataGenerator.generate(data, 300, 100, 7);
+        Random random = new Random(7);
+
+        Library library = new Library();
+        assertEquals(1, library.importDataFromFile(data));
+        assertEquals(1, library.openJournal(journal));
+        LibraryFileWriterTest.issueRandomBooks(library, random, 100);
+        //A new version of the file, whose books and users get ids a fresh import of it would not give them.
+        LibraryDataGenerator.generate(data, 300, 100, 8);
+        ArrayList<String> unchanged = LibraryFileWriterTest.describe(library);
+        assertEquals(-3, library.reimportDataFromFile(data, null, new int[6]));
+        assertEquals(unchanged, LibraryFileWriterTest.describe(library));
+        assertEquals(1, library.reimportDataFromFile(data, snapshot, new int[6]));
+        assertFalse(Files.exists(Paths.get(journal)));
+        LibraryFileWriterTest.issueRandomBooks(library, random, 100);
+        library.closeJournal();
+        ArrayList<String> expected = LibraryFileWriterTest.describe(library);
+
+        Library restarted = new Library();
+        assertEquals(1, restarted.importDataFromFile(snapshot));
+        assertEquals(1, restarted.openJournal(snapshot + LibraryJournal.JOURNAL_SUFFIX));
+        assertEquals(expected, LibraryFileWriterTest.describe(restarted));
+        assertTrue(restarted.checkLoans());
+        restarted.closeJournal();
+    }
+
+    @Test
+    public void groupsBeyondBothBuffersAreWritten() throws IOException {
+        String data = folder.newFile("library.txt").getPath();
+        String journal = folder.getRoot().toPath().resolve("library.journal").toString();
+        LibraryDataGenerator.generate(data, 400, 150, 9);
+        Random random = new Random(9);
+
+        //Several thousand events, many full groups, so appends fill one buffer while the other is being written.
+        Library library = new Library();
+        assertEquals(1, library.importDataFromFile(data));
+        assertEquals(1, library.openJournal(journal));
+        for (int i = 0; i < 3000; i++) {
+            int bookId = random.nextInt(400);
+            int userId = random.nextInt(150);
+            if (library.issueBookToUser(bookId, userId) == 1 && i % 4 != 0) {
+                assertTrue(library.returnBookFromUser(bookId, userId));
+            }
+        }
+        library.closeJournal();
+        ArrayList<String> expected = LibraryFileWriterTest.describe(library);
+
+        Library restarted = new Library();
+        assertEquals(1, restarted.importDataFromFile(data));
+        assertEquals(1, restarted.openJournal(journal));
+        assertEquals(expected, LibraryFileWriterTest.describe(restarted));
+        restarted.closeJournal();
+    }
+
+    @Test(expected = IOException.class)
+    public void appendAfterCloseIsRefused() throws IOException {
+        String data = folder.newFile("library.txt").getPath();
+        LibraryDataGenerator.generate(data, 10, 5, 10);
+        Library library = new Library();
+        assertEquals(1, library.importDataFromFile(data));
+        LibraryJournal opened = new LibraryJournal(data + LibraryJournal.JOURNAL_SUFFIX, library.getBookshelf(), library.getUserdata());
+        opened.close();
+        opened.append(LibraryJournal.ISSUE, 0, 0);
+    }
+}
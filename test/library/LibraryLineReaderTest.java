@@ -0,0 +1,83 @@
+package library;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The LibraryLineReaderTest class checks that a LibraryLineReader reads the same lines as a Scanner (nextLine) and finds the end of the data at the same place (hasNext), for files whose line endings and whitespace are ASCII.
+ */
+public class LibraryLineReaderTest {
+    private static final String[] FILES = {
+            "",
+            "one",
+            "one\ntwo\n",
+            "one\r\ntwo\rthree\n\nfive",
+            "  padded  \t\n\n\n",
+            "last\n \t\f\u000B\r\n",
+            "last\n\u001C\u001F \n",
+            "Zoë Ærø\r\n\r\nΩmega\n",
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String contents) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), contents.getBytes(Charset.defaultCharset()));
+        return file;
+    }
+
+    @Test
+    public void readsTheLinesOfAScanner() throws IOException {
+        for (String contents : FILES) {
+            File file = write(contents);
+            ArrayList<String> expected = new ArrayList<>();
+            try (Scanner scanner = new Scanner(new FileReader(file))) {
+                while (scanner.hasNextLine()) {
+                    expected.add(scanner.nextLine());
+                }
+            }
+            ArrayList<String> lines = new ArrayList<>();
+            try (LibraryLineReader reader = new LibraryLineReader(file.getPath())) {
+                while (reader.nextLine()) {
+                    lines.add(reader.lineString(0, reader.lineLength()));
+                }
+            }
+            assertEquals(contents, expected, lines);
+        }
+    }
+
+    @Test
+    public void hasNextAgreesWithScanner() throws IOException {
+        for (String contents : FILES) {
+            File file = write(contents);
+            ArrayList<Boolean> expected = new ArrayList<>();
+            try (Scanner scanner = new Scanner(new FileReader(file))) {
+                expected.add(scanner.hasNext());
+                while (scanner.hasNextLine()) {
+                    scanner.nextLine();
+                    expected.add(scanner.hasNext());
+                }
+            }
+            ArrayList<Boolean> found = new ArrayList<>();
+            try (LibraryLineReader reader = new LibraryLineReader(file.getPath())) {
+                found.add(reader.hasNext());
+                while (reader.nextLine()) {
+                    found.add(reader.hasNext());
+                }
+            }
+            assertEquals(contents, expected, found);
+        }
+    }
+}
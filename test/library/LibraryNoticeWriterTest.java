@@ -0,0 +1,70 @@
+package library;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The LibraryNoticeWriterTest class checks that the writer thread of a LibraryNoticeWriter keeps draining its queue when a callback throws or a file cannot be written, and that notices without a user or book are refused.
+ */
+public class LibraryNoticeWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 60000)
+    public void failuresDoNotStopTheWriter() throws IOException {
+        File notices = folder.newFolder("notices");
+        User user = new User("Ada", "Lovelace");
+        user.setId(7);
+        Book book = new Book("Sketch of the Analytical Engine", "Luigi", "Menabrea");
+        book.setId(3);
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        LibraryNoticeWriter writer = new LibraryNoticeWriter(notices.getPath(), false);
+        //Far more notices than the queue holds, so they are only all queued if the writer thread keeps taking them.
+        for (int i = 0; i < 5000; i++) {
+            boolean throwing = i % 2 == 0;
+            while (!writer.submit(LibraryFileWriter.RETURN_NOTICE, user, book, (file, failure) -> {
+                written.incrementAndGet();
+                if (throwing) {
+                    throw new IllegalStateException();
+                }
+            })) {
+                Thread.yield();
+            }
+        }
+        writer.close();
+        assertEquals(5000, written.get());
+        assertTrue(new File(notices, "return notice 7.txt").isFile());
+
+        //A directory which does not exist cannot be written to, and each notice is told so.
+        LibraryNoticeWriter missing = new LibraryNoticeWriter(new File(notices, "missing").getPath(), false);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(missing.submit(LibraryFileWriter.RETURN_NOTICE, user, book, (file, failure) -> {
+                if (failure != null) {
+                    failed.incrementAndGet();
+                }
+            }));
+        }
+        missing.close();
+        assertEquals(10, failed.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noticeWithoutUserIsRefused() {
+        LibraryNoticeWriter writer = new LibraryNoticeWriter(folder.getRoot().getPath(), false);
+        try {
+            writer.submit(LibraryFileWriter.RETURN_NOTICE, null, new Book("Title", "Forename", "Surname"), null);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package library;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The LibraryTest class checks the operations of a Library on a small generated catalog.
+ */
+public class LibraryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Library library;
+
+    @Before
+    public void importCatalog() throws IOException {
+        String data = folder.newFile("library.txt").getPath();
+        LibraryDataGenerator.generate(data, 20, 10, 1);
+        library = new Library();
+        assertEquals(1, library.importDataFromFile(data));
+    }
+
+    @Test
+    public void unknownIdsAreReportedNotThrown() {
+        assertEquals(-3, library.issueBookToUser(20, 0));
+        assertEquals(-3, library.issueBookToUser(-1, 0));
+        assertEquals(-3, library.issueBookToUser(0, 10));
+        assertFalse(library.returnBookFromUser(20, 0));
+        assertFalse(library.returnBookFromUser(0, 10));
+        assertFalse(library.getBookshelf().isBookLoanedToUser(20, 0));
+        assertEquals(-3, library.placeHold(20, 0));
+        assertArrayEquals(new byte[]{-3, -3, 1}, library.issueBooksToUsers(new int[]{20, 0, 1}, new int[]{0, 10, 2}, false));
+        assertTrue(library.getBookshelf().isBookLoanedToUser(1, 2));
+        assertTrue(library.checkLoans());
+    }
+
+    @Test
+    public void holdReadyAndReturnNoticesHaveTheirOwnFiles() throws IOException {
+        File notices = folder.newFolder("notices");
+        assertEquals(1, library.issueBookToUser(0, 0));
+        assertEquals(1, library.issueBookToUser(1, 2));
+        assertEquals(1, library.placeHold(1, 0));
+        library.openNoticeWriter(notices.getPath(), false);
+        assertEquals(1, library.writeReturnNotice(0, (file, failure) -> { }));
+        assertEquals(-1, library.writeReturnNotice(2, (file, failure) -> { }));
+        assertEquals(-3, library.writeReturnNotice(20, (file, failure) -> { }));
+        assertTrue(library.returnBookFromUser(1, 2));
+        library.closeNoticeWriter();
+        assertTrue(library.getBookshelf().isBookLoanedToUser(1, 0));
+        assertTrue(new File(notices, "return notice 0.txt").isFile());
+        assertTrue(new File(notices, "hold ready notice 0.txt").isFile());
+    }
+}
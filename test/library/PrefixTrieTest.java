@@ -0,0 +1,107 @@
+package library;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The PrefixTrieTest class checks the prefix queries and completions of a PrefixTrie against a TreeMap of case-folded words, after removals and after a round-trip through a snapshot.
+ */
+public class PrefixTrieTest {
+    private static final String[] NAMES = {"Ann", "Anna", "anne", "Annabel", "Bob", "Bobby", "Carl", "Carla", "Zoë", "Ólafur", "Ola"};
+
+    /**
+     * The valuesWithPrefix method returns the values of every word of the reference beginning with a prefix, in ascending order of word.
+     */
+    private static int[] valuesWithPrefix(TreeMap<String, ArrayList<Integer>> reference, String prefix) {
+        String folded = prefix.toLowerCase(Locale.ROOT);
+        ArrayList<Integer> values = new ArrayList<>();
+        for (String word : reference.keySet()) {
+            if (word.startsWith(folded)) {
+                ArrayList<Integer> wordValues = new ArrayList<>(reference.get(word));
+                wordValues.sort(null);
+                values.addAll(wordValues);
+            }
+        }
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] sortedWithinWords(PrefixTrie trie, TreeMap<String, ArrayList<Integer>> reference, String prefix) {
+        //Values of one word may be held in any order, so they are compared word by word.
+        int[] values = trie.valuesWithPrefix(prefix);
+        String folded = prefix.toLowerCase(Locale.ROOT);
+        int position = 0;
+        for (String word : reference.keySet()) {
+            if (word.startsWith(folded)) {
+                int size = reference.get(word).size();
+                Arrays.sort(values, position, position + size);
+                position += size;
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void prefixesMatchReference() throws IOException {
+        Random random = new Random(1);
+        PrefixTrie trie = new PrefixTrie();
+        TreeMap<String, ArrayList<Integer>> reference = new TreeMap<>();
+        for (int value = 0; value < 500; value++) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            trie.add(name, value);
+            reference.computeIfAbsent(name.toLowerCase(Locale.ROOT), word -> new ArrayList<>()).add(value);
+        }
+        String[] prefixes = {"", "a", "AN", "anna", "annabelle", "b", "c", "ó", "Ó", "zo", "x"};
+        for (String prefix : prefixes) {
+            assertArrayEquals(prefix, valuesWithPrefix(reference, prefix), sortedWithinWords(trie, reference, prefix));
+        }
+
+        //Remove every value of "bob" and some of "ann".
+        for (int value : new ArrayList<>(reference.get("bob"))) {
+            assertTrue(trie.remove("BOB", value));
+        }
+        reference.remove("bob");
+        int annValue = reference.get("ann").remove(0);
+        assertTrue(trie.remove("Ann", annValue));
+        assertFalse(trie.remove("Ann", annValue));
+        for (String prefix : prefixes) {
+            assertArrayEquals(prefix, valuesWithPrefix(reference, prefix), sortedWithinWords(trie, reference, prefix));
+        }
+        ArrayList<String> completions = trie.complete("b", 10);
+        assertEquals(1, completions.size());
+        assertEquals("bobby", completions.get(0).toLowerCase(Locale.ROOT));
+        assertEquals(2, trie.complete("ann", 2).size());
+
+        //Write the trie to a snapshot with its own string table, and read it back.
+        HashMap<String, Integer> stringIds = new HashMap<>();
+        ArrayList<String> strings = new ArrayList<>();
+        trie.forEachWord(word -> {
+            stringIds.put(word, strings.size());
+            strings.add(word);
+        });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            trie.writeTo(out, stringIds::get);
+        }
+        PrefixTrie restored = new PrefixTrie();
+        restored.readFrom(ByteBuffer.wrap(bytes.toByteArray()), strings.toArray(new String[0]));
+        for (String prefix : prefixes) {
+            assertArrayEquals(prefix, trie.valuesWithPrefix(prefix), restored.valuesWithPrefix(prefix));
+            assertEquals(trie.complete(prefix, 5), restored.complete(prefix, 5));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package library;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The ShardedSortedListTest class checks that a ShardedSortedList of several shards holds the same order as a single sorted list: positions (get, indexOf, rank and iterator) are positions across every shard, also while elements are being added.
+ */
+public class ShardedSortedListTest {
+    private static final String[] SURNAMES = {"Austen", "austen", "Brontë", "Carroll", "Dickens", "DICKENS", "Eliot", "Hardy", "Ishiguro", "Joyce", "Keats", "Le Guin", "Morrison", "Orwell", "Woolf"};
+
+    private static ShardedSortedList<Book> newList(int shards) {
+        return new ShardedSortedList<>(shards, book -> ShardedSortedList.hashIgnoreCase(book.getAuthorSurname()));
+    }
+
+    private static Book randomBook(Random random, int i) {
+        return new Book("Title " + i, "Forename", SURNAMES[random.nextInt(SURNAMES.length)] + (random.nextInt(3) == 0 ? "" : " " + random.nextInt(40)));
+    }
+
+    /**
+     * The insert method adds a book to the reference list after any book which compares as equal, as ShardedSortedList.add does.
+     */
+    private static void insert(ArrayList<Book> reference, Book book) {
+        int position = 0;
+        while (position < reference.size() && reference.get(position).compareTo(book) <= 0) {
+            position++;
+        }
+        reference.add(position, book);
+    }
+
+    private static void assertMatches(ArrayList<Book> reference, ShardedSortedList<Book> list) {
+        assertEquals(reference.size(), list.size());
+        Iterator<Book> iterator = list.iterator();
+        for (int i = 0; i < reference.size(); i++) {
+            assertSame(reference.get(i), list.get(i));
+            assertSame(reference.get(i), iterator.next());
+            assertEquals(i, list.indexOf(reference.get(i)));
+        }
+        assertFalse(iterator.hasNext());
+        for (int start = 0; start <= reference.size(); start += 97) {
+            Iterator<Book> from = list.iterator(start);
+            for (int i = start; i < Math.min(reference.size(), start + 50); i++) {
+                assertSame(reference.get(i), from.next());
+            }
+        }
+        assertFalse(list.iterator(reference.size()).hasNext());
+    }
+
+    @Test
+    public void shardsHoldTheOrderOfOneList() {
+        for (int shards : new int[]{1, 2, 4, 7}) {
+            Random random = new Random(shards);
+            ShardedSortedList<Book> list = newList(shards);
+            ArrayList<Book> reference = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                Book book = randomBook(random, i);
+                list.add(book);
+                insert(reference, book);
+            }
+            assertMatches(reference, list);
+            for (String surname : SURNAMES) {
+                Book probe = new Book("", "", surname + " 20");
+                int smaller = 0;
+                while (smaller < reference.size() && reference.get(smaller).compareTo(probe) < 0) {
+                    smaller++;
+                }
+                assertEquals(smaller, list.rank(probe));
+            }
+
+            list.removeIf(book -> book.getTitle().hashCode() % 3 == 0);
+            reference.removeIf(book -> book.getTitle().hashCode() % 3 == 0);
+            assertMatches(reference, list);
+        }
+    }
+
+    @Test
+    public void addAllSortedSplitsRunAcrossShards() {
+        Random random = new Random(1);
+        Book[] run = new Book[3000];
+        for (int i = 0; i < run.length; i++) {
+            run[i] = randomBook(random, i);
+        }
+        Arrays.sort(run);
+        ShardedSortedList<Book> list = newList(5);
+        list.addAllSorted(run, run.length);
+        ArrayList<Book> reference = new ArrayList<>(Arrays.asList(run));
+        assertMatches(reference, list);
+        Book book = randomBook(random, run.length);
+        list.add(book);
+        insert(reference, book);
+        assertMatches(reference, list);
+    }
+
+    @Test
+    public void positionsStayRightAsElementsAreAdded() {
+        //Positions are looked up between adds, across shards of different sizes.
+        Random random = new Random(3);
+        ShardedSortedList<Book> list = newList(4);
+        ArrayList<Book> reference = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Book book = randomBook(random, i);
+            list.add(book);
+            insert(reference, book);
+            for (int probe = 0; probe < 3; probe++) {
+                int index = random.nextInt(reference.size());
+                assertSame(reference.get(index), list.get(index));
+            }
+            if (i % 500 == 0) {
+                assertSame(reference.get(reference.size() - 1), list.get(reference.size() - 1));
+            }
+        }
+        assertMatches(reference, list);
+    }
+}
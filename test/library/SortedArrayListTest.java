@@ -0,0 +1,192 @@
+package library;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The SortedArrayListTest class checks that a SortedArrayList keeps its elements in order, and that positions (get, indexOf, rank and iterator) stay correct as chunks are split by adds and discarded by removes.
+ * Each test compares the SortedArrayList against a plain ArrayList kept sorted by insertion, using elements with many equal keys so that the order of ties is checked as well.
+ */
+public class SortedArrayListTest {
+    /**
+     * The Item class is an element with a key to sort by and an identity, so that elements which compare as equal can still be told apart.
+     */
+    private static final class Item implements Comparable<Item> {
+        private final int key;
+
+        private Item(int key) {
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Item o) {
+            return Integer.compare(key, o.key);
+        }
+
+        @Override
+        public String toString() {
+            return "Item " + key + "@" + System.identityHashCode(this);
+        }
+    }
+
+    /**
+     * The insert method adds an element to the reference list after any element which compares as equal, as SortedArrayList.add does.
+     */
+    private static void insert(ArrayList<Item> reference, Item item) {
+        int position = 0;
+        while (position < reference.size() && reference.get(position).compareTo(item) <= 0) {
+            position++;
+        }
+        reference.add(position, item);
+    }
+
+    /**
+     * The assertMatches method checks every position of the SortedArrayList against the reference list.
+     */
+    private static void assertMatches(ArrayList<Item> reference, SortedArrayList<Item> list) {
+        assertEquals(reference.size(), list.size());
+        Iterator<Item> iterator = list.iterator();
+        for (int i = 0; i < reference.size(); i++) {
+            assertSame(reference.get(i), list.get(i));
+            assertSame(reference.get(i), iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void addKeepsOrderAcrossChunkSplits() {
+        Random random = new Random(1);
+        SortedArrayList<Item> list = new SortedArrayList<>();
+        ArrayList<Item> reference = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Item item = new Item(random.nextInt(300));
+            list.add(item);
+            insert(reference, item);
+        }
+        assertMatches(reference, list);
+        for (int i = 0; i < reference.size(); i++) {
+            assertEquals(i, list.indexOf(reference.get(i)));
+        }
+        assertEquals(-1, list.indexOf(new Item(5)));
+        assertFalse(list.contains(new Item(5)));
+    }
+
+    @Test
+    public void rankCountsSmallerElements() {
+        Random random = new Random(2);
+        SortedArrayList<Item> list = new SortedArrayList<>();
+        ArrayList<Item> reference = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            Item item = new Item(random.nextInt(1000) * 2);
+            list.add(item);
+            insert(reference, item);
+        }
+        for (int key = -1; key <= 2001; key++) {
+            int smaller = 0;
+            while (smaller < reference.size() && reference.get(smaller).key < key) {
+                smaller++;
+            }
+            assertEquals(smaller, list.rank(new Item(key)));
+        }
+    }
+
+    @Test
+    public void removeKeepsPositionsAsChunksEmpty() {
+        Random random = new Random(3);
+        SortedArrayList<Item> list = new SortedArrayList<>();
+        ArrayList<Item> reference = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Item item = new Item(random.nextInt(50));
+            list.add(item);
+            insert(reference, item);
+        }
+        while (!reference.isEmpty()) {
+            int index = random.nextInt(reference.size());
+            assertSame(reference.remove(index), list.remove(index));
+            if (reference.size() % 250 == 0) {
+                assertMatches(reference, list);
+            }
+        }
+        assertTrue(list.isEmpty());
+        Item item = new Item(7);
+        list.add(item);
+        assertSame(item, list.get(0));
+    }
+
+    @Test
+    public void removeIfKeepsOrderOfRemainingElements() {
+        Random random = new Random(4);
+        SortedArrayList<Item> list = new SortedArrayList<>();
+        ArrayList<Item> reference = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            Item item = new Item(random.nextInt(100));
+            list.add(item);
+            insert(reference, item);
+        }
+        assertTrue(list.removeIf(item -> item.key % 3 == 0 || item.key > 80));
+        reference.removeIf(item -> item.key % 3 == 0 || item.key > 80);
+        assertMatches(reference, list);
+        assertFalse(list.removeIf(item -> item.key > 80));
+    }
+
+    @Test
+    public void iteratorFromPositionAndRemove() {
+        SortedArrayList<Item> list = new SortedArrayList<>();
+        ArrayList<Item> reference = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Item item = new Item((i * 7919) % 2500);
+            list.add(item);
+            insert(reference, item);
+        }
+        for (int start : new int[]{0, 1, 511, 512, 1023, 1024, 2499, 2500}) {
+            Iterator<Item> iterator = list.iterator(start);
+            for (int i = start; i < reference.size(); i++) {
+                assertSame(reference.get(i), iterator.next());
+            }
+            assertFalse(iterator.hasNext());
+        }
+        Iterator<Item> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().key % 2 == 1) {
+                iterator.remove();
+            }
+        }
+        reference.removeIf(item -> item.key % 2 == 1);
+        assertMatches(reference, list);
+    }
+
+    @Test
+    public void addAllSortedIntoEmptyAndNonEmptyList() {
+        Random random = new Random(5);
+        SortedArrayList<Item> list = new SortedArrayList<>();
+        ArrayList<Item> reference = new ArrayList<>();
+        for (int length : new int[]{3000, 2000, 1, 4, 0, 1500}) {
+            Item[] run = new Item[length + 10];
+            for (int i = 0; i < length; i++) {
+                run[i] = new Item(random.nextInt(200));
+            }
+            Arrays.sort(run, 0, length);
+            list.addAllSorted(run, length);
+            for (int i = 0; i < length; i++) {
+                insert(reference, run[i]);
+            }
+            assertMatches(reference, list);
+            for (int i = 0; i < reference.size(); i += 37) {
+                assertEquals(i, list.indexOf(reference.get(i)));
+            }
+        }
+        Item item = new Item(100);
+        list.add(item);
+        insert(reference, item);
+        assertMatches(reference, list);
+    }
+}
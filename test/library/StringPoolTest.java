@@ -0,0 +1,44 @@
+package library;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The StringPoolTest class checks that a StringPool keeps the names which are found again over names seen once, and that names pooled from bytes and as Strings share one entry.
+ */
+public class StringPoolTest {
+    @Test
+    public void referencedNamesAreSparedOnce() {
+        //A pool of one slot, so every name competes for the same slot.
+        StringPool pool = new StringPool(1);
+        String austen = pool.intern(new String("Austen"));
+        assertSame(austen, pool.intern(new String("Austen")));
+        //Names seen between sightings of Austen never evict it.
+        for (int i = 0; i < 10; i++) {
+            String once = new String("Bronte " + i);
+            assertSame(once, pool.intern(once));
+            assertSame(austen, pool.intern(new String("Austen")));
+        }
+        //Austen is spared by Carroll, then replaced by Dickens as it has not been found since.
+        pool.intern(new String("Carroll"));
+        String dickens = pool.intern(new String("Dickens"));
+        assertSame(dickens, pool.intern(new String("Dickens")));
+        assertNotSame(austen, pool.intern(new String("Austen")));
+    }
+
+    @Test
+    public void bytesAndStringsShareEntries() {
+        StringPool pool = new StringPool(16);
+        String austen = pool.intern("Austen".getBytes(StandardCharsets.UTF_8), 0, 6, StandardCharsets.UTF_8);
+        assertSame(austen, pool.intern(new String("Austen")));
+        byte[] line = "x Austen".getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(austen, pool.intern(line, 2, 6, StandardCharsets.ISO_8859_1));
+        String bronte = pool.intern(new String("Brontë"));
+        byte[] encoded = bronte.getBytes(StandardCharsets.UTF_8);
+        assertSame(bronte, pool.intern(encoded, 0, encoded.length, StandardCharsets.UTF_8));
+    }
+}
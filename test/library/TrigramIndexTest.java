@@ -0,0 +1,98 @@
+package library;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The TrigramIndexTest class checks that the candidates of a query include every text containing it (matched case-sensitively, as the index is) (the index may only narrow the candidates, never lose a match), after removals and after a round-trip through a snapshot.
+ */
+public class TrigramIndexTest {
+    private static final String[] WORDS = {"river", "stone", "light", "garden", "winter", "harbour", "silver", "thunder", "Ærø", "Ωmega"};
+
+    private static String[] randomTexts(Random random, int count) {
+        String[] texts = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0, words = 1 + random.nextInt(4); w < words; w++) {
+                text.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            texts[i] = text.toString();
+        }
+        return texts;
+    }
+
+    /**
+     * The assertCandidatesCover method checks that the candidates of a query are ascending and include every id whose text contains the query.
+     */
+    private static void assertCandidatesCover(TrigramIndex index, String[] texts, boolean[] removed, String query) {
+        int[] candidates = index.candidates(query);
+        for (int i = 1; i < candidates.length; i++) {
+            assertTrue(candidates[i - 1] < candidates[i]);
+        }
+        ArrayList<Integer> expected = new ArrayList<>();
+        for (int id = 0; id < texts.length; id++) {
+            if (!removed[id] && texts[id].contains(query)) {
+                expected.add(id);
+            }
+        }
+        int c = 0;
+        for (int id : expected) {
+            while (c < candidates.length && candidates[c] < id) {
+                c++;
+            }
+            assertTrue("Missing " + id + " for " + query, c < candidates.length && candidates[c] == id);
+        }
+    }
+
+    @Test
+    public void candidatesCoverEveryMatch() throws IOException {
+        Random random = new Random(1);
+        String[] texts = randomTexts(random, 3000);
+        boolean[] removed = new boolean[texts.length];
+        TrigramIndex index = new TrigramIndex();
+        for (int id = 0; id < texts.length; id++) {
+            index.add(id, texts[id]);
+        }
+        String[] queries = {"STONE", "riv", "iver", "stone", "en w", "der", "Ærø", "mega", "xyz"};
+        for (String query : queries) {
+            assertCandidatesCover(index, texts, removed, query);
+        }
+        assertEquals(0, index.candidates("xyz").length);
+
+        //Remove every third id in one batch.
+        int[] removedIds = new int[texts.length / 3];
+        String[][] removedTexts = new String[removedIds.length][];
+        for (int i = 0; i < removedIds.length; i++) {
+            removedIds[i] = i * 3;
+            removedTexts[i] = new String[]{texts[i * 3]};
+            removed[i * 3] = true;
+        }
+        index.removeAll(removedIds, removedTexts);
+        for (String query : queries) {
+            assertCandidatesCover(index, texts, removed, query);
+            for (int candidate : index.candidates(query)) {
+                assertTrue(!removed[candidate]);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            index.writeTo(out);
+        }
+        TrigramIndex restored = new TrigramIndex();
+        restored.readFrom(ByteBuffer.wrap(bytes.toByteArray()));
+        for (String query : queries) {
+            assertArrayEquals(index.candidates(query), restored.candidates(query));
+        }
+    }
+}